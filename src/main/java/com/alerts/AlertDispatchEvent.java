@@ -0,0 +1,42 @@
+package com.alerts;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event committed for every dispatched alert, holding the latency
+ * of each stage from the sample to the dispatch.
+ */
+@Name("com.alerts.AlertDispatch")
+@Label("Alert Dispatch")
+@Category({"Cardio", "Alerts"})
+@Description("An alert was dispatched, with the latency of every stage since the sample was taken")
+class AlertDispatchEvent extends jdk.jfr.Event {
+    @Label("Patient ID")
+    String patientId;
+
+    @Label("Alert Type")
+    String alertType;
+
+    @Label("Sample To Stored")
+    @Timespan(Timespan.MICROSECONDS)
+    long transportMicros;
+
+    @Label("Stored To Evaluated")
+    @Timespan(Timespan.MICROSECONDS)
+    long queueMicros;
+
+    @Label("Evaluated To Dispatched")
+    @Timespan(Timespan.MICROSECONDS)
+    long dispatchMicros;
+
+    @Label("End To End")
+    @Timespan(Timespan.MICROSECONDS)
+    long endToEndMicros;
+
+    @Label("SLO Breached")
+    boolean sloBreached;
+}
@@ -3,11 +3,16 @@ package com.alerts;
 import com.data_management.DataStorage;
 import com.data_management.Patient;
 import com.data_management.PatientRecord;
+import com.data_management.RecordSubscription;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * The {@code AlertGenerator} class is responsible for monitoring patient data
@@ -16,26 +21,17 @@ import java.util.stream.Collectors;
  * it against specific health criteria.
  */
 public class AlertGenerator {
-    private static final int SYSTOLIC_HI = 180;
-    private static final int SYSTOLIC_LO = 90;
-    private static final int DIASTOLIC_HI = 120;
-    private static final int DIASTOLIC_LO = 60;
-    private static final int BP_DIFFERENCE = 10;
-    private static final double O_SATURATION = 0.92;
-    private static final double O_DROP = 0.5;
-    private static final int HEART_RATE_LO = 50;
-    private static final int HEART_RATE_HI = 100;
-
     // We're using a logger for more comprehensive outputs
     private static final Logger LOGGER = Logger.getLogger(AlertGenerator.class.getName());
     private final DataStorage dataStorage;
-
-    private final AlertStrategy bloodPressureStrategy;
-    private final AlertStrategy oxygenSaturationStrategy;
-    private final AlertStrategy ecgStrategy;
+    private final RuleEngine ruleEngine;
+    private final Map<Integer, PatientCursor> cursors = new ConcurrentHashMap<>();
+    private final List<Consumer<Alert>> alertListeners = new CopyOnWriteArrayList<>();
+    private final AlertLatencyMonitor latencyMonitor;
 
     /**
-     * Constructs an {@code AlertGenerator} with a specified {@code DataStorage}.
+     * Constructs an {@code AlertGenerator} with a specified {@code DataStorage}
+     * and the default alert rules.
      * The {@code DataStorage} is used to retrieve patient data that this class
      * will monitor and evaluate.
      *
@@ -43,12 +39,35 @@ public class AlertGenerator {
      *                    data
      */
     public AlertGenerator(DataStorage dataStorage) {
-        this.dataStorage = dataStorage;
-        // Initializing strategies with factory subclasses
+        this(dataStorage, RuleEngine.withDefaultRules());
+    }
 
-        this.bloodPressureStrategy = new BloodPressureStrategy(new BloodPressureAlertFactory());
-        this.oxygenSaturationStrategy = new OxygenSaturationStrategy(new BloodOxygenAlertFactory());
-        this.ecgStrategy = new ECGStrategy(new ECGAlertFactory());
+    /**
+     * Constructs an {@code AlertGenerator} that evaluates patient data against
+     * the rules of the given {@code RuleEngine}.
+     *
+     * @param dataStorage the data storage system that provides access to patient
+     *                    data
+     * @param ruleEngine  the engine holding the alert rules
+     */
+    public AlertGenerator(DataStorage dataStorage, RuleEngine ruleEngine) {
+        this(dataStorage, ruleEngine, AlertLatencyMonitor.getInstance());
+    }
+
+    /**
+     * Constructs an {@code AlertGenerator} that evaluates patient data against
+     * the rules of the given {@code RuleEngine} and records the latency of every
+     * alert it triggers with the given monitor.
+     *
+     * @param dataStorage    the data storage system that provides access to patient
+     *                       data
+     * @param ruleEngine     the engine holding the alert rules
+     * @param latencyMonitor the monitor that records the alert latencies
+     */
+    public AlertGenerator(DataStorage dataStorage, RuleEngine ruleEngine, AlertLatencyMonitor latencyMonitor) {
+        this.dataStorage = dataStorage;
+        this.ruleEngine = ruleEngine;
+        this.latencyMonitor = latencyMonitor;
     }
 
     /**
@@ -63,37 +82,114 @@ public class AlertGenerator {
 
     }
 
+    /**
+     * Gets the records for a given patient that were taken at or after a point in time.
+     * @param patient The patient to get the records for.
+     * @param startTime The earliest timestamp to include, in milliseconds since the Unix epoch.
+     * @return A list containing the patient's records from {@code startTime} onwards.
+     */
+    public List<PatientRecord> getRecordsSince(Patient patient, long startTime) {
+        return dataStorage.getRecords(patient.getPatientId(), startTime, Long.MAX_VALUE);
+    }
+
+    /**
+     * Gets the records of a given patient that were added from a sequence number on,
+     * in the order they were added.
+     * @param patient The patient to get the records for.
+     * @param fromSequence The sequence number of the first record to include.
+     * @return A list containing the patient's records from {@code fromSequence} onwards.
+     */
+    public List<PatientRecord> getRecordsFrom(Patient patient, int fromSequence) {
+        return dataStorage.getRecordsFrom(patient.getPatientId(), fromSequence);
+    }
+
+    /**
+     * Gets the number of records stored for a given patient.
+     * @param patient The patient to count the records of.
+     * @return The number of records, which is the sequence number of the next record.
+     */
+    public int getRecordCount(Patient patient) {
+        return dataStorage.getRecordCount(patient.getPatientId());
+    }
+
     /**
      * Evaluates the specified patient's data to determine if any alert conditions
      * are met. If a condition is met, an alert is triggered via the
      * {@link #triggerAlert}
-     * method. This method should define the specific conditions under which an
-     * alert
-     * will be triggered.
+     * method. The conditions are defined by the rules of the {@link RuleEngine}.
+     * Evaluation is incremental: every call only looks at the records that were
+     * added since the previous call for the same patient, while trend rules and
+     * compound conditions carry their state over from one call to the next. The
+     * records are tracked in the order they were added, so a record that arrives
+     * with an older timestamp than the records already evaluated is still evaluated.
+     * The latency of every triggered alert is recorded with the
+     * {@link AlertLatencyMonitor}.
      *
      * @param patient the patient data to evaluate for alert conditions
      */
     public void evaluateData(Patient patient) {
-        List<PatientRecord> patientData = getAllRecordsForPatient(patient);
-        evaluateProcedurallyDiastolic(patientData);
-        evaluateProcedurallySystolic(patientData);
-        checkHypotensiveHypoxemia(patient);
-        for (PatientRecord record : patientData) {
-            Alert alert = null;
-            String type = record.getRecordType().toLowerCase();
-            if (type.equals("systolicpressure") || type.equals("diastolicpressure")) {
-                alert = bloodPressureStrategy.checkAlert(record);
-            } else if (type.equals("saturation")) {
-                alert = oxygenSaturationStrategy.checkAlert(record);
-            } else if (type.equals("ecg")) {
-                alert = ecgStrategy.checkAlert(record);
+        PatientCursor cursor = cursor(patient.getPatientId());
+        synchronized (cursor) {
+            cursor.evaluatedNanos = System.nanoTime();
+            List<PatientRecord> patientData = new ArrayList<>(getRecordsFrom(patient, cursor.nextSequence));
+            cursor.nextSequence += patientData.size();
+            // Trend rules and compound conditions expect the records of a call in time order
+            patientData.sort(Comparator.comparingLong(PatientRecord::getTimestamp));
+            for (PatientRecord record : patientData) {
+                evaluate(record, cursor);
             }
-            if (alert != null) {
-                triggerAlert(alert);
+        }
+    }
+
+    /**
+     * Evaluates the records of all patients as they are stored, instead of when
+     * {@link #evaluateData} is called. The records are pushed by a subscription to the
+     * {@code DataStorage}, so alerts are raised without polling every patient. Both
+     * share the evaluation progress of every patient, so {@link #evaluateData} can
+     * still be called for the records stored before subscribing without evaluating
+     * a record twice.
+     *
+     * @return the subscription, which must be closed to stop evaluating
+     */
+    public RecordSubscription evaluateAsStored() {
+        return dataStorage.subscribe(null, null, this::evaluateBatch);
+    }
+
+    private void evaluateBatch(List<PatientRecord> records) {
+        long evaluatedNanos = System.nanoTime();
+        for (PatientRecord record : records) {
+            PatientCursor cursor = cursor(record.getPatientId());
+            synchronized (cursor) {
+                if (record.getSequence() >= cursor.nextSequence) {
+                    cursor.nextSequence = record.getSequence() + 1;
+                    cursor.evaluatedNanos = evaluatedNanos;
+                    evaluate(record, cursor);
+                }
             }
         }
     }
 
+    private PatientCursor cursor(int patientId) {
+        return cursors.computeIfAbsent(patientId, id -> new PatientCursor(ruleEngine.newState()));
+    }
+
+    /**
+     * Runs the rules on a record. The caller holds the cursor's lock.
+     */
+    private void evaluate(PatientRecord record, PatientCursor cursor) {
+        cursor.current = record;
+        ruleEngine.evaluate(record, cursor.state, cursor.sink);
+    }
+
+    /**
+     * Registers a listener that is notified of every alert this generator triggers.
+     *
+     * @param listener the listener to notify
+     */
+    public void addAlertListener(Consumer<Alert> listener) {
+        alertListeners.add(listener);
+    }
+
 
     /**
      * Triggers an alert for the monitoring system. This method can be extended to
@@ -106,106 +202,48 @@ public class AlertGenerator {
     private void triggerAlert(Alert alert) {
         // Implementation might involve logging the alert or notifying staff
         LOGGER.warning("ALERT TRIGGERED: " + alert.getCondition() + " PATIENT " + alert.getPatientId() + " AT TIME " + alert.getTimestamp());
-    }
-
-    public void evaluateProcedurallyDiastolic(List<PatientRecord> recordList) {
-        List<PatientRecord> systolicRecords = recordList.stream()
-                .filter(record -> record.getRecordType().equalsIgnoreCase("systolicpressure"))
-                .collect(Collectors.toList());
-        // Sort the List based on the timestamps
-        systolicRecords.sort(Comparator.comparing(PatientRecord::getTimestamp));
-
-        // Initialise empty double to store the previous measurement later
-        double previousMeasurement = Double.NaN;
-
-        for (PatientRecord record : systolicRecords) {
-            if (!Double.isNaN(previousMeasurement)) {
-                double difference = Math.abs(record.getMeasurementValue() - previousMeasurement);
-                if (difference > BP_DIFFERENCE) {
-                    triggerAlert(new Alert(String.valueOf(record.getPatientId()), "Systolic blood pressure difference exceeds threshold! ", record.getTimestamp()));
-
-                }
-            }
-            previousMeasurement = record.getMeasurementValue();
+        for (Consumer<Alert> listener : alertListeners) {
+            listener.accept(alert);
         }
     }
 
     /**
-     * Procedurally evaluates the patient data checking for Systolic pressure.
-     * @param recordList The list of Systolic records for the patient
+     * Triggers an alert raised while evaluating a patient and records how long it
+     * took from the sample to the dispatch.
+     *
+     * @param alert  the alert to trigger
+     * @param cursor the cursor of the patient, holding the record that raised the alert
      */
-    private void evaluateProcedurallySystolic(List<PatientRecord> recordList) {
-        List<PatientRecord> diastolicRecords = recordList.stream()
-                .filter(record -> record.getRecordType().equalsIgnoreCase("diastolicpressure"))
-                .collect(Collectors.toList());
-        // Sort the List based on the timestamps
-        diastolicRecords.sort(Comparator.comparing(PatientRecord::getTimestamp));
-
-        // Initialise empty double to store the previous measurement later
-        double previousMeasurement = Double.NaN;
-
-        for (PatientRecord record : diastolicRecords) {
-            if (!Double.isNaN(previousMeasurement)) {
-                double difference = Math.abs(record.getMeasurementValue() - previousMeasurement);
-                if (difference > BP_DIFFERENCE) {
-                    triggerAlert(new Alert(String.valueOf(record.getPatientId()), "Diastolic blood pressure difference exceeds threshold! ", record.getTimestamp()));
-
-                }
-            }
-            previousMeasurement = record.getMeasurementValue();
-        }
+    private void dispatch(Alert alert, PatientCursor cursor) {
+        triggerAlert(alert);
+        PatientRecord record = cursor.current;
+        latencyMonitor.recordDispatch(alert.getPatientId(), alert.getCondition(), record.getTimestamp(),
+                record.getStoredNanos(), cursor.evaluatedNanos, System.nanoTime());
     }
 
+    /**
+     * Checks whether a record still meets any alert condition of the configured rules.
+     * Trend rules are ignored, since they need the preceding record.
+     * @param alert The alert that is being re-checked.
+     * @param record The record to check.
+     * @return {@code true} if the record fires one of the rules.
+     */
     boolean checkAlert(Alert alert, PatientRecord record){
-        String type = record.getRecordType().toLowerCase();
-        double val = record.getMeasurementValue();
-
-        switch(type) {
-            case "systolicpressure":
-                return val <= SYSTOLIC_LO || val >= SYSTOLIC_HI;
-            case "diastolicpressure":
-                return val <= DIASTOLIC_LO || val >= DIASTOLIC_LO;
-            case "saturation":
-                return val < O_SATURATION;
-            case "ecg":
-                return val >=  0.3;
-            default:
-                return false;
-        }
+        return ruleEngine.checkAlert(record) != null;
     }
 
     /**
-     * Checks for a Hypotensive Hypoxemia alert
-     * @param patient The patient to be evaluated.
+     * The evaluation progress and rule state of a single patient.
      */
-    public void checkHypotensiveHypoxemia(Patient patient) {
-        List<PatientRecord> patientData = getAllRecordsForPatient(patient);
-        List<PatientRecord> systolicRecords = patientData.stream()
-                .filter(record -> record.getRecordType().equalsIgnoreCase("systolicpressure"))
-                .sorted(Comparator.comparing(PatientRecord::getTimestamp))
-                .collect(Collectors.toList());
-        List<PatientRecord> saturationRecords = patientData.stream()
-                .filter(record -> record.getRecordType().equalsIgnoreCase("saturation"))
-                .sorted(Comparator.comparing(PatientRecord::getTimestamp))
-                .collect(Collectors.toList());
-
-        int i = 0, j = 0;
-        while (i < systolicRecords.size() && j < saturationRecords.size()) {
-            PatientRecord systolicRecord = systolicRecords.get(i);
-            PatientRecord saturationRecord = saturationRecords.get(j);
-            if (systolicRecord.getTimestamp() == saturationRecord.getTimestamp()) {
-                if (systolicRecord.getMeasurementValue() < 90 || saturationRecord.getMeasurementValue() < 0.92) {
-                    if (systolicRecord.getMeasurementValue() < 90 && saturationRecord.getMeasurementValue() < 0.92) {
-                        triggerAlert(new Alert(String.valueOf(patient.getPatientId()), "Hypotensive Hypoxemia Alert", systolicRecord.getTimestamp()));
-                    }
-                }
-                i++;
-                j++;
-            } else if (systolicRecord.getTimestamp() < saturationRecord.getTimestamp()) {
-                i++;
-            } else {
-                j++;
-            }
+    private final class PatientCursor {
+        private final RuleState state;
+        private final Consumer<Alert> sink = alert -> dispatch(alert, this);
+        private int nextSequence; // The sequence number of the first record not yet evaluated
+        private long evaluatedNanos;
+        private PatientRecord current;
+
+        private PatientCursor(RuleState state) {
+            this.state = state;
         }
     }
 }
@@ -0,0 +1,35 @@
+package com.alerts;
+
+import java.util.Map;
+
+/**
+ * JMX view of the alert latency statistics collected by {@link AlertLatencyMonitor}.
+ * Latencies are reported in milliseconds and keyed by alert type.
+ */
+public interface AlertLatencyMXBean {
+    long getSloThresholdMillis();
+
+    void setSloThresholdMillis(long thresholdMillis);
+
+    long getSloBreaches();
+
+    Map<String, Long> getAlertCounts();
+
+    Map<String, Double> getEndToEndP50Millis();
+
+    Map<String, Double> getEndToEndP99Millis();
+
+    Map<String, Double> getEndToEndMaxMillis();
+
+    /**
+     * Returns a percentile of one stage for one alert type.
+     *
+     * @param alertType the alert type
+     * @param stage     one of {@code transport}, {@code queue}, {@code dispatch} or {@code endToEnd}
+     * @param quantile  the quantile, between 0 and 1
+     * @return the latency in milliseconds, or -1 if the alert type or stage is unknown
+     */
+    double getPercentileMillis(String alertType, String stage, double quantile);
+
+    void reset();
+}
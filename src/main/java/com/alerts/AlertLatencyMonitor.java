@@ -0,0 +1,239 @@
+package com.alerts;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures how long it takes for a reading to turn into a dispatched alert.
+ * For every alert the path is split into three stages, each kept in its own histogram per alert type:
+ * <ul>
+ *     <li>{@code transport}: from the sample timestamp to the record being stored, which covers
+ *     the simulator, the network and the reader</li>
+ *     <li>{@code queue}: from storing the record to the start of its evaluation</li>
+ *     <li>{@code dispatch}: from the start of the evaluation until the alert has been dispatched</li>
+ * </ul>
+ * plus the {@code endToEnd} latency from the sample timestamp to the dispatch.
+ * <p>
+ * The statistics are published as the MXBean {@code com.alerts:type=AlertLatency} and every
+ * dispatch is recorded as a {@code com.alerts.AlertDispatch} flight recorder event. When the
+ * end-to-end latency exceeds the SLO threshold the breach is counted, and a warning is logged at
+ * most once per {@link #WARNING_INTERVAL_MILLIS} with the number of breaches since the previous
+ * one, so that a backlog does not flood the log. The threshold defaults to the
+ * {@code alerts.latency.slo.ms} system property, or one second.
+ * <p>
+ * The sample timestamps are compared with the monitor's clock. Code that evaluates data generated in
+ * simulated time or replayed from a recording constructs a monitor with the clock of that timeline.
+ */
+public class AlertLatencyMonitor implements AlertLatencyMXBean {
+    private static final Logger LOGGER = Logger.getLogger(AlertLatencyMonitor.class.getName());
+    private static final String OBJECT_NAME = "com.alerts:type=AlertLatency";
+    /**
+     * The minimum time between two warnings about SLO breaches, in milliseconds.
+     */
+    public static final long WARNING_INTERVAL_MILLIS = 10_000;
+    private static AlertLatencyMonitor instance;
+
+    private final Map<String, Stages> byType = new ConcurrentHashMap<>();
+    private final LongAdder sloBreaches = new LongAdder();
+    private final LongAdder unreportedBreaches = new LongAdder(); // Since the previous warning
+    private final AtomicLong nextWarningNanos = new AtomicLong(System.nanoTime());
+    private final Clock clock;
+    private volatile long sloThresholdMillis;
+
+    /**
+     * Constructs a monitor that is not registered with JMX.
+     *
+     * @param sloThresholdMillis the end-to-end latency above which a warning is logged
+     */
+    public AlertLatencyMonitor(long sloThresholdMillis) {
+        this(sloThresholdMillis, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a monitor that is not registered with JMX and compares sample timestamps with the given clock.
+     *
+     * @param sloThresholdMillis the end-to-end latency above which a warning is logged
+     * @param clock              the clock of the timeline the sample timestamps are on
+     */
+    public AlertLatencyMonitor(long sloThresholdMillis, Clock clock) {
+        this.sloThresholdMillis = sloThresholdMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the monitor shared by all alert generators, registering it with the platform MBean server on first use.
+     *
+     * @return the shared monitor
+     */
+    public static synchronized AlertLatencyMonitor getInstance() {
+        if (instance == null) {
+            instance = new AlertLatencyMonitor(Long.getLong("alerts.latency.slo.ms", 1000));
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+            } catch (InstanceAlreadyExistsException e) {
+                LOGGER.fine("Alert latency MBean is already registered");
+            } catch (JMException e) {
+                LOGGER.log(Level.WARNING, "Could not register the alert latency MBean", e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Records the stage latencies of a dispatched alert.
+     *
+     * @param patientId        the patient the alert is for
+     * @param alertType        the alert condition
+     * @param sampleTimeMillis the timestamp of the sample that raised the alert, in milliseconds since the Unix epoch
+     * @param storedNanos      the {@link System#nanoTime()} at which the sample was stored
+     * @param evaluatedNanos   the {@link System#nanoTime()} at which the evaluation started
+     * @param dispatchedNanos  the {@link System#nanoTime()} at which the alert was dispatched
+     */
+    public void recordDispatch(String patientId, String alertType, long sampleTimeMillis,
+                               long storedNanos, long evaluatedNanos, long dispatchedNanos) {
+        long queueMicros = TimeUnit.NANOSECONDS.toMicros(evaluatedNanos - storedNanos);
+        long dispatchMicros = TimeUnit.NANOSECONDS.toMicros(dispatchedNanos - evaluatedNanos);
+        // The sample timestamp is on the clock's timeline, so the in-process stages are mapped back onto it
+        long dispatchedMillis = clock.millis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dispatchedNanos);
+        long endToEndMicros = TimeUnit.MILLISECONDS.toMicros(dispatchedMillis - sampleTimeMillis);
+        long transportMicros = endToEndMicros - queueMicros - dispatchMicros;
+
+        Stages stages = byType.computeIfAbsent(alertType, k -> new Stages());
+        stages.transport.record(transportMicros);
+        stages.queue.record(queueMicros);
+        stages.dispatch.record(dispatchMicros);
+        stages.endToEnd.record(endToEndMicros);
+
+        boolean breached = endToEndMicros > TimeUnit.MILLISECONDS.toMicros(sloThresholdMillis);
+        if (breached) {
+            sloBreaches.increment();
+            unreportedBreaches.increment();
+            long now = System.nanoTime();
+            long next = nextWarningNanos.get();
+            if (now - next >= 0
+                    && nextWarningNanos.compareAndSet(next, now + TimeUnit.MILLISECONDS.toNanos(WARNING_INTERVAL_MILLIS))) {
+                LOGGER.warning("Alert latency SLO of " + sloThresholdMillis + " ms breached, breaches since the last warning: "
+                        + unreportedBreaches.sumThenReset() + ", latest: " + alertType + " for patient " + patientId + " took " + endToEndMicros / 1000
+                        + " ms (transport " + Math.max(0, transportMicros) / 1000 + " ms, queue "
+                        + queueMicros / 1000 + " ms, dispatch " + dispatchMicros / 1000 + " ms)");
+            }
+        }
+
+        AlertDispatchEvent event = new AlertDispatchEvent();
+        if (event.shouldCommit()) {
+            event.patientId = patientId;
+            event.alertType = alertType;
+            event.transportMicros = Math.max(0, transportMicros);
+            event.queueMicros = queueMicros;
+            event.dispatchMicros = dispatchMicros;
+            event.endToEndMicros = Math.max(0, endToEndMicros);
+            event.sloBreached = breached;
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the histogram of one stage for one alert type.
+     *
+     * @param alertType the alert type
+     * @param stage     one of {@code transport}, {@code queue}, {@code dispatch} or {@code endToEnd}
+     * @return the histogram, or {@code null} if no such alert was recorded or the stage is unknown
+     */
+    public LatencyHistogram getHistogram(String alertType, String stage) {
+        Stages stages = byType.get(alertType);
+        return stages == null ? null : stages.get(stage);
+    }
+
+    @Override
+    public long getSloThresholdMillis() {
+        return sloThresholdMillis;
+    }
+
+    @Override
+    public void setSloThresholdMillis(long thresholdMillis) {
+        this.sloThresholdMillis = thresholdMillis;
+    }
+
+    @Override
+    public long getSloBreaches() {
+        return sloBreaches.sum();
+    }
+
+    @Override
+    public Map<String, Long> getAlertCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        byType.forEach((type, stages) -> counts.put(type, stages.endToEnd.getCount()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getEndToEndP50Millis() {
+        return endToEnd(histogram -> histogram.getPercentileMicros(0.5) / 1000.0);
+    }
+
+    @Override
+    public Map<String, Double> getEndToEndP99Millis() {
+        return endToEnd(histogram -> histogram.getPercentileMicros(0.99) / 1000.0);
+    }
+
+    @Override
+    public Map<String, Double> getEndToEndMaxMillis() {
+        return endToEnd(histogram -> histogram.getMaxMicros() / 1000.0);
+    }
+
+    @Override
+    public double getPercentileMillis(String alertType, String stage, double quantile) {
+        LatencyHistogram histogram = getHistogram(alertType, stage);
+        return histogram == null ? -1 : histogram.getPercentileMicros(quantile) / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        byType.clear();
+        sloBreaches.reset();
+        unreportedBreaches.reset();
+    }
+
+    private Map<String, Double> endToEnd(ToDoubleFunction<LatencyHistogram> statistic) {
+        Map<String, Double> values = new TreeMap<>();
+        byType.forEach((type, stages) -> values.put(type, statistic.applyAsDouble(stages.endToEnd)));
+        return values;
+    }
+
+    /**
+     * The stage histograms of one alert type.
+     */
+    private static final class Stages {
+        private final LatencyHistogram transport = new LatencyHistogram();
+        private final LatencyHistogram queue = new LatencyHistogram();
+        private final LatencyHistogram dispatch = new LatencyHistogram();
+        private final LatencyHistogram endToEnd = new LatencyHistogram();
+
+        private LatencyHistogram get(String stage) {
+            switch (stage) {
+                case "transport":
+                    return transport;
+                case "queue":
+                    return queue;
+                case "dispatch":
+                    return dispatch;
+                case "endToEnd":
+                    return endToEnd;
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.alerts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hashed wheel timer that drives any number of timeouts from a single worker thread.
+ * Timeouts are hashed into a fixed ring of buckets by their deadline tick, so scheduling
+ * and cancelling are O(1) and the cost of an idle timeout is one list node instead of a thread.
+ * Tasks run on the worker thread and should therefore be short.
+ */
+public class HashedWheelTimer {
+    private static final Logger LOGGER = Logger.getLogger(HashedWheelTimer.class.getName());
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Object lock = new Object();
+    private final String name;
+
+    private Thread worker;
+    private long startNanos;
+    private long currentTick;
+    private int pending;
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a new timer. The worker thread is started lazily on the first timeout.
+     *
+     * @param tickDuration the duration of one tick, which is the resolution of the timer
+     * @param unit         the unit of {@code tickDuration}
+     * @param ticksPerWheel the number of buckets, rounded up to a power of two
+     * @param name         the name of the worker thread
+     */
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel, String name) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.name = name;
+    }
+
+    /**
+     * Schedules a task to run once after the given delay.
+     *
+     * @param task  the task to run on the timer thread
+     * @param delay the delay before the task runs
+     * @param unit  the unit of {@code delay}
+     * @return a handle that can be used to cancel the task
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        synchronized (lock) {
+            // Checked under the lock that stop takes, so no timeout is added after stop
+            if (stopped) {
+                throw new IllegalStateException("Timer has been stopped");
+            }
+            startIfNeeded();
+            long elapsed = System.nanoTime() - startNanos + unit.toNanos(Math.max(delay, 0));
+            // Round up so a timeout never fires before its delay has passed
+            long deadlineTick = Math.max((elapsed + tickNanos - 1) / tickNanos, currentTick);
+            Timeout timeout = new Timeout(task, deadlineTick);
+            wheel[(int) (deadlineTick & mask)].add(timeout);
+            pending++;
+            return timeout;
+        }
+    }
+
+    /**
+     * Returns the number of timeouts that are scheduled and have neither run nor been cancelled.
+     *
+     * @return the number of pending timeouts
+     */
+    public int pendingTimeouts() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    /**
+     * Stops the worker thread and discards all pending timeouts.
+     */
+    public void stop() {
+        synchronized (lock) {
+            stopped = true;
+            for (Bucket bucket : wheel) {
+                bucket.clear();
+            }
+            pending = 0;
+        }
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private void startIfNeeded() {
+        if (worker == null) {
+            startNanos = System.nanoTime();
+            worker = new Thread(this::run, name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void run() {
+        List<Timeout> expired = new ArrayList<>();
+        while (!stopped) {
+            long deadline = startNanos + (currentTick + 1) * tickNanos;
+            long sleep = deadline - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            synchronized (lock) {
+                wheel[(int) (currentTick & mask)].expire(currentTick, expired);
+                pending -= expired.size();
+                currentTick++;
+            }
+            for (Timeout timeout : expired) {
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Timer task threw an exception", e);
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    /**
+     * A handle to a task scheduled on a {@link HashedWheelTimer}.
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private Timeout prev;
+        private Timeout next;
+        private Bucket bucket;
+        private boolean cancelled;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancels the task. The timeout is unlinked from the wheel straight away, so it
+         * holds on to nothing once this method returns.
+         *
+         * @return {@code true} if the task was still pending
+         */
+        public boolean cancel() {
+            synchronized (lock) {
+                if (bucket == null) {
+                    return false;
+                }
+                bucket.remove(this);
+                pending--;
+                cancelled = true;
+                return true;
+            }
+        }
+
+        public boolean isCancelled() {
+            synchronized (lock) {
+                return cancelled;
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of timeouts, guarded by the timer lock.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void expire(long tick, List<Timeout> expired) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                // Timeouts more than one rotation away stay in the bucket for a later round
+                if (timeout.deadlineTick <= tick) {
+                    remove(timeout);
+                    expired.add(timeout);
+                }
+                timeout = next;
+            }
+        }
+
+        void clear() {
+            while (head != null) {
+                remove(head);
+            }
+        }
+    }
+}
@@ -4,21 +4,37 @@ import com.data_management.PatientRecord;
 import com.data_management.Patient;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class RepeatedAlertDecorator extends AlertDecorator{
+    private static final Logger LOGGER = Logger.getLogger(RepeatedAlertDecorator.class.getName());
+    // One timer thread drives the re-checks of every repeating alert, and only hands them to the pool
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer(100, TimeUnit.MILLISECONDS, 512, "repeated-alert-timer");
+    private static final ExecutorService RECHECKS = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "repeated-alert-recheck");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     private int repeatInterval; // in seconds
     private AlertGenerator alertGenerator;
     private Patient patient;
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private HashedWheelTimer.Timeout timeout;
+    private int nextSequence; // The sequence number of the first record not yet re-checked, guarded by this
+    private boolean stopped;
 
     public RepeatedAlertDecorator(Alert decoratedAlert, int repeatInterval, AlertGenerator alertGenerator, Patient patient){
         super(decoratedAlert);
         this.repeatInterval = repeatInterval;
         this.alertGenerator = alertGenerator;
         this.patient = patient;
+        // The records stored so far were evaluated when the alert was raised
+        this.nextSequence = alertGenerator.getRecordCount(patient);
     }
 
     @Override
@@ -27,25 +43,60 @@ public class RepeatedAlertDecorator extends AlertDecorator{
         scheduleRepeatedAlert();
     }
 
-    private void scheduleRepeatedAlert() {
-        final Runnable alertTask = new Runnable() {
-            @Override
-            public void run() {
-               List<PatientRecord> patientRecords = alertGenerator.getAllRecordsForPatient(patient);
-               for(PatientRecord record: patientRecords){
-                   if(alertGenerator.checkAlert(decoratedAlert, record)) {
-                       decoratedAlert.triggerAlert();
-                       System.out.println("Alert repeating for Patient: "+ getPatientId() +", with Condition: "+ getCondition() + " at Time:"+getTimestamp());
-                   }
-               }
-                System.out.println("Condition stabilized for Patient: "+getPatientId());
+    private synchronized void scheduleRepeatedAlert() {
+        if (!stopped) {
+            // The timer thread only submits the re-check, so a slow one does not delay the other timeouts
+            timeout = TIMER.newTimeout(() -> RECHECKS.execute(this::recheck), repeatInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Re-evaluates only the records that were added since the previous check and schedules the next
+     * one, even if the check fails.
+     */
+    private void recheck() {
+        try {
+            int fromSequence;
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                fromSequence = nextSequence;
+            }
+            List<PatientRecord> patientRecords = alertGenerator.getRecordsFrom(patient, fromSequence);
+            synchronized (this) {
+                nextSequence = fromSequence + patientRecords.size();
             }
-        };
+            boolean repeating = false;
+            for (PatientRecord record : patientRecords) {
+                if (alertGenerator.checkAlert(decoratedAlert, record)) {
+                    repeating = true;
+                    decoratedAlert.triggerAlert();
+                    System.out.println("Alert repeating for Patient: " + getPatientId() + ", with Condition: " + getCondition() + " at Time:" + getTimestamp());
+                }
+            }
+            if (!repeating) {
+                System.out.println("Condition stabilized for Patient: " + getPatientId());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Re-check of a repeating alert failed, it is retried after the interval", e);
+        } finally {
+            scheduleRepeatedAlert();
+        }
+    }
 
-        scheduler.scheduleAtFixedRate(alertTask, repeatInterval, repeatInterval, TimeUnit.SECONDS);
+    /**
+     * Stops repeating this alert. The pending re-check is removed from the shared timer immediately.
+     */
+    public synchronized void stopRepeating() {
+        stopped = true;
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
     }
 
-    public void stopRepeating() {
-        scheduler.shutdown();
+    public synchronized boolean isRepeating() {
+        return timeout != null && !stopped;
     }
 }
@@ -0,0 +1,233 @@
+package com.alerts;
+
+import com.data_management.PatientRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Evaluates patient records against a configurable set of alert rules.
+ * Rules are loaded from a JSON document and compiled into a {@link RuleSet}. Three kinds of
+ * rules are supported:
+ * <ul>
+ *     <li>{@code threshold}: fires when the value compares to {@code value} with {@code operator}
+ *     ({@code <, <=, >, >=})</li>
+ *     <li>{@code range}: fires when the value lies outside {@code [min, max]}</li>
+ *     <li>{@code trend}: fires when the value differs from the previous one of the same record
+ *     type by more than {@code delta}</li>
+ * </ul>
+ * Compound conditions under {@code compound} join several record types of a patient within
+ * {@code toleranceMillis}; each of their {@code signals} is a threshold or range condition.
+ * See {@link WindowedJoin}.
+ * When the rules are loaded from a file they can be reloaded while records are being evaluated;
+ * every evaluation uses the rule set that was current when it started.
+ */
+public class RuleEngine implements AlertStrategy, AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RuleEngine.class.getName());
+    private static final String DEFAULT_RULES = "/alert-rules.json";
+
+    private final Path source;
+    private volatile RuleSet rules;
+    private WatchService watchService;
+
+    private RuleEngine(RuleSet rules, Path source) {
+        this.rules = rules;
+        this.source = source;
+    }
+
+    /**
+     * Creates an engine with the default rules bundled with the application.
+     *
+     * @return the rule engine
+     */
+    public static RuleEngine withDefaultRules() {
+        try (InputStream in = RuleEngine.class.getResourceAsStream(DEFAULT_RULES)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing default rule file " + DEFAULT_RULES);
+            }
+            return fromJson(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates an engine from a JSON rule document.
+     *
+     * @param json the rule document
+     * @return the rule engine
+     */
+    public static RuleEngine fromJson(String json) {
+        return new RuleEngine(RuleSet.compile(json), null);
+    }
+
+    /**
+     * Creates an engine from a rule file. The file can later be re-read with {@link #reload()}
+     * or watched for changes with {@link #watch()}.
+     *
+     * @param path the rule file
+     * @return the rule engine
+     * @throws IOException if the file cannot be read
+     */
+    public static RuleEngine fromFile(Path path) throws IOException {
+        return new RuleEngine(RuleSet.compile(Files.readString(path)), path);
+    }
+
+    /**
+     * Re-reads the rule file. Evaluations already in progress finish with the old rules.
+     * If the new file is invalid the current rules are kept.
+     *
+     * @return {@code true} if the new rules were installed
+     */
+    public boolean reload() {
+        if (source == null) {
+            return false;
+        }
+        try {
+            rules = RuleSet.compile(Files.readString(source));
+            LOGGER.info("Reloaded alert rules from " + source);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Keeping previous alert rules, could not load " + source, e);
+            return false;
+        }
+    }
+
+    /**
+     * Starts a background thread that reloads the rules whenever the rule file changes.
+     *
+     * @throws IOException if the file system cannot be watched
+     */
+    public synchronized void watch() throws IOException {
+        if (source == null || watchService != null) {
+            return;
+        }
+        Path directory = source.toAbsolutePath().getParent();
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        WatchService service = watchService;
+        Thread watcher = new Thread(() -> watchLoop(service), "alert-rule-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchLoop(WatchService service) {
+        Path fileName = source.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    reload();
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The engine was closed
+        }
+    }
+
+    /**
+     * Creates a fresh state for trend rules and compound conditions.
+     *
+     * @return a new state
+     */
+    public RuleState newState() {
+        return new RuleState(rules);
+    }
+
+    /**
+     * Evaluates a record against every rule for its record type.
+     *
+     * @param record the record to evaluate
+     * @param state  the state of the stream the record belongs to
+     * @param alerts receives an alert for every rule that fires
+     * @return the number of rules that were evaluated
+     */
+    public int evaluate(PatientRecord record, RuleState state, Consumer<Alert> alerts) {
+        RuleSet current = rules;
+        if (state.owner != current) {
+            state.reset(current);
+        }
+        RuleSet.TypeRules table = current.rulesFor(record.getRecordType());
+        double val = record.getMeasurementValue();
+        for (int i = 0; i < table.size(); i++) {
+            if (table.ops[i] == RuleSet.TREND) {
+                int slot = table.slots[i];
+                double previous = state.previous[slot];
+                state.previous[slot] = val;
+                if (Double.isNaN(previous) || Math.abs(val - previous) <= table.first[i]) {
+                    continue;
+                }
+            } else if (!RuleSet.matches(table.ops[i], table.first[i], table.second[i], val)) {
+                continue;
+            }
+            alerts.accept(table.factory.createAlert(String.valueOf(record.getPatientId()), table.conditions[i], record.getTimestamp()));
+        }
+        for (int j = 0; j < table.joins.length; j++) {
+            WindowedJoin join = table.joins[j];
+            join.accept(table.joinSignals[j], record, state.joins[join.index], alerts);
+        }
+        return table.size() + table.joins.length;
+    }
+
+    /**
+     * Checks a single record against the rules that do not depend on earlier records.
+     *
+     * @param record the record to check
+     * @return an alert for the first rule that fires, or {@code null} if none does
+     */
+    @Override
+    public Alert checkAlert(PatientRecord record) {
+        RuleSet.TypeRules table = rules.rulesFor(record.getRecordType());
+        double val = record.getMeasurementValue();
+        for (int i = 0; i < table.size(); i++) {
+            if (table.ops[i] != RuleSet.TREND && RuleSet.matches(table.ops[i], table.first[i], table.second[i], val)) {
+                return table.factory.createAlert(String.valueOf(record.getPatientId()), table.conditions[i], record.getTimestamp());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of rules currently installed.
+     *
+     * @return the number of rules
+     */
+    public int ruleCount() {
+        return rules.ruleCount();
+    }
+
+    /**
+     * Stops watching the rule file.
+     */
+    @Override
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close rule watcher", e);
+            }
+            watchService = null;
+        }
+    }
+}
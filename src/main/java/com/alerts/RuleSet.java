@@ -0,0 +1,299 @@
+package com.alerts;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable, compiled set of alert rules.
+ * Rules are grouped into one dispatch table per record type, and every table stores its
+ * rules as parallel primitive arrays, so evaluating a record is a single map lookup
+ * followed by a loop of plain double comparisons. Compound conditions are compiled into
+ * {@link WindowedJoin}s and listed in the table of every record type they join.
+ */
+final class RuleSet {
+    static final byte LESS = 0;
+    static final byte LESS_OR_EQUAL = 1;
+    static final byte GREATER = 2;
+    static final byte GREATER_OR_EQUAL = 3;
+    static final byte OUTSIDE_RANGE = 4;
+    static final byte TREND = 5;
+
+    private static final int DEFAULT_JOIN_CAPACITY = 32;
+
+    static final TypeRules NO_RULES = new TypeRules(new AlertFactory() {
+        @Override
+        public Alert createAlert(String patientId, String condition, long timestamp) {
+            return new Alert(patientId, condition, timestamp);
+        }
+    }, new ArrayList<>());
+
+    private final Map<String, TypeRules> byType;
+    // Record types arrive in whatever case the source used, so resolved lookups are cached by the raw string
+    private final ConcurrentHashMap<String, TypeRules> resolved = new ConcurrentHashMap<>();
+    private final WindowedJoin[] joins;
+    private final int trendSlots;
+    private final int ruleCount;
+
+    private RuleSet(Map<String, TypeRules> byType, WindowedJoin[] joins, int trendSlots, int ruleCount) {
+        this.byType = byType;
+        this.joins = joins;
+        this.trendSlots = trendSlots;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * Parses and compiles a JSON rule document of the form
+     * {@code {"rules": [ ... ], "compound": [ ... ]}}, where {@code compound} is optional.
+     *
+     * @param json the rule document
+     * @return the compiled rules
+     * @throws IllegalArgumentException if the document or one of its rules is invalid
+     */
+    static RuleSet compile(String json) {
+        JSONArray rules;
+        JSONArray compound;
+        try {
+            JSONObject document = new JSONObject(json);
+            rules = document.getJSONArray("rules");
+            compound = document.optJSONArray("compound");
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Invalid rule document: " + e.getMessage(), e);
+        }
+
+        Map<String, List<JSONObject>> grouped = new HashMap<>();
+        for (int i = 0; i < rules.length(); i++) {
+            JSONObject rule = rules.getJSONObject(i);
+            grouped.computeIfAbsent(recordType(rule, "Rule " + i), k -> new ArrayList<>()).add(rule);
+        }
+        WindowedJoin[] joins = new WindowedJoin[compound == null ? 0 : compound.length()];
+        for (int i = 0; i < joins.length; i++) {
+            joins[i] = compileJoin(i, compound.getJSONObject(i));
+            for (String recordType : joins[i].recordTypes()) {
+                grouped.computeIfAbsent(recordType, k -> new ArrayList<>());
+            }
+        }
+
+        Map<String, TypeRules> byType = new HashMap<>();
+        int trendSlots = 0;
+        for (Map.Entry<String, List<JSONObject>> entry : grouped.entrySet()) {
+            TypeRules table = new TypeRules(factoryFor(entry.getKey()), entry.getValue());
+            for (int i = 0; i < table.size(); i++) {
+                if (table.ops[i] == TREND) {
+                    table.slots[i] = trendSlots++;
+                }
+            }
+            table.attachJoins(entry.getKey(), joins);
+            byType.put(entry.getKey(), table);
+        }
+        return new RuleSet(byType, joins, trendSlots, rules.length() + joins.length);
+    }
+
+    /**
+     * Returns the dispatch table for a record type, or an empty table if no rule targets it.
+     *
+     * @param recordType the record type, in any case
+     * @return the rules for that record type
+     */
+    TypeRules rulesFor(String recordType) {
+        TypeRules rules = resolved.get(recordType);
+        if (rules == null) {
+            rules = byType.getOrDefault(recordType.toLowerCase(Locale.ROOT), NO_RULES);
+            resolved.put(recordType, rules);
+        }
+        return rules;
+    }
+
+    WindowedJoin[] joins() {
+        return joins;
+    }
+
+    int trendSlots() {
+        return trendSlots;
+    }
+
+    int ruleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * Applies a compiled comparison to a value.
+     *
+     * @param op     the comparison
+     * @param first  the threshold, or the lower bound of a range
+     * @param second the upper bound of a range
+     * @param val    the value to test
+     * @return {@code true} if the value meets the condition
+     */
+    static boolean matches(byte op, double first, double second, double val) {
+        switch (op) {
+            case LESS:
+                return val < first;
+            case LESS_OR_EQUAL:
+                return val <= first;
+            case GREATER:
+                return val > first;
+            case GREATER_OR_EQUAL:
+                return val >= first;
+            case OUTSIDE_RANGE:
+                return val < first || val > second;
+            default:
+                return false;
+        }
+    }
+
+    private static String recordType(JSONObject rule, String description) {
+        String recordType = rule.optString("recordType", null);
+        if (recordType == null) {
+            throw new IllegalArgumentException(description + " has no recordType");
+        }
+        return recordType.toLowerCase(Locale.ROOT);
+    }
+
+    private static WindowedJoin compileJoin(int index, JSONObject definition) {
+        String condition = definition.optString("condition", "Compound condition " + index);
+        try {
+            JSONArray signals = definition.getJSONArray("signals");
+            int n = signals.length();
+            String[] recordTypes = new String[n];
+            byte[] ops = new byte[n];
+            double[] first = new double[n];
+            double[] second = new double[n];
+            for (int i = 0; i < n; i++) {
+                JSONObject signal = signals.getJSONObject(i);
+                recordTypes[i] = recordType(signal, "Signal " + i + " of '" + condition + "'");
+                double[] bounds = new double[2];
+                ops[i] = comparison(signal, bounds);
+                first[i] = bounds[0];
+                second[i] = bounds[1];
+            }
+            return new WindowedJoin(index, condition, recordTypes, ops, first, second,
+                    definition.getLong("toleranceMillis"), definition.optInt("maxBuffered", DEFAULT_JOIN_CAPACITY));
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Invalid compound condition '" + condition + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compiles a threshold or range comparison.
+     *
+     * @param rule   the rule or signal definition
+     * @param bounds receives the threshold or the range bounds
+     * @return the compiled comparison
+     */
+    private static byte comparison(JSONObject rule, double[] bounds) {
+        String kind = rule.optString("type", "threshold");
+        switch (kind) {
+            case "threshold":
+                bounds[0] = rule.getDouble("value");
+                return operator(rule.getString("operator"));
+            case "range":
+                bounds[0] = rule.getDouble("min");
+                bounds[1] = rule.getDouble("max");
+                return OUTSIDE_RANGE;
+            default:
+                throw new IllegalArgumentException("Unknown rule type '" + kind + "'");
+        }
+    }
+
+    private static byte operator(String operator) {
+        switch (operator) {
+            case "<":
+                return LESS;
+            case "<=":
+                return LESS_OR_EQUAL;
+            case ">":
+                return GREATER;
+            case ">=":
+                return GREATER_OR_EQUAL;
+            default:
+                throw new IllegalArgumentException("Unknown operator '" + operator + "'");
+        }
+    }
+
+    private static AlertFactory factoryFor(String recordType) {
+        switch (recordType) {
+            case "systolicpressure":
+            case "diastolicpressure":
+                return new BloodPressureAlertFactory();
+            case "saturation":
+                return new BloodOxygenAlertFactory();
+            case "ecg":
+                return new ECGAlertFactory();
+            default:
+                return NO_RULES.factory;
+        }
+    }
+
+    /**
+     * The compiled rules for a single record type.
+     */
+    static final class TypeRules {
+        final AlertFactory factory;
+        final byte[] ops;
+        final double[] first;
+        final double[] second;
+        final int[] slots;
+        final String[] conditions;
+        WindowedJoin[] joins = new WindowedJoin[0];
+        int[] joinSignals = new int[0];
+
+        TypeRules(AlertFactory factory, List<JSONObject> rules) {
+            int n = rules.size();
+            this.factory = factory;
+            this.ops = new byte[n];
+            this.first = new double[n];
+            this.second = new double[n];
+            this.slots = new int[n];
+            this.conditions = new String[n];
+            for (int i = 0; i < n; i++) {
+                compileRule(i, rules.get(i));
+            }
+        }
+
+        int size() {
+            return ops.length;
+        }
+
+        private void compileRule(int i, JSONObject rule) {
+            String kind = rule.optString("type", "threshold");
+            conditions[i] = rule.optString("condition", rule.getString("recordType") + " " + kind);
+            try {
+                if (kind.equals("trend")) {
+                    ops[i] = TREND;
+                    first[i] = rule.getDouble("delta");
+                } else {
+                    double[] bounds = new double[2];
+                    ops[i] = comparison(rule, bounds);
+                    first[i] = bounds[0];
+                    second[i] = bounds[1];
+                }
+            } catch (JSONException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid rule '" + conditions[i] + "': " + e.getMessage(), e);
+            }
+        }
+
+        private void attachJoins(String recordType, WindowedJoin[] all) {
+            List<WindowedJoin> matching = new ArrayList<>();
+            List<Integer> signals = new ArrayList<>();
+            for (WindowedJoin join : all) {
+                String[] types = join.recordTypes();
+                for (int signal = 0; signal < types.length; signal++) {
+                    if (types[signal].equals(recordType)) {
+                        matching.add(join);
+                        signals.add(signal);
+                    }
+                }
+            }
+            joins = matching.toArray(new WindowedJoin[0]);
+            joinSignals = signals.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.alerts;
+
+import java.util.Arrays;
+
+/**
+ * Holds the state that rules need between records: the previous value seen by every
+ * trend rule and the windows of the compound conditions. One state is kept per stream of
+ * records that should be compared with each other, typically one per patient.
+ * A state is not thread safe and is reset automatically when the rules are reloaded.
+ */
+public final class RuleState {
+    RuleSet owner;
+    double[] previous;
+    WindowedJoin.Buffers[] joins;
+
+    RuleState(RuleSet owner) {
+        reset(owner);
+    }
+
+    void reset(RuleSet rules) {
+        this.owner = rules;
+        this.previous = new double[rules.trendSlots()];
+        Arrays.fill(previous, Double.NaN);
+        WindowedJoin[] compound = rules.joins();
+        this.joins = new WindowedJoin.Buffers[compound.length];
+        for (int i = 0; i < compound.length; i++) {
+            joins[i] = compound[i].newBuffers();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.alerts;
+
+import com.data_management.PatientRecord;
+
+import java.util.function.Consumer;
+
+/**
+ * A streaming join that correlates two or more record types of the same patient.
+ * Each record type (a signal) has its own condition, and the compound alert fires when a
+ * record meets its signal's condition and the reading of every other signal that lies
+ * closest in time to it, within the tolerance window, meets its condition too.
+ * <p>
+ * The join is fed one record at a time and keeps only a bounded number of recent
+ * readings per signal, so devices do not have to sample at exactly the same millisecond
+ * and no history has to be sorted or re-scanned.
+ */
+public final class WindowedJoin {
+    private final String condition;
+    private final String[] recordTypes;
+    private final byte[] ops;
+    private final double[] first;
+    private final double[] second;
+    private final long toleranceMillis;
+    private final int capacity;
+    final int index;
+
+    WindowedJoin(int index, String condition, String[] recordTypes, byte[] ops, double[] first, double[] second,
+                 long toleranceMillis, int capacity) {
+        if (recordTypes.length < 2) {
+            throw new IllegalArgumentException("Compound condition '" + condition + "' needs at least two signals");
+        }
+        if (toleranceMillis < 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Invalid window for compound condition '" + condition + "'");
+        }
+        this.index = index;
+        this.condition = condition;
+        this.recordTypes = recordTypes;
+        this.ops = ops;
+        this.first = first;
+        this.second = second;
+        this.toleranceMillis = toleranceMillis;
+        this.capacity = capacity;
+    }
+
+    String condition() {
+        return condition;
+    }
+
+    String[] recordTypes() {
+        return recordTypes;
+    }
+
+    Buffers newBuffers() {
+        return new Buffers(recordTypes.length, capacity);
+    }
+
+    /**
+     * Adds a record of one signal to the window and emits the compound alert if it completes a match.
+     *
+     * @param signal  the index of the record's signal
+     * @param record  the record
+     * @param buffers the per-patient window state
+     * @param alerts  receives the compound alert
+     */
+    void accept(int signal, PatientRecord record, Buffers buffers, Consumer<Alert> alerts) {
+        long timestamp = record.getTimestamp();
+        boolean matched = RuleSet.matches(ops[signal], first[signal], second[signal], record.getMeasurementValue());
+        buffers.add(signal, timestamp, matched);
+        buffers.evictBefore(buffers.latest - toleranceMillis);
+        if (!matched) {
+            return;
+        }
+        for (int other = 0; other < recordTypes.length; other++) {
+            if (other != signal && !buffers.nearestMatches(other, timestamp, toleranceMillis)) {
+                return;
+            }
+        }
+        alerts.accept(new Alert(String.valueOf(record.getPatientId()), condition, timestamp));
+    }
+
+    /**
+     * The readings of one patient that are still inside the window, kept as one ring buffer per signal.
+     */
+    static final class Buffers {
+        private final int capacity;
+        private final long[] times;
+        private final boolean[] matched;
+        private final int[] start;
+        private final int[] size;
+        private long latest = Long.MIN_VALUE;
+
+        Buffers(int signals, int capacity) {
+            this.capacity = capacity;
+            this.times = new long[signals * capacity];
+            this.matched = new boolean[signals * capacity];
+            this.start = new int[signals];
+            this.size = new int[signals];
+        }
+
+        void add(int signal, long timestamp, boolean match) {
+            int base = signal * capacity;
+            int slot;
+            if (size[signal] == capacity) {
+                // Full: overwrite the oldest reading
+                slot = start[signal];
+                start[signal] = (start[signal] + 1) % capacity;
+            } else {
+                slot = (start[signal] + size[signal]) % capacity;
+                size[signal]++;
+            }
+            times[base + slot] = timestamp;
+            matched[base + slot] = match;
+            latest = Math.max(latest, timestamp);
+        }
+
+        void evictBefore(long watermark) {
+            for (int signal = 0; signal < start.length; signal++) {
+                int base = signal * capacity;
+                while (size[signal] > 0 && times[base + start[signal]] < watermark) {
+                    start[signal] = (start[signal] + 1) % capacity;
+                    size[signal]--;
+                }
+            }
+        }
+
+        boolean nearestMatches(int signal, long timestamp, long tolerance) {
+            int base = signal * capacity;
+            long bestDistance = Long.MAX_VALUE;
+            boolean bestMatched = false;
+            for (int i = 0; i < size[signal]; i++) {
+                int slot = base + (start[signal] + i) % capacity;
+                long distance = Math.abs(times[slot] - timestamp);
+                // On ties the reading that arrived last wins
+                if (distance <= bestDistance) {
+                    bestDistance = distance;
+                    bestMatched = matched[slot];
+                }
+            }
+            return bestDistance <= tolerance && bestMatched;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.cardio_generator;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A wall clock for hot paths, which reads the system time once per resolution period instead of on
+ * every call. A daemon thread refreshes a volatile field, so reading the clock is a single volatile
+ * read and every thread sees the latest refresh. The time can lag the system clock by up to the
+ * resolution, and never goes backwards, even if the system clock does.
+ * <p>
+ * Everything that timestamps data takes a {@link Clock}, so the same code runs on this clock, on
+ * {@link Clock#systemUTC()} where every millisecond counts, or on a {@link SimulatedClock} in
+ * simulated time. {@link #getInstance()} returns the clock shared by the whole process.
+ */
+public class CachedClock extends Clock implements AutoCloseable {
+    /**
+     * The resolution of the shared clock, in milliseconds. Generators stamp readings once per tick
+     * of 100 ms, so 10 ms is precise enough, and refreshing ten times less often than every
+     * millisecond saves nearly all of the refresher's wakeups; see {@code benchmarks.ClockBenchmark}.
+     */
+    public static final long DEFAULT_RESOLUTION_MILLIS = 10;
+
+    private static CachedClock instance;
+
+    private final long resolutionNanos;
+    private Thread refresher; // Set by start before the clock is returned
+    private volatile long millis;
+    private volatile boolean closed;
+
+    private CachedClock(long resolutionMillis) {
+        this.resolutionNanos = resolutionMillis * 1_000_000;
+        this.millis = System.currentTimeMillis();
+    }
+
+    /**
+     * Constructs a clock and starts refreshing it.
+     *
+     * @param resolutionMillis how often the time is refreshed, in milliseconds
+     * @return the clock
+     */
+    public static CachedClock start(long resolutionMillis) {
+        if (resolutionMillis <= 0) {
+            throw new IllegalArgumentException("The resolution must be positive");
+        }
+        CachedClock clock = new CachedClock(resolutionMillis);
+        clock.refresher = new Thread(clock::refresh, "cached-clock");
+        clock.refresher.setDaemon(true);
+        clock.refresher.start();
+        return clock;
+    }
+
+    /**
+     * Returns the clock shared by all generators and readers, with a resolution of
+     * {@link #DEFAULT_RESOLUTION_MILLIS}. It is never closed.
+     *
+     * @return the shared clock
+     */
+    public static synchronized CachedClock getInstance() {
+        if (instance == null) {
+            instance = start(DEFAULT_RESOLUTION_MILLIS);
+        }
+        return instance;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(ZoneOffset.UTC) ? this : new ZonedClock(this, zone);
+    }
+
+    /**
+     * Stops refreshing the clock. The time stands still from then on.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(refresher);
+    }
+
+    private void refresh() {
+        while (!closed) {
+            LockSupport.parkNanos(this, resolutionNanos);
+            long now = System.currentTimeMillis();
+            if (now > millis) {
+                millis = now;
+            }
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.cardio_generator;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import com.cardio_generator.generators.AlertGenerator;
@@ -10,6 +9,11 @@ import com.cardio_generator.generators.BloodPressureDataGenerator;
 import com.cardio_generator.generators.BloodSaturationDataGenerator;
 import com.cardio_generator.generators.BloodLevelsDataGenerator;
 import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.HighRateECGDataGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.Scenario;
+import com.cardio_generator.outputs.BinaryOutputStrategy;
+import com.cardio_generator.outputs.CompositeOutputStrategy;
 import com.cardio_generator.outputs.ConsoleOutputStrategy;
 import com.cardio_generator.outputs.FileOutputStrategy;
 import com.cardio_generator.outputs.OutputStrategy;
@@ -19,21 +23,51 @@ import com.cardio_generator.outputs.WebSocketOutputStrategy;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * The type Health data simulator.
+ * <p>
+ * Patients 1 to the patient count are admitted at startup. More can be admitted, and any can be
+ * discharged, while the simulator runs, with {@link #admitPatient(int)} and
+ * {@link #dischargePatient(int)} or through JMX as {@value #OBJECT_NAME}.
  */
-public class HealthDataSimulator {
+public class HealthDataSimulator implements SimulatorMXBean {
+    /**
+     * The name the simulator is registered under with the platform MBean server.
+     */
+    public static final String OBJECT_NAME = "com.cardio_generator:type=Simulator";
 
+    private static final long TICK_MILLIS = 100; // Resolution of the generator schedule
     private static int patientCount = 50; // Default number of patients
-    private static ScheduledExecutorService scheduler;
-    private static OutputStrategy outputStrategy = new ConsoleOutputStrategy(); // Default output strategy
-    private static final Random random = new Random();
+    private static TickScheduler scheduler;
+    private static OutputStrategy outputStrategy; // Console unless set by --output
+    private static final List<OutputStrategy> outputs = new ArrayList<>(); // One per --output, besides the file output
+    private static Clock clock = CachedClock.getInstance(); // Unless set by --speed, --start or --duration
+    private static double speed = 1; // Times faster than real time
+    private static boolean simulatedTime; // Set by --speed, --start and --duration
+    private static Instant startTime;
+    private static Duration duration;
+    private static Long seed; // Set by --seed, otherwise random
+    private static String fileOutputDirectory; // Set by --output file:<directory>
+    private static long segmentBytes; // 0 keeps a single file per label
+    private static long segmentMillis;
+    private static double ecgRateHz; // Set by --ecg-rate, 0 keeps one ECG value per second
+    private static String replayDirectory; // Set by --replay, replaces the generators
+    private static String scenarioFile; // Set by --scenario
+    private static boolean virtualThreads; // Set by --virtual-threads
     private static HealthDataSimulator instance; // Singleton instance
 
     private HealthDataSimulator() {};
@@ -54,12 +88,165 @@ public class HealthDataSimulator {
 
         parseArguments(args);
 
-        scheduler = Executors.newScheduledThreadPool(patientCount * 4);
+        if (replayDirectory != null) {
+            replay();
+            return;
+        }
+
+        if (simulatedTime) {
+            SimulatedClock simulatedClock = new SimulatedClock(
+                    startTime != null ? startTime.toEpochMilli() : clock.millis());
+            clock = simulatedClock;
+            scheduler = new TickScheduler(TICK_MILLIS, Runtime.getRuntime().availableProcessors(),
+                    TickScheduler.DEFAULT_BATCH_SIZE, simulatedClock, speed, virtualThreads);
+            if (duration != null) {
+                scheduler.setEndMillis(simulatedClock.millis() + duration.toMillis());
+            }
+        } else {
+            scheduler = new TickScheduler(TICK_MILLIS, Runtime.getRuntime().availableProcessors(),
+                    TickScheduler.DEFAULT_BATCH_SIZE, null, 1, virtualThreads);
+        }
+
+        if (seed == null) {
+            seed = new SplittableRandom().nextLong();
+            System.err.println("Simulation seed: " + seed + " (pass --seed " + seed + " to repeat this run)");
+        }
+        SplittableRandom seeds = new SplittableRandom(seed);
 
         List<Integer> patientIds = initializePatientIds(patientCount);
-        Collections.shuffle(patientIds); // Randomize the order of patient IDs
+        // Randomize the order of patient IDs, which also randomizes their phase
+        Collections.shuffle(patientIds, new Random(seeds.nextLong()));
+
+        scheduleTasksForPatients(patientIds, seeds);
+        Runtime.getRuntime().addShutdownHook(new Thread(HealthDataSimulator::shutdown, "simulator-shutdown"));
+        scheduler.start();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(getInstance(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Error registering the simulator with JMX, patients cannot be admitted: " + e.getMessage());
+        }
+
+        if (duration != null) {
+            try {
+                scheduler.awaitTermination();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Admits a patient: every generator starts keeping state for them and generates their data
+     * from the next tick on. Patient IDs do not need to be consecutive.
+     *
+     * @param patientId the patient id, which can be any int
+     * @return false if the patient was already admitted
+     * @throws IllegalStateException if the simulator is not running
+     */
+    @Override
+    public boolean admitPatient(int patientId) {
+        boolean admitted = running().admit(patientId);
+        if (admitted) {
+            System.out.println("Admitted patient " + patientId);
+        }
+        return admitted;
+    }
+
+    /**
+     * Discharges a patient: no data is generated for them from the next tick on, and the
+     * generators drop their state.
+     *
+     * @param patientId the patient id
+     * @return false if the patient was not admitted
+     * @throws IllegalStateException if the simulator is not running
+     */
+    @Override
+    public boolean dischargePatient(int patientId) {
+        boolean discharged = running().discharge(patientId);
+        if (discharged) {
+            System.out.println("Discharged patient " + patientId);
+        }
+        return discharged;
+    }
 
-        scheduleTasksForPatients(patientIds);
+    @Override
+    public int getPatientCount() {
+        return running().getPatientIds().length;
+    }
+
+    @Override
+    public int[] getPatientIds() {
+        return running().getPatientIds();
+    }
+
+    private static TickScheduler running() {
+        if (scheduler == null) {
+            throw new IllegalStateException("The simulator is not running");
+        }
+        return scheduler;
+    }
+
+    /**
+     * Streams a recording back through the output instead of generating data, at the pace set by
+     * --speed, and exits when it is done.
+     */
+    private static void replay() {
+        Replayer replayer;
+        try {
+            replayer = Replayer.open(Paths.get(replayDirectory));
+        } catch (IOException e) {
+            System.err.println("Error opening the recording in " + replayDirectory + ": " + e.getMessage());
+            outputStrategy.close();
+            System.exit(1);
+            return;
+        }
+        System.out.println("Replaying " + replayer.getFileCount() + " files from " + replayDirectory + " at "
+                + (speed == Double.POSITIVE_INFINITY ? "maximum speed" : speed + "x speed"));
+        CountDownLatch done = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // Let the replay stop and close the output before the JVM exits
+            replayer.stop();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "replay-shutdown"));
+
+        int status = 0;
+        long startNanos = System.nanoTime();
+        try {
+            long count = replayer.replay(outputStrategy, speed);
+            System.out.printf("Replayed %d samples in %.1f s%n", count, (System.nanoTime() - startNanos) / 1e9);
+            if (replayer.getSkippedLines() > 0) {
+                System.err.println("Skipped " + replayer.getSkippedLines() + " lines that were not samples");
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error replaying " + replayDirectory + ": " + e.getMessage());
+            status = 1;
+        } finally {
+            try {
+                replayer.close();
+            } catch (IOException e) {
+                System.err.println("Error closing the recording: " + e.getMessage());
+            }
+            outputStrategy.close();
+            done.countDown();
+        }
+        System.exit(status);
+    }
+
+    /**
+     * Stops generating data and closes the output, so that buffered data is not lost on exit.
+     */
+    private static void shutdown() {
+        try {
+            scheduler.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        outputStrategy.close();
     }
 
     private static void parseArguments(String[] args) throws IOException {
@@ -83,19 +270,22 @@ public class HealthDataSimulator {
                     if (i + 1 < args.length) {
                         String outputArg = args[++i];
                         if (outputArg.equals("console")) {
-                            outputStrategy = new ConsoleOutputStrategy();
+                            outputs.add(new ConsoleOutputStrategy());
                         } else if (outputArg.startsWith("file:")) {
                             String baseDirectory = outputArg.substring(5);
                             Path outputPath = Paths.get(baseDirectory);
                             if (!Files.exists(outputPath)) {
                                 Files.createDirectories(outputPath);
                             }
-                            outputStrategy = new FileOutputStrategy(baseDirectory);
+                            // Created once all options are known, since the segment options may follow
+                            fileOutputDirectory = baseDirectory;
+                        } else if (outputArg.startsWith("binary:")) {
+                            outputs.add(new BinaryOutputStrategy(outputArg.substring(7)));
                         } else if (outputArg.startsWith("websocket:")) {
                             try {
                                 int port = Integer.parseInt(outputArg.substring(10));
                                 // Initialize your WebSocket output strategy here
-                                outputStrategy = new WebSocketOutputStrategy(port);
+                                outputs.add(new WebSocketOutputStrategy(port));
                                 System.out.println("WebSocket output will be on port: " + port);
                             } catch (NumberFormatException e) {
                                 System.err.println(
@@ -105,7 +295,7 @@ public class HealthDataSimulator {
                             try {
                                 int port = Integer.parseInt(outputArg.substring(4));
                                 // Initialize your TCP socket output strategy here
-                                outputStrategy = new TcpOutputStrategy(port);
+                                outputs.add(TcpOutputStrategy.open(port));
                                 System.out.println("TCP socket output will be on port: " + port);
                             } catch (NumberFormatException e) {
                                 System.err.println("Invalid port for TCP output. Please specify a valid port number.");
@@ -115,12 +305,113 @@ public class HealthDataSimulator {
                         }
                     }
                     break;
+                case "--speed":
+                    if (i + 1 < args.length) {
+                        String speedArg = args[++i];
+                        try {
+                            speed = speedArg.equals("max") ? Double.POSITIVE_INFINITY : Double.parseDouble(speedArg);
+                            if (!(speed > 0)) {
+                                throw new NumberFormatException();
+                            }
+                            simulatedTime = true;
+                        } catch (NumberFormatException e) {
+                            speed = 1;
+                            System.err.println("Error: Invalid speed. Running in real time.");
+                        }
+                    }
+                    break;
+                case "--start":
+                    if (i + 1 < args.length) {
+                        try {
+                            startTime = Instant.parse(args[++i]);
+                            simulatedTime = true;
+                        } catch (DateTimeException e) {
+                            System.err.println("Error: Invalid start time. Starting at the current time.");
+                        }
+                    }
+                    break;
+                case "--segment-size":
+                    if (i + 1 < args.length) {
+                        try {
+                            segmentBytes = Long.parseLong(args[++i]) * 1024 * 1024;
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid segment size. Segments are not limited in size.");
+                        }
+                    }
+                    break;
+                case "--segment-duration":
+                    if (i + 1 < args.length) {
+                        try {
+                            segmentMillis = Duration.parse(args[++i]).toMillis();
+                        } catch (DateTimeException e) {
+                            System.err.println("Error: Invalid segment duration. Segments are not limited in time.");
+                        }
+                    }
+                    break;
+                case "--ecg-rate":
+                    if (i + 1 < args.length) {
+                        try {
+                            ecgRateHz = Double.parseDouble(args[++i]);
+                            if (!(ecgRateHz > 0) || ecgRateHz > 10_000) {
+                                throw new NumberFormatException();
+                            }
+                        } catch (NumberFormatException e) {
+                            ecgRateHz = 0;
+                            System.err.println("Error: Invalid ECG sample rate. Generating one ECG value per second.");
+                        }
+                    }
+                    break;
+                case "--replay":
+                    if (i + 1 < args.length) {
+                        replayDirectory = args[++i];
+                    }
+                    break;
+                case "--virtual-threads":
+                    virtualThreads = true;
+                    break;
+                case "--scenario":
+                    if (i + 1 < args.length) {
+                        scenarioFile = args[++i];
+                    }
+                    break;
+                case "--seed":
+                    if (i + 1 < args.length) {
+                        try {
+                            seed = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            System.err.println("Error: Invalid seed. Using a random seed.");
+                        }
+                    }
+                    break;
+                case "--duration":
+                    if (i + 1 < args.length) {
+                        try {
+                            duration = Duration.parse(args[++i]);
+                            simulatedTime = true;
+                        } catch (DateTimeException e) {
+                            System.err.println("Error: Invalid duration. Running until stopped.");
+                        }
+                    }
+                    break;
                 default:
                     System.err.println("Unknown option '" + args[i] + "'");
                     printHelp();
                     System.exit(1);
             }
         }
+        if (fileOutputDirectory != null) {
+            boolean segmented = segmentBytes > 0 || segmentMillis > 0;
+            outputs.add(new FileOutputStrategy(fileOutputDirectory, FileOutputStrategy.DEFAULT_BUFFER_SIZE,
+                    FileOutputStrategy.DEFAULT_FLUSH_INTERVAL_MILLIS, segmentBytes, segmentMillis, segmented));
+        }
+        if (outputs.isEmpty()) {
+            outputStrategy = new ConsoleOutputStrategy();
+        } else if (outputs.size() == 1) {
+            outputStrategy = outputs.get(0);
+        } else {
+            // Each output gets its own queue and thread, so a slow output does not hold back the others
+            outputStrategy = new CompositeOutputStrategy(outputs);
+        }
     }
 
     private static void printHelp() {
@@ -132,12 +423,38 @@ public class HealthDataSimulator {
         System.out.println("  --output <type>          Define the output method. Options are:");
         System.out.println("                             'console' for console output,");
         System.out.println("                             'file:<directory>' for file output,");
+        System.out.println("                             'binary:<directory>' for compact binary file output,");
         System.out.println("                             'websocket:<port>' for WebSocket output,");
         System.out.println("                             'tcp:<port>' for TCP socket output.");
+        System.out.println("                           Repeat to write to several outputs at once.");
+        System.out.println("  --segment-size <MB>      Split file output into segments of at most <MB> megabytes.");
+        System.out.println("  --segment-duration <d>   Split file output into segments covering an ISO-8601 duration");
+        System.out.println("                           of samples, e.g. PT1H. Closed segments are compressed.");
+        System.out.println("  --speed <factor|max>     Run in simulated time, <factor> times faster than real time");
+        System.out.println("                           or as fast as possible with 'max' (default: real time).");
+        System.out.println("  --start <instant>        Start the simulated time at an ISO-8601 instant, e.g.");
+        System.out.println("                           2024-01-01T00:00:00Z (default: now).");
+        System.out.println("  --duration <duration>    Stop after an ISO-8601 duration of simulated time, e.g. P30D.");
+        System.out.println("  --ecg-rate <Hz>          Generate an ECG waveform with <Hz> samples per second, e.g. 250");
+        System.out.println("                           (default: one ECG value per second).");
+        System.out.println("  --replay <directory>     Replay the data recorded by a file or binary output in");
+        System.out.println("                           <directory> in timestamp order instead of generating data,");
+        System.out.println("                           at the pace set by --speed (default: real time).");
+        System.out.println("  --virtual-threads        Generate data on virtual threads instead of a thread per core.");
+        System.out.println("  --scenario <file>        Inject the deteriorations scheduled in a JSON scenario file,");
+        System.out.println("                           e.g. a hypotension ramp or a mass-casualty burst.");
+        System.out.println("  --seed <seed>            Seed the random data, so that a run with the same seed and");
+        System.out.println("                           options produces the same data (default: random).");
         System.out.println("Example:");
         System.out.println("  java HealthDataSimulator --patient-count 100 --output websocket:8080");
         System.out.println(
                 "  This command simulates data for 100 patients and sends the output to WebSocket clients connected to port 8080.");
+        System.out.println("  java HealthDataSimulator --speed max --start 2024-01-01T00:00:00Z --duration P30D --output file:data");
+        System.out.println(
+                "  This command generates 30 days of data starting on 1 January 2024 as fast as possible.");
+        System.out.println("  java HealthDataSimulator --replay data --speed 60 --output websocket:8080");
+        System.out.println(
+                "  This command replays the data in 'data' 60 times faster than it was recorded to WebSocket clients.");
     }
 
     private static List<Integer> initializePatientIds(int patientCount) {
@@ -148,23 +465,51 @@ public class HealthDataSimulator {
         return patientIds;
     }
 
-    private static void scheduleTasksForPatients(List<Integer> patientIds) {
-        ECGDataGenerator ecgDataGenerator = new ECGDataGenerator(patientCount);
-        BloodSaturationDataGenerator bloodSaturationDataGenerator = new BloodSaturationDataGenerator(patientCount);
-        BloodPressureDataGenerator bloodPressureDataGenerator = new BloodPressureDataGenerator(patientCount);
-        BloodLevelsDataGenerator bloodLevelsDataGenerator = new BloodLevelsDataGenerator(patientCount);
-        AlertGenerator alertGenerator = new AlertGenerator(patientCount);
+    private static void scheduleTasksForPatients(List<Integer> patientIds, SplittableRandom seeds) {
+        long ecgSeed = seeds.nextLong();
+        BloodSaturationDataGenerator bloodSaturationDataGenerator =
+                new BloodSaturationDataGenerator(patientCount, clock, seeds.nextLong());
+        BloodPressureDataGenerator bloodPressureDataGenerator =
+                new BloodPressureDataGenerator(patientCount, clock, seeds.nextLong());
+        BloodLevelsDataGenerator bloodLevelsDataGenerator =
+                new BloodLevelsDataGenerator(patientCount, clock, seeds.nextLong());
+        AlertGenerator alertGenerator = new AlertGenerator(patientCount, clock, seeds.nextLong());
+        PatientDataGenerator ecgDataGenerator = ecgRateHz > 0
+                ? new HighRateECGDataGenerator(patientCount, clock, ecgSeed, ecgRateHz)
+                : new ECGDataGenerator(patientCount, clock, ecgSeed);
+
+        if (scenarioFile != null) {
+            Scenario scenario = loadScenario(seeds.nextLong());
+            ecgDataGenerator.setScenario(scenario);
+            bloodSaturationDataGenerator.setScenario(scenario);
+            bloodPressureDataGenerator.setScenario(scenario);
+        }
 
-        for (int patientId : patientIds) {
-            scheduleTask(() -> ecgDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.SECONDS);
-            scheduleTask(() -> bloodSaturationDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.SECONDS);
-            scheduleTask(() -> bloodPressureDataGenerator.generate(patientId, outputStrategy), 1, TimeUnit.MINUTES);
-            scheduleTask(() -> bloodLevelsDataGenerator.generate(patientId, outputStrategy), 2, TimeUnit.MINUTES);
-            scheduleTask(() -> alertGenerator.generate(patientId, outputStrategy), 20, TimeUnit.SECONDS);
+        if (ecgRateHz > 0) {
+            // Generates the waveform samples since the previous tick, in one block per patient
+            scheduler.schedule(ecgDataGenerator, patientIds, TICK_MILLIS, TimeUnit.MILLISECONDS, outputStrategy);
+        } else {
+            scheduler.schedule(ecgDataGenerator, patientIds, 1, TimeUnit.SECONDS, outputStrategy);
         }
+        scheduler.schedule(bloodSaturationDataGenerator, patientIds, 1, TimeUnit.SECONDS, outputStrategy);
+        scheduler.schedule(bloodPressureDataGenerator, patientIds, 1, TimeUnit.MINUTES, outputStrategy);
+        scheduler.schedule(bloodLevelsDataGenerator, patientIds, 2, TimeUnit.MINUTES, outputStrategy);
+        scheduler.schedule(alertGenerator, patientIds, 20, TimeUnit.SECONDS, outputStrategy);
     }
 
-    private static void scheduleTask(Runnable task, long period, TimeUnit timeUnit) {
-        scheduler.scheduleAtFixedRate(task, random.nextInt(5), period, timeUnit);
+    /**
+     * Reads the --scenario file, with its event times relative to now, and exits if it is invalid.
+     */
+    private static Scenario loadScenario(long scenarioSeed) {
+        try {
+            Scenario scenario = Scenario.fromFile(Paths.get(scenarioFile), clock.millis(), scenarioSeed);
+            System.out.println("Scenario: " + scenario.getEventCount() + " events from " + scenarioFile);
+            return scenario;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error loading the scenario " + scenarioFile + ": " + e.getMessage());
+            outputStrategy.close();
+            System.exit(1);
+            return null;
+        }
     }
 }
@@ -0,0 +1,424 @@
+package com.cardio_generator;
+
+import com.cardio_generator.outputs.BinaryFile;
+import com.cardio_generator.outputs.Labels;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.SegmentIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams previously recorded data back through an {@link OutputStrategy}, in timestamp order.
+ * <p>
+ * A directory written by {@link com.cardio_generator.outputs.FileOutputStrategy} holds one file per
+ * label, or per segment of a label, and a directory written by
+ * {@link com.cardio_generator.outputs.BinaryOutputStrategy} holds blocks of samples per patient and
+ * label. Each of these is in timestamp order on its own, so they are merged with a k-way merge: a
+ * binary heap holds the next sample of every open file or block, and the smallest one is output
+ * and replaced by the next sample of its source. Files and blocks are read as they are needed:
+ * a compressed segment or a block whose first timestamp is known from its index is only opened once
+ * the replay reaches that timestamp, so only a few of them are open at a time however long the
+ * recording is.
+ * <p>
+ * The samples are output at the pace they were recorded, a given factor faster, or as fast as the
+ * output takes them. They keep their recorded timestamps.
+ */
+public class Replayer implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAX_PARK_NANOS = 100_000_000; // So that stop() is noticed quickly
+
+    private final List<BinaryFile> binaryFiles;
+    private final Source[] pending; // Sorted by the timestamp they start at
+    private final int fileCount;
+    private Source[] heap;
+    private int size;
+    private long skippedLines;
+    private SimulatedClock clock; // Follows the timestamps of the replayed samples, if set
+    private volatile boolean stopped;
+
+    private Replayer(List<BinaryFile> binaryFiles, List<Source> sources, int fileCount) {
+        this.binaryFiles = binaryFiles;
+        this.pending = sources.toArray(new Source[0]);
+        // Stable, so that sources starting at the same time keep the order they were found in
+        Arrays.sort(pending, Comparator.comparingLong(source -> source.startTimestamp));
+        for (int i = 0; i < pending.length; i++) {
+            pending[i].order = i;
+        }
+        this.fileCount = fileCount;
+        this.heap = new Source[16];
+    }
+
+    /**
+     * Opens the recording in a directory: the text files of the file output, plain or compressed,
+     * and the data files of the binary output.
+     *
+     * @param directory the directory
+     * @return the replayer
+     * @throws IOException if the directory or one of its files cannot be read
+     */
+    public static Replayer open(Path directory) throws IOException {
+        List<Path> textFiles = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*.{txt,txt.gz}")) {
+            for (Path entry : entries) {
+                textFiles.add(entry);
+            }
+        }
+        textFiles.sort(null);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*.index")) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                labels.add(name.substring(0, name.length() - ".index".length()));
+            }
+        }
+
+        // The first timestamp of closed segments is in their index, so they can be opened later
+        Map<String, Long> segmentStarts = new HashMap<>();
+        for (String label : labels) {
+            for (SegmentIndex.Segment segment : SegmentIndex.load(directory, label).getSegments()) {
+                segmentStarts.put(segment.getFileName(), segment.getFirstTimestamp());
+            }
+        }
+        List<Source> sources = new ArrayList<>();
+        for (Path file : textFiles) {
+            Long start = segmentStarts.get(file.getFileName().toString());
+            sources.add(new TextSource(file, start != null ? start : Long.MIN_VALUE));
+        }
+
+        List<BinaryFile> binaryFiles = new ArrayList<>();
+        try {
+            for (Path file : BinaryFile.list(directory)) {
+                BinaryFile binaryFile = BinaryFile.open(file);
+                binaryFiles.add(binaryFile);
+                for (BinaryFile.Block block : binaryFile.getBlocks()) {
+                    sources.add(new BlockSource(binaryFile, block));
+                }
+            }
+        } catch (IOException e) {
+            for (BinaryFile binaryFile : binaryFiles) {
+                binaryFile.close();
+            }
+            throw e;
+        }
+        return new Replayer(binaryFiles, sources, textFiles.size() + binaryFiles.size());
+    }
+
+    /**
+     * Returns the number of text and binary files in the recording.
+     *
+     * @return the file count
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * Returns the number of lines of the text files that were not samples and were skipped.
+     *
+     * @return the skipped line count
+     */
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+
+    /**
+     * Sets a clock that the replay moves to the timestamp of every sample before it is output, so
+     * that the recording can be measured against its own timeline, as in simulated time.
+     *
+     * @param clock the clock to move, or null for none
+     */
+    public void setClock(SimulatedClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Outputs all samples of the recording in timestamp order. Returns when all samples have been
+     * output or the replay was stopped.
+     *
+     * @param output the output
+     * @param speed  how many times faster than recorded to replay, or {@link Double#POSITIVE_INFINITY}
+     *               to replay as fast as possible
+     * @return the number of samples output
+     * @throws IOException if a file of the recording cannot be read
+     */
+    public long replay(OutputStrategy output, double speed) throws IOException {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("The speed must be positive, got " + speed);
+        }
+        boolean paced = speed != Double.POSITIVE_INFINITY;
+        double nanosPerMilli = 1e6 / speed;
+        long firstTimestamp = 0;
+        long startNanos = 0;
+        long pacedTimestamp = Long.MIN_VALUE; // The latest timestamp that was waited for
+        long count = 0;
+        int nextPending = 0;
+        while (!stopped) {
+            // Open the sources that may hold samples before the current smallest one
+            while (nextPending < pending.length
+                    && (size == 0 || pending[nextPending].startTimestamp <= heap[0].timestamp)) {
+                Source source = pending[nextPending++];
+                if (source.next()) {
+                    push(source);
+                } else {
+                    source.close();
+                }
+            }
+            if (size == 0) {
+                break;
+            }
+            Source top = heap[0];
+            if (paced && top.timestamp > pacedTimestamp) {
+                if (count == 0) {
+                    firstTimestamp = top.timestamp;
+                    startNanos = System.nanoTime();
+                }
+                long wait;
+                while ((wait = startNanos + (long) ((top.timestamp - firstTimestamp) * nanosPerMilli)
+                        - System.nanoTime()) > 0 && !stopped) {
+                    LockSupport.parkNanos(Math.min(wait, MAX_PARK_NANOS));
+                }
+                pacedTimestamp = top.timestamp;
+            }
+            if (clock != null) {
+                clock.setMillis(top.timestamp);
+            }
+            output.output(top.patientId, top.timestamp, top.labelCode, top.value);
+            count++;
+            if (top.next()) {
+                siftDown(0, top);
+            } else {
+                top.close();
+                Source last = heap[--size];
+                heap[size] = null;
+                if (size > 0) {
+                    siftDown(0, last);
+                }
+            }
+        }
+        for (Source source : pending) {
+            if (source instanceof TextSource) {
+                skippedLines += ((TextSource) source).skippedLines;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stops a replay that is running on another thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Source source : pending) {
+            source.close();
+        }
+        for (BinaryFile binaryFile : binaryFiles) {
+            binaryFile.close();
+        }
+    }
+
+    private void push(Source source) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(source, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = source;
+    }
+
+    /**
+     * Puts a source at a position of the heap and moves it down to where it belongs.
+     */
+    private void siftDown(int i, Source source) {
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], source)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = source;
+    }
+
+    private static boolean before(Source a, Source b) {
+        return a.timestamp < b.timestamp || (a.timestamp == b.timestamp && a.order < b.order);
+    }
+
+    /**
+     * A file or block of samples in timestamp order, holding its next sample.
+     */
+    private abstract static class Source {
+        final long startTimestamp; // No sample of the source is older
+        int order;
+        int patientId;
+        long timestamp;
+        int labelCode;
+        double value;
+
+        Source(long startTimestamp) {
+            this.startTimestamp = startTimestamp;
+        }
+
+        /**
+         * Reads the next sample, opening the source on the first call.
+         *
+         * @return false if there are no more samples
+         */
+        abstract boolean next() throws IOException;
+
+        void close() throws IOException {
+        }
+    }
+
+    /**
+     * A text file written by the file output, with one {@code Patient ID: ..., Timestamp: ...,
+     * Label: ..., Data: ...} line per sample.
+     */
+    private static final class TextSource extends Source {
+        private static final String PATIENT = "Patient ID: ";
+        private static final String TIMESTAMP = ", Timestamp: ";
+        private static final String LABEL = ", Label: ";
+        private static final String DATA = ", Data: ";
+
+        private final Path file;
+        private BufferedReader reader;
+        private boolean finished;
+        private String label = ""; // The label of the previous line, which is almost always the same
+        private int labelCodeOfLabel = -1;
+        private long skippedLines;
+
+        TextSource(Path file, long startTimestamp) {
+            super(startTimestamp);
+            this.file = file;
+        }
+
+        @Override
+        boolean next() throws IOException {
+            if (finished) {
+                return false;
+            }
+            if (reader == null) {
+                InputStream in = Files.newInputStream(file);
+                if (file.getFileName().toString().endsWith(".gz")) {
+                    in = new GZIPInputStream(in, BUFFER_SIZE);
+                }
+                reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (parse(line)) {
+                    return true;
+                }
+                skippedLines++;
+            }
+            close();
+            finished = true;
+            return false;
+        }
+
+        private boolean parse(String line) {
+            int timestampStart = line.indexOf(TIMESTAMP);
+            int labelStart = line.indexOf(LABEL, timestampStart + 1);
+            int dataStart = line.indexOf(DATA, labelStart + 1);
+            if (!line.startsWith(PATIENT) || timestampStart < 0 || labelStart < 0 || dataStart < 0) {
+                return false;
+            }
+            try {
+                patientId = Integer.parseInt(line, PATIENT.length(), timestampStart, 10);
+                timestamp = Long.parseLong(line, timestampStart + TIMESTAMP.length(), labelStart, 10);
+                int nameStart = labelStart + LABEL.length();
+                int nameLength = dataStart - nameStart;
+                if (label.length() != nameLength || !line.regionMatches(nameStart, label, 0, nameLength)) {
+                    label = line.substring(nameStart, dataStart);
+                    labelCodeOfLabel = Labels.code(label);
+                }
+                labelCode = labelCodeOfLabel;
+                value = Labels.parse(labelCode, line.substring(dataStart + DATA.length()));
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        @Override
+        void close() throws IOException {
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+        }
+    }
+
+    /**
+     * A block of the binary output, which is copied out of the mapped file when it is opened.
+     */
+    private static final class BlockSource extends Source {
+        private final BinaryFile binaryFile;
+        private final BinaryFile.Block block;
+        private long[] timestamps;
+        private double[] values;
+        private int index = -1;
+
+        BlockSource(BinaryFile binaryFile, BinaryFile.Block block) {
+            super(block.getFirstTimestamp());
+            this.binaryFile = binaryFile;
+            this.block = block;
+            this.patientId = block.getPatientId();
+        }
+
+        @Override
+        boolean next() throws IOException {
+            if (timestamps == null) {
+                if (index >= 0) {
+                    return false; // Already closed
+                }
+                timestamps = new long[block.getCount()];
+                values = new double[block.getCount()];
+                labelCode = binaryFile.read(block, timestamps, values);
+            }
+            if (++index >= timestamps.length) {
+                close();
+                return false;
+            }
+            timestamp = timestamps[index];
+            value = values[index];
+            return true;
+        }
+
+        @Override
+        void close() {
+            timestamps = null;
+            values = null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.cardio_generator;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A clock that only moves when it is told to. The {@link TickScheduler} sets it to the simulated
+ * time of every tick before running the generators, so that data can be generated faster than real
+ * time while every reading still carries the timestamp it would have had in real time.
+ */
+public class SimulatedClock extends Clock {
+    private volatile long millis;
+
+    /**
+     * Constructs a clock standing at the given time.
+     *
+     * @param startMillis the initial time in milliseconds since the Unix epoch
+     */
+    public SimulatedClock(long startMillis) {
+        this.millis = startMillis;
+    }
+
+    /**
+     * Sets the current time.
+     *
+     * @param millis the new time in milliseconds since the Unix epoch
+     */
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(ZoneOffset.UTC) ? this : new ZonedClock(this, zone);
+    }
+}
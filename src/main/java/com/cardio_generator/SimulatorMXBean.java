@@ -0,0 +1,26 @@
+package com.cardio_generator;
+
+/**
+ * JMX view of a running {@link HealthDataSimulator}, to admit and discharge patients while it runs.
+ */
+public interface SimulatorMXBean {
+    /**
+     * Starts generating data for a patient.
+     *
+     * @param patientId the patient id, which can be any int
+     * @return false if the patient was already admitted
+     */
+    boolean admitPatient(int patientId);
+
+    /**
+     * Stops generating data for a patient.
+     *
+     * @param patientId the patient id
+     * @return false if the patient was not admitted
+     */
+    boolean dischargePatient(int patientId);
+
+    int getPatientCount();
+
+    int[] getPatientIds();
+}
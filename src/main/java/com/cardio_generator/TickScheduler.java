@@ -0,0 +1,391 @@
+package com.cardio_generator;
+
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drives all patient data generators from a single clock tick instead of one scheduled task per
+ * patient and generator.
+ * <p>
+ * Every generator is registered with its period, and every patient is given a fixed phase within
+ * that period, so an even share of the patients is due on each tick instead of all of them at
+ * once. On each tick the patients that are due are split into batches of ascending patient IDs,
+ * which are run on a worker pool sized to the number of cores. A tick waits for all of its batches;
+ * when that takes longer than the tick itself the overrun is logged and the following ticks are
+ * delayed rather than run concurrently.
+ * <p>
+ * With a {@link SimulatedClock} the scheduler runs in simulated time: the clock is set to the start
+ * time plus the elapsed ticks before every tick, so every reading is timestamped exactly one period
+ * after the previous reading of the same patient, however fast the ticks actually run. The ticks can
+ * then run a fixed factor faster than real time, or back to back as fast as the generators allow.
+ * <p>
+ * Patients can be admitted and discharged while the scheduler runs. The change is made between two
+ * ticks, so generators never change their patients while they generate data.
+ * <p>
+ * With virtual threads every batch runs on a virtual thread of its own instead of on the worker
+ * pool, so with a batch size of 1 each patient's readings are generated by a task of their own.
+ * A tick still waits for all the threads it started, and stopping the scheduler waits for the
+ * threads of the current tick, so no thread outlives the scheduler.
+ */
+public class TickScheduler {
+    private static final Logger LOGGER = Logger.getLogger(TickScheduler.class.getName());
+    /**
+     * The default number of patients a worker generates data for in one go.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    private final long tickMillis;
+    private final int batchSize;
+    private final List<Job> jobs = new ArrayList<>();
+    private final Set<Integer> patients = new HashSet<>();
+    private final ExecutorService workers;
+    private final ScheduledExecutorService ticker;
+    private final AtomicLong overruns = new AtomicLong();
+    private final SimulatedClock clock;
+    private final long startMillis;
+    private final long tickNanos; // Wall-clock length of a tick, or 0 when running as fast as possible
+    private volatile long endMillis = Long.MAX_VALUE;
+    private volatile boolean finished;
+    private long tick;
+
+    /**
+     * Constructs a scheduler with a worker for every available core.
+     *
+     * @param tickMillis the tick length in milliseconds; generator periods are rounded to whole ticks
+     */
+    public TickScheduler(long tickMillis) {
+        this(tickMillis, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a scheduler.
+     *
+     * @param tickMillis the tick length in milliseconds; generator periods are rounded to whole ticks
+     * @param threads    the number of worker threads
+     * @param batchSize  the maximum number of patients in one batch
+     */
+    public TickScheduler(long tickMillis, int threads, int batchSize) {
+        this(tickMillis, threads, batchSize, null, 1);
+    }
+
+    /**
+     * Constructs a scheduler that, given a clock, runs in simulated time starting at the current time of the clock.
+     *
+     * @param tickMillis the tick length in simulated milliseconds; generator periods are rounded to whole ticks
+     * @param threads    the number of worker threads
+     * @param batchSize  the maximum number of patients in one batch
+     * @param clock      the clock the generators timestamp their readings with, or {@code null} to run in real time
+     * @param speed      how many times faster than real time to run, or {@link Double#POSITIVE_INFINITY}
+     *                   to run as fast as possible
+     */
+    public TickScheduler(long tickMillis, int threads, int batchSize, SimulatedClock clock, double speed) {
+        this(tickMillis, threads, batchSize, clock, speed, false);
+    }
+
+    /**
+     * Constructs a scheduler that, given a clock, runs in simulated time starting at the current time of the clock.
+     *
+     * @param tickMillis     the tick length in simulated milliseconds; generator periods are rounded to whole ticks
+     * @param threads        the number of worker threads, unless running on virtual threads
+     * @param batchSize      the maximum number of patients in one batch
+     * @param clock          the clock the generators timestamp their readings with, or {@code null} to run in real time
+     * @param speed          how many times faster than real time to run, or {@link Double#POSITIVE_INFINITY}
+     *                       to run as fast as possible
+     * @param virtualThreads whether to run every batch on a new virtual thread instead of on a pool of worker threads
+     */
+    public TickScheduler(long tickMillis, int threads, int batchSize, SimulatedClock clock, double speed,
+                         boolean virtualThreads) {
+        if (tickMillis <= 0 || threads <= 0 || batchSize <= 0 || !(speed > 0)) {
+            throw new IllegalArgumentException("Tick length, threads, batch size and speed must be positive");
+        }
+        if (clock == null && speed != 1) {
+            throw new IllegalArgumentException("Only a simulated clock can run faster than real time");
+        }
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.startMillis = clock == null ? 0 : clock.millis();
+        this.tickNanos = Double.isInfinite(speed)
+                ? 0 : Math.max(1, Math.round(TimeUnit.MILLISECONDS.toNanos(tickMillis) / speed));
+        this.workers = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("simulator-worker-", 1).factory())
+                : Executors.newFixedThreadPool(threads, namedThreads("simulator-worker-"));
+        this.ticker = Executors.newSingleThreadScheduledExecutor(namedThreads("simulator-tick-"));
+    }
+
+    /**
+     * Registers a generator that produces data for the given patients once every period.
+     * The patients are spread over the ticks of the period in the order given, so passing them
+     * in a random order spreads neighbouring IDs over different ticks.
+     *
+     * @param generator      the generator
+     * @param patientIds     the patients to generate data for
+     * @param period         the time between two readings of the same patient
+     * @param unit           the unit of {@code period}
+     * @param outputStrategy where the generated data is sent
+     */
+    public synchronized void schedule(PatientDataGenerator generator, List<Integer> patientIds,
+                                      long period, TimeUnit unit, OutputStrategy outputStrategy) {
+        int periodTicks = (int) Math.max(1, Math.round((double) unit.toMillis(period) / tickMillis));
+        int[] counts = new int[periodTicks];
+        for (int i = 0; i < patientIds.size(); i++) {
+            counts[i % periodTicks]++;
+        }
+        int[][] slots = new int[periodTicks][];
+        for (int phase = 0; phase < periodTicks; phase++) {
+            slots[phase] = new int[counts[phase]];
+        }
+        for (int i = 0; i < patientIds.size(); i++) {
+            slots[i % periodTicks][i / periodTicks] = patientIds.get(i);
+        }
+        for (int[] slot : slots) {
+            // Ascending IDs walk the generators' per-patient arrays front to back
+            Arrays.sort(slot);
+        }
+        jobs.add(new Job(generator, outputStrategy, slots));
+        patients.addAll(patientIds);
+    }
+
+    /**
+     * Admits a patient to every registered generator, waiting for the current tick to finish.
+     * The patient is added to the tick of each generator's period that has the fewest patients,
+     * so the load stays spread over the period.
+     *
+     * @param patientId the patient id, which can be any int
+     * @return false if the patient was already admitted
+     */
+    public synchronized boolean admit(int patientId) {
+        if (!patients.add(patientId)) {
+            return false;
+        }
+        for (Job job : jobs) {
+            job.generator.admit(patientId);
+            int phase = 0;
+            for (int i = 1; i < job.slots.length; i++) {
+                if (job.slots[i].length < job.slots[phase].length) {
+                    phase = i;
+                }
+            }
+            // A new array, since the workers of the previous tick may still hold the old one
+            int[] slot = job.slots[phase];
+            int at = -Arrays.binarySearch(slot, patientId) - 1;
+            int[] grown = new int[slot.length + 1];
+            System.arraycopy(slot, 0, grown, 0, at);
+            grown[at] = patientId;
+            System.arraycopy(slot, at, grown, at + 1, slot.length - at);
+            job.slots[phase] = grown;
+        }
+        return true;
+    }
+
+    /**
+     * Discharges a patient from every registered generator, waiting for the current tick to finish.
+     * No data is generated for the patient afterwards and the generators drop their state.
+     *
+     * @param patientId the patient id
+     * @return false if the patient was not admitted
+     */
+    public synchronized boolean discharge(int patientId) {
+        if (!patients.remove(patientId)) {
+            return false;
+        }
+        for (Job job : jobs) {
+            for (int phase = 0; phase < job.slots.length; phase++) {
+                int[] slot = job.slots[phase];
+                int at = Arrays.binarySearch(slot, patientId);
+                if (at >= 0) {
+                    int[] shrunk = new int[slot.length - 1];
+                    System.arraycopy(slot, 0, shrunk, 0, at);
+                    System.arraycopy(slot, at + 1, shrunk, at, slot.length - at - 1);
+                    job.slots[phase] = shrunk;
+                }
+            }
+            job.generator.discharge(patientId);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the IDs of the admitted patients.
+     *
+     * @return the patient IDs, in ascending order
+     */
+    public synchronized int[] getPatientIds() {
+        return patients.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * Stops the scheduler once the simulated clock reaches the given time.
+     *
+     * @param endMillis the simulated time to stop at, in milliseconds since the Unix epoch
+     */
+    public void setEndMillis(long endMillis) {
+        if (clock == null) {
+            throw new IllegalStateException("An end time needs a simulated clock");
+        }
+        this.endMillis = endMillis;
+    }
+
+    /**
+     * Starts ticking.
+     */
+    public void start() {
+        if (tickNanos == 0) {
+            ticker.execute(() -> {
+                while (!finished && !Thread.currentThread().isInterrupted()) {
+                    runTick();
+                }
+            });
+        } else {
+            ticker.scheduleAtFixedRate(this::runTick, 0, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Waits until the scheduler has reached its end time, or has been stopped.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+        while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            // Keep waiting, long simulations can take a while
+        }
+    }
+
+    /**
+     * Stops ticking and waits for the batches of the current tick to finish.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void stop() throws InterruptedException {
+        ticker.shutdownNow();
+        ticker.awaitTermination(1, TimeUnit.MINUTES);
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Returns how many ticks took longer than the tick length.
+     *
+     * @return the number of overrun ticks
+     */
+    public long getOverrunCount() {
+        return overruns.get();
+    }
+
+    /**
+     * Runs the batches of all patients that are due on the next tick and waits for them to finish.
+     *
+     * @throws InterruptedException if interrupted while waiting for the batches
+     */
+    synchronized void tick() throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long current = tick;
+        if (clock != null) {
+            long now = startMillis + current * tickMillis;
+            if (now >= endMillis) {
+                finish();
+                return;
+            }
+            clock.setMillis(now);
+        }
+        tick++;
+        int batches = 0;
+        for (Job job : jobs) {
+            int[] slot = job.slots[(int) (current % job.slots.length)];
+            batches += (slot.length + batchSize - 1) / batchSize;
+        }
+        CountDownLatch done = new CountDownLatch(batches);
+        for (Job job : jobs) {
+            int[] slot = job.slots[(int) (current % job.slots.length)];
+            for (int from = 0; from < slot.length; from += batchSize) {
+                int to = Math.min(slot.length, from + batchSize);
+                int start = from;
+                workers.execute(() -> {
+                    try {
+                        for (int i = start; i < to; i++) {
+                            generate(job, slot[i]);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+        }
+        done.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (tickNanos > 0 && elapsedNanos > tickNanos) {
+            overruns.incrementAndGet();
+            LOGGER.warning("Simulator tick " + current + " took " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                    + " ms, longer than the tick of " + TimeUnit.NANOSECONDS.toMillis(tickNanos) + " ms ("
+                    + batches + " batches)");
+        }
+    }
+
+    private void finish() {
+        finished = true;
+        ticker.shutdown();
+        workers.shutdown();
+    }
+
+    /**
+     * Generates the data of one patient. A generator that fails only loses that patient's reading.
+     */
+    private static void generate(Job job, int patientId) {
+        try {
+            job.generator.generate(patientId, job.outputStrategy);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Generating the data of patient " + patientId + " failed", e);
+        }
+    }
+
+    /**
+     * Runs a tick for the ticker. An exception must not escape, since the ticker would cancel all
+     * later ticks without a word.
+     */
+    private void runTick() {
+        try {
+            tick();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Simulator tick failed, the next tick runs as scheduled", e);
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> new Thread(runnable, prefix + count.incrementAndGet());
+    }
+
+    /**
+     * A generator together with its patients, grouped by the tick of the period they are due on.
+     */
+    private static final class Job {
+        private final PatientDataGenerator generator;
+        private final OutputStrategy outputStrategy;
+        private final int[][] slots;
+
+        private Job(PatientDataGenerator generator, OutputStrategy outputStrategy, int[][] slots) {
+            this.generator = generator;
+            this.outputStrategy = outputStrategy;
+            this.slots = slots;
+        }
+    }
+}
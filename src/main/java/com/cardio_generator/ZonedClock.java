@@ -0,0 +1,39 @@
+package com.cardio_generator;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * A view of a clock in another time zone, as returned by {@link Clock#withZone(ZoneId)} of the
+ * clocks that keep their time in UTC. The time is always read from the underlying clock.
+ */
+final class ZonedClock extends Clock {
+    private final Clock clock;
+    private final ZoneId zone;
+
+    ZonedClock(Clock clock, ZoneId zone) {
+        this.clock = clock;
+        this.zone = zone;
+    }
+
+    @Override
+    public long millis() {
+        return clock.millis();
+    }
+
+    @Override
+    public Instant instant() {
+        return clock.instant();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(clock.getZone()) ? clock : new ZonedClock(clock, zone);
+    }
+}
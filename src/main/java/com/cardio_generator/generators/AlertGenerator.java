@@ -1,8 +1,10 @@
 package com.cardio_generator.generators;
 
+import com.cardio_generator.CachedClock;
+import com.cardio_generator.outputs.Labels;
 import com.cardio_generator.outputs.OutputStrategy;
-
-import java.util.Random;
+import java.time.Clock;
+import java.util.SplittableRandom;
 // Changes: Changed Upper camel case names to camel case for easy differentiation between classes and Variables
 
 /**
@@ -10,40 +12,81 @@ import java.util.Random;
  */
 public class AlertGenerator implements PatientDataGenerator {
 
+    private final PatientStateMap<State> states;
+    private final Clock clock;
+    private final long seed;
+
     /**
-     * The constant randomGenerator.
+     * Instantiates a new Alert generator that timestamps readings with the shared {@link CachedClock}.
+     *
+     * @param patientCount the patient count
      */
-    public static final Random randomGenerator = new Random();
-    private boolean[] alertStates; // false = resolved, true = pressed
+    public AlertGenerator(int patientCount) {
+        this(patientCount, CachedClock.getInstance());
+    }
+
+    /**
+     * Instantiates a new Alert generator with a random seed.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     */
+    public AlertGenerator(int patientCount, Clock clock) {
+        this(patientCount, clock, RandomStreams.randomSeed());
+    }
 
     /**
      * Instantiates a new Alert generator.
      *
      * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     * @param seed         the seed of the patients' random streams; the same seed generates the same data
      */
-    public AlertGenerator(int patientCount) {
-        alertStates = new boolean[patientCount + 1];
+    public AlertGenerator(int patientCount, Clock clock, long seed) {
+        this.clock = clock;
+        this.seed = seed;
+        this.states = new PatientStateMap<>(patientCount);
+        for (int i = 1; i <= patientCount; i++) {
+            admit(i);
+        }
+    }
+
+    @Override
+    public final void admit(int patientId) {
+        if (states.get(patientId) == null) {
+            states.put(patientId, new State(RandomStreams.forPatient(seed, patientId)));
+        }
+    }
+
+    @Override
+    public void discharge(int patientId) {
+        states.remove(patientId);
     }
 
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
-            if (alertStates[patientId]) {
-                if (randomGenerator.nextDouble() < 0.9) { // 90% chance to resolve
-                    alertStates[patientId] = false;
+            State state = states.get(patientId);
+            if (state == null) {
+                return;
+            }
+            SplittableRandom random = state.random;
+            if (state.pressed) {
+                if (random.nextDouble() < 0.9) { // 90% chance to resolve
+                    state.pressed = false;
                     // Output the alert
-                    outputStrategy.output(patientId, System.currentTimeMillis(), "Alert", "resolved");
+                    outputStrategy.output(patientId, clock.millis(), Labels.ALERT, Labels.RESOLVED);
                 }
             } else {
                 // Uppercase names only for classes!
                 double lambda = 0.1; // Average rate (alerts per period), adjust based on desired frequency
                 double p = -Math.expm1(-lambda); // Probability of at least one alert in the period
-                boolean alertTriggered = randomGenerator.nextDouble() < p;
+                boolean alertTriggered = random.nextDouble() < p;
 
                 if (alertTriggered) {
-                    alertStates[patientId] = true;
+                    state.pressed = true;
                     // Output the alert
-                    outputStrategy.output(patientId, System.currentTimeMillis(), "Alert", "triggered");
+                    outputStrategy.output(patientId, clock.millis(), Labels.ALERT, Labels.TRIGGERED);
                 }
             }
         } catch (Exception e) {
@@ -51,4 +94,13 @@ public class AlertGenerator implements PatientDataGenerator {
             e.printStackTrace();
         }
     }
+
+    private static final class State {
+        private final SplittableRandom random; // One stream per patient
+        private boolean pressed; // false = resolved, true = pressed
+
+        private State(SplittableRandom random) {
+            this.random = random;
+        }
+    }
 }
@@ -1,53 +1,105 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.time.Clock;
+import java.util.SplittableRandom;
 
+import com.cardio_generator.CachedClock;
+import com.cardio_generator.outputs.Labels;
 import com.cardio_generator.outputs.OutputStrategy;
 
 /**
  * The type Blood levels data generator.
  */
 public class BloodLevelsDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
-    private final double[] baselineCholesterol;
-    private final double[] baselineWhiteCells;
-    private final double[] baselineRedCells;
+    private final PatientStateMap<State> states;
+    private final Clock clock;
+    private final long seed;
 
     /**
-     * Instantiates a new Blood levels data generator.
+     * Instantiates a new Blood levels data generator that timestamps readings with the shared {@link CachedClock}.
      *
      * @param patientCount the patient count
      */
     public BloodLevelsDataGenerator(int patientCount) {
-        // Initialize arrays to store baseline values for each patient
-        baselineCholesterol = new double[patientCount + 1];
-        baselineWhiteCells = new double[patientCount + 1];
-        baselineRedCells = new double[patientCount + 1];
+        this(patientCount, CachedClock.getInstance());
+    }
+
+    /**
+     * Instantiates a new Blood levels data generator with a random seed.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     */
+    public BloodLevelsDataGenerator(int patientCount, Clock clock) {
+        this(patientCount, clock, RandomStreams.randomSeed());
+    }
 
-        // Generate baseline values for each patient
+    /**
+     * Instantiates a new Blood levels data generator.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     * @param seed         the seed of the patients' random streams; the same seed generates the same data
+     */
+    public BloodLevelsDataGenerator(int patientCount, Clock clock, long seed) {
+        this.clock = clock;
+        this.seed = seed;
+        this.states = new PatientStateMap<>(patientCount);
         for (int i = 1; i <= patientCount; i++) {
-            baselineCholesterol[i] = 150 + random.nextDouble() * 50; // Initial random baseline
-            baselineWhiteCells[i] = 4 + random.nextDouble() * 6; // Initial random baseline
-            baselineRedCells[i] = 4.5 + random.nextDouble() * 1.5; // Initial random baseline
+            admit(i);
+        }
+    }
+
+    @Override
+    public final void admit(int patientId) {
+        if (states.get(patientId) == null) {
+            SplittableRandom random = RandomStreams.forPatient(seed, patientId);
+            State state = new State(random);
+            // Generate baseline values for the patient
+            state.baselineCholesterol = 150 + random.nextDouble() * 50; // Initial random baseline
+            state.baselineWhiteCells = 4 + random.nextDouble() * 6; // Initial random baseline
+            state.baselineRedCells = 4.5 + random.nextDouble() * 1.5; // Initial random baseline
+            states.put(patientId, state);
         }
     }
 
+    @Override
+    public void discharge(int patientId) {
+        states.remove(patientId);
+    }
+
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
+            State state = states.get(patientId);
+            if (state == null) {
+                return;
+            }
+            SplittableRandom random = state.random;
             // Generate values around the baseline for realism
-            double cholesterol = baselineCholesterol[patientId] + (random.nextDouble() - 0.5) * 10; // Small variation
-            double whiteCells = baselineWhiteCells[patientId] + (random.nextDouble() - 0.5) * 1; // Small variation
-            double redCells = baselineRedCells[patientId] + (random.nextDouble() - 0.5) * 0.2; // Small variation
+            double cholesterol = state.baselineCholesterol + (random.nextDouble() - 0.5) * 10; // Small variation
+            double whiteCells = state.baselineWhiteCells + (random.nextDouble() - 0.5) * 1; // Small variation
+            double redCells = state.baselineRedCells + (random.nextDouble() - 0.5) * 0.2; // Small variation
 
             // Output the generated values
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Cholesterol", Double.toString(cholesterol));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "WhiteBloodCells",
-                    Double.toString(whiteCells));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "RedBloodCells", Double.toString(redCells));
+            long timestamp = clock.millis(); // One blood sample, so one timestamp for all three
+            outputStrategy.output(patientId, timestamp, Labels.CHOLESTEROL, cholesterol);
+            outputStrategy.output(patientId, timestamp, Labels.WHITE_BLOOD_CELLS, whiteCells);
+            outputStrategy.output(patientId, timestamp, Labels.RED_BLOOD_CELLS, redCells);
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood levels data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    private static final class State {
+        private final SplittableRandom random; // One stream per patient
+        private double baselineCholesterol;
+        private double baselineWhiteCells;
+        private double baselineRedCells;
+
+        private State(SplittableRandom random) {
+            this.random = random;
+        }
+    }
 }
@@ -1,54 +1,122 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.time.Clock;
+import java.util.SplittableRandom;
 
+import com.cardio_generator.CachedClock;
+import com.cardio_generator.outputs.Labels;
 import com.cardio_generator.outputs.OutputStrategy;
 
 /**
  * The type Blood pressure data generator.
  */
 public class BloodPressureDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
+    private static final int HYPOTENSION_SYSTOLIC_DROP = 45;
+    private static final int HYPOTENSION_DIASTOLIC_DROP = 30;
 
-    private int[] lastSystolicValues;
-    private int[] lastDiastolicValues;
+    private final PatientStateMap<State> states;
+    private final Clock clock;
+    private final long seed;
+    private Scenario scenario;
 
     /**
-     * Instantiates a new Blood pressure data generator.
+     * Instantiates a new Blood pressure data generator that timestamps readings with the shared {@link CachedClock}.
      *
      * @param patientCount the patient count
      */
     public BloodPressureDataGenerator(int patientCount) {
-        lastSystolicValues = new int[patientCount + 1];
-        lastDiastolicValues = new int[patientCount + 1];
+        this(patientCount, CachedClock.getInstance());
+    }
+
+    /**
+     * Instantiates a new Blood pressure data generator with a random seed.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     */
+    public BloodPressureDataGenerator(int patientCount, Clock clock) {
+        this(patientCount, clock, RandomStreams.randomSeed());
+    }
 
-        // Initialize with baseline values for each patient
+    /**
+     * Instantiates a new Blood pressure data generator.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     * @param seed         the seed of the patients' random streams; the same seed generates the same data
+     */
+    public BloodPressureDataGenerator(int patientCount, Clock clock, long seed) {
+        this.clock = clock;
+        this.seed = seed;
+        this.states = new PatientStateMap<>(patientCount);
         for (int i = 1; i <= patientCount; i++) {
-            lastSystolicValues[i] = 110 + random.nextInt(20); // Random baseline between 110 and 130
-            lastDiastolicValues[i] = 70 + random.nextInt(15); // Random baseline between 70 and 85
+            admit(i);
+        }
+    }
+
+    @Override
+    public final void admit(int patientId) {
+        if (states.get(patientId) == null) {
+            SplittableRandom random = RandomStreams.forPatient(seed, patientId);
+            State state = new State(random);
+            // Initialize with baseline values for the patient
+            state.lastSystolicValue = 110 + random.nextInt(20); // Random baseline between 110 and 130
+            state.lastDiastolicValue = 70 + random.nextInt(15); // Random baseline between 70 and 85
+            states.put(patientId, state);
         }
     }
 
+    @Override
+    public void discharge(int patientId) {
+        states.remove(patientId);
+    }
+
+    @Override
+    public void setScenario(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
+            State state = states.get(patientId);
+            if (state == null) {
+                return;
+            }
+            SplittableRandom random = state.random;
             int systolicVariation = random.nextInt(5) - 2; // -2, -1, 0, 1, or 2
             int diastolicVariation = random.nextInt(5) - 2;
-            int newSystolicValue = lastSystolicValues[patientId] + systolicVariation;
-            int newDiastolicValue = lastDiastolicValues[patientId] + diastolicVariation;
+            int newSystolicValue = state.lastSystolicValue + systolicVariation;
+            int newDiastolicValue = state.lastDiastolicValue + diastolicVariation;
             // Ensure the blood pressure stays within a realistic and safe range
             newSystolicValue = Math.min(Math.max(newSystolicValue, 90), 180);
             newDiastolicValue = Math.min(Math.max(newDiastolicValue, 60), 120);
-            lastSystolicValues[patientId] = newSystolicValue;
-            lastDiastolicValues[patientId] = newDiastolicValue;
+            state.lastSystolicValue = newSystolicValue;
+            state.lastDiastolicValue = newDiastolicValue;
 
-            outputStrategy.output(patientId, System.currentTimeMillis(), "SystolicPressure",
-                    Double.toString(newSystolicValue));
-            outputStrategy.output(patientId, System.currentTimeMillis(), "DiastolicPressure",
-                    Double.toString(newDiastolicValue));
+            long timestamp = clock.millis();
+            if (scenario != null) {
+                // Hypotension lowers the readings, not the patient's baseline they recover to
+                double severity = scenario.severity(Scenario.Condition.HYPOTENSION, patientId, timestamp);
+                newSystolicValue -= (int) Math.round(severity * HYPOTENSION_SYSTOLIC_DROP);
+                newDiastolicValue -= (int) Math.round(severity * HYPOTENSION_DIASTOLIC_DROP);
+            }
+
+            outputStrategy.output(patientId, timestamp, Labels.SYSTOLIC_PRESSURE, newSystolicValue);
+            outputStrategy.output(patientId, timestamp, Labels.DIASTOLIC_PRESSURE, newDiastolicValue);
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood pressure data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    private static final class State {
+        private final SplittableRandom random; // One stream per patient
+        private int lastSystolicValue;
+        private int lastDiastolicValue;
+
+        private State(SplittableRandom random) {
+            this.random = random;
+        }
+    }
 }
@@ -1,45 +1,111 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.time.Clock;
+import java.util.SplittableRandom;
 
+import com.cardio_generator.CachedClock;
+import com.cardio_generator.outputs.Labels;
 import com.cardio_generator.outputs.OutputStrategy;
 
 /**
  * The type Blood saturation data generator.
  */
 public class BloodSaturationDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
-    private int[] lastSaturationValues;
+    private static final int DESATURATION_DROP = 12;
+
+    private final PatientStateMap<State> states;
+    private final Clock clock;
+    private final long seed;
+    private Scenario scenario;
 
     /**
-     * Instantiates a new Blood saturation data generator.
+     * Instantiates a new Blood saturation data generator that timestamps readings with the shared {@link CachedClock}.
      *
      * @param patientCount the patient count
      */
     public BloodSaturationDataGenerator(int patientCount) {
-        lastSaturationValues = new int[patientCount + 1];
+        this(patientCount, CachedClock.getInstance());
+    }
+
+    /**
+     * Instantiates a new Blood saturation data generator with a random seed.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     */
+    public BloodSaturationDataGenerator(int patientCount, Clock clock) {
+        this(patientCount, clock, RandomStreams.randomSeed());
+    }
 
-        // Initialize with baseline saturation values for each patient
+    /**
+     * Instantiates a new Blood saturation data generator.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     * @param seed         the seed of the patients' random streams; the same seed generates the same data
+     */
+    public BloodSaturationDataGenerator(int patientCount, Clock clock, long seed) {
+        this.clock = clock;
+        this.seed = seed;
+        this.states = new PatientStateMap<>(patientCount);
         for (int i = 1; i <= patientCount; i++) {
-            lastSaturationValues[i] = 95 + random.nextInt(6); // Initializes with a value between 95 and 100
+            admit(i);
         }
     }
 
+    @Override
+    public final void admit(int patientId) {
+        if (states.get(patientId) == null) {
+            State state = new State(RandomStreams.forPatient(seed, patientId));
+            // Initialize with a baseline saturation value for the patient
+            state.lastSaturationValue = 95 + state.random.nextInt(6); // Initializes with a value between 95 and 100
+            states.put(patientId, state);
+        }
+    }
+
+    @Override
+    public void discharge(int patientId) {
+        states.remove(patientId);
+    }
+
+    @Override
+    public void setScenario(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         try {
+            State state = states.get(patientId);
+            if (state == null) {
+                return;
+            }
             // Simulate blood saturation values
-            int variation = random.nextInt(3) - 1; // -1, 0, or 1 to simulate small fluctuations
-            int newSaturationValue = lastSaturationValues[patientId] + variation;
+            int variation = state.random.nextInt(3) - 1; // -1, 0, or 1 to simulate small fluctuations
+            int newSaturationValue = state.lastSaturationValue + variation;
 
             // Ensure the saturation stays within a realistic and healthy range
             newSaturationValue = Math.min(Math.max(newSaturationValue, 90), 100);
-            lastSaturationValues[patientId] = newSaturationValue;
-            outputStrategy.output(patientId, System.currentTimeMillis(), "Saturation",
-                    Double.toString(newSaturationValue) + "%");
+            state.lastSaturationValue = newSaturationValue;
+            long timestamp = clock.millis();
+            if (scenario != null) {
+                // Desaturation takes the reading below the healthy range, not the patient's baseline
+                double severity = scenario.severity(Scenario.Condition.DESATURATION, patientId, timestamp);
+                newSaturationValue -= (int) Math.round(severity * DESATURATION_DROP);
+            }
+            outputStrategy.output(patientId, timestamp, Labels.SATURATION, newSaturationValue);
         } catch (Exception e) {
             System.err.println("An error occurred while generating blood saturation data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
+
+    private static final class State {
+        private final SplittableRandom random; // One stream per patient
+        private int lastSaturationValue;
+
+        private State(SplittableRandom random) {
+            this.random = random;
+        }
+    }
 }
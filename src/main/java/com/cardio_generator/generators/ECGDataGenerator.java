@@ -1,39 +1,96 @@
 package com.cardio_generator.generators;
 
-import java.util.Random;
+import java.time.Clock;
+import java.util.SplittableRandom;
 
+import com.cardio_generator.CachedClock;
+import com.cardio_generator.outputs.Labels;
 import com.cardio_generator.outputs.OutputStrategy;
 
 public class ECGDataGenerator implements PatientDataGenerator {
-    private static final Random random = new Random();
-    private double[] lastEcgValues;
+    private final PatientStateMap<State> states;
+    private final Clock clock;
+    private final long seed;
+    private Scenario scenario;
     private static final double PI = Math.PI;
 
+    /**
+     * Instantiates a new ECG data generator that timestamps readings with the shared {@link CachedClock}.
+     *
+     * @param patientCount the patient count
+     */
     public ECGDataGenerator(int patientCount) {
-        lastEcgValues = new double[patientCount + 1];
-        // Initialize the last ECG value for each patient
+        this(patientCount, CachedClock.getInstance());
+    }
+
+    /**
+     * Instantiates a new ECG data generator with a random seed.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     */
+    public ECGDataGenerator(int patientCount, Clock clock) {
+        this(patientCount, clock, RandomStreams.randomSeed());
+    }
+
+    /**
+     * Instantiates a new ECG data generator.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     * @param seed         the seed of the patients' random streams; the same seed generates the same data
+     */
+    public ECGDataGenerator(int patientCount, Clock clock, long seed) {
+        this.clock = clock;
+        this.seed = seed;
+        this.states = new PatientStateMap<>(patientCount);
         for (int i = 1; i <= patientCount; i++) {
-            lastEcgValues[i] = 0; // The Initial ECG value can be set to 0
+            admit(i);
         }
     }
 
+    @Override
+    public final void admit(int patientId) {
+        if (states.get(patientId) == null) {
+            states.put(patientId, new State(RandomStreams.forPatient(seed, patientId)));
+        }
+    }
+
+    @Override
+    public void discharge(int patientId) {
+        states.remove(patientId);
+    }
+
+    @Override
+    public void setScenario(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
     @Override
     public void generate(int patientId, OutputStrategy outputStrategy) {
         // TODO Check how realistic this data is and make it more realistic if necessary
         try {
-            double ecgValue = simulateEcgWaveform(patientId, lastEcgValues[patientId]);
-            outputStrategy.output(patientId, System.currentTimeMillis(), "ECG", Double.toString(ecgValue));
-            lastEcgValues[patientId] = ecgValue;
+            State state = states.get(patientId);
+            if (state == null) {
+                return;
+            }
+            long timestamp = clock.millis();
+            double rateFactor = scenario == null ? 1
+                    : 1 + scenario.severity(Scenario.Condition.TACHYCARDIA, patientId, timestamp);
+            double ecgValue = simulateEcgWaveform(state.random, state.lastEcgValue, timestamp, rateFactor);
+            outputStrategy.output(patientId, timestamp, Labels.ECG, ecgValue);
+            state.lastEcgValue = ecgValue;
         } catch (Exception e) {
             System.err.println("An error occurred while generating ECG data for patient " + patientId);
             e.printStackTrace(); // This will print the stack trace to help identify where the error occurred.
         }
     }
 
-    private double simulateEcgWaveform(int patientId, double lastEcgValue) {
+    private double simulateEcgWaveform(SplittableRandom random, double lastEcgValue, long timestamp, double rateFactor) {
         // Simplified ECG waveform generation based on sinusoids
         double hr = 60.0 + random.nextDouble() * 20.0; // Simulate heart rate variability between 60 and 80 bpm
-        double t = System.currentTimeMillis() / 1000.0; // Use system time to simulate continuous time
+        hr *= rateFactor; // Up to twice as fast in tachycardia
+        double t = timestamp / 1000.0; // Use the sample time to simulate continuous time
         double ecgFrequency = hr / 60.0; // Convert heart rate to Hz
 
         // Simulate different components of the ECG signal
@@ -43,4 +100,13 @@ public class ECGDataGenerator implements PatientDataGenerator {
 
         return pWave + qrsComplex + tWave + random.nextDouble() * 0.05; // Add small noise
     }
+
+    private static final class State {
+        private final SplittableRandom random; // One stream per patient
+        private double lastEcgValue; // The initial ECG value can be set to 0
+
+        private State(SplittableRandom random) {
+            this.random = random;
+        }
+    }
 }
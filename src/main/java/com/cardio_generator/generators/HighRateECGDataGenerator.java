@@ -0,0 +1,240 @@
+package com.cardio_generator.generators;
+
+import java.time.Clock;
+import java.util.SplittableRandom;
+
+import com.cardio_generator.outputs.Labels;
+import com.cardio_generator.outputs.OutputStrategy;
+
+/**
+ * Generates an ECG waveform at a realistic sample rate, such as 250 or 500 Hz.
+ * <p>
+ * Every call generates the samples of a patient from the previous call up to the current time, so
+ * the generator is meant to be scheduled every tick. The samples are emitted in blocks through
+ * {@link OutputStrategy#outputBatch(int, int, long[], double[], int)}.
+ * <p>
+ * A beat is read from a table that is computed once: the P wave, the QRS complex and the T wave as
+ * a sum of Gaussian bumps over the phase of the beat, as in the ECGSYN model. Per sample only the
+ * phases are advanced and the tables are interpolated, without calling {@link Math#sin(double)}.
+ * Each patient has their own heart rate between 60 and 80 bpm, and every beat varies its length by
+ * up to 5%. A slow respiratory baseline wander and a little noise are added. Tachycardia in a
+ * {@link Scenario} shortens the beats, up to twice the patient's rate at full severity.
+ */
+public class HighRateECGDataGenerator implements PatientDataGenerator {
+    /**
+     * The default sample rate, in Hz.
+     */
+    public static final double DEFAULT_SAMPLE_RATE_HZ = 250;
+    private static final int TABLE_SIZE = 4096;
+    private static final int BATCH_SIZE = 512;
+    private static final long MAX_BACKLOG_NANOS = 10_000_000_000L; // Longer gaps are skipped
+    private static final double BREATH_MILLIS = 4000;
+    private static final double RR_VARIABILITY = 0.05;
+
+    // One beat, with one extra entry so that interpolation never wraps
+    private static final double[] BEAT = beatTable();
+    private static final double[] BREATH = breathTable();
+
+    private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<>();
+
+    private final PatientStateMap<State> states;
+    private final Clock clock;
+    private final long seed;
+    private final long intervalNanos;
+    private final double intervalMillis;
+    private Scenario scenario;
+
+    /**
+     * Instantiates a new High rate ECG data generator with the default sample rate and a random seed.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     */
+    public HighRateECGDataGenerator(int patientCount, Clock clock) {
+        this(patientCount, clock, RandomStreams.randomSeed(), DEFAULT_SAMPLE_RATE_HZ);
+    }
+
+    /**
+     * Instantiates a new High rate ECG data generator.
+     *
+     * @param patientCount the patient count
+     * @param clock        the clock the readings are timestamped with
+     * @param seed         the seed of the patients' random streams; the same seed generates the same data
+     * @param sampleRateHz the number of samples per second of every patient
+     */
+    public HighRateECGDataGenerator(int patientCount, Clock clock, long seed, double sampleRateHz) {
+        if (!(sampleRateHz > 0) || sampleRateHz > 10_000) {
+            throw new IllegalArgumentException("The sample rate must be between 0 and 10000 Hz, got " + sampleRateHz);
+        }
+        this.clock = clock;
+        this.seed = seed;
+        this.intervalNanos = Math.round(1e9 / sampleRateHz);
+        this.intervalMillis = intervalNanos / 1e6;
+        this.states = new PatientStateMap<>(patientCount);
+        for (int i = 1; i <= patientCount; i++) {
+            admit(i);
+        }
+    }
+
+    @Override
+    public final void admit(int patientId) {
+        if (states.get(patientId) == null) {
+            SplittableRandom random = RandomStreams.forPatient(seed, patientId);
+            State state = new State(random);
+            state.nextSampleNanos = Long.MIN_VALUE; // The first sample is at the first call
+            state.meanRrMillis = 60_000.0 / (60.0 + random.nextDouble() * 20.0);
+            state.rrMillis = state.meanRrMillis;
+            state.beatPhase = random.nextDouble();
+            state.breathPhase = random.nextDouble();
+            state.amplitude = 0.8 + random.nextDouble() * 0.4;
+            states.put(patientId, state);
+        }
+    }
+
+    @Override
+    public void discharge(int patientId) {
+        states.remove(patientId);
+    }
+
+    /**
+     * Returns the mean heart rate of a patient.
+     *
+     * @param patientId the patient id
+     * @return the heart rate, in beats per minute, or NaN if the patient is not admitted
+     */
+    public double getHeartRate(int patientId) {
+        State state = states.get(patientId);
+        return state == null ? Double.NaN : 60_000.0 / state.meanRrMillis;
+    }
+
+    @Override
+    public void setScenario(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    @Override
+    public void generate(int patientId, OutputStrategy outputStrategy) {
+        try {
+            State state = states.get(patientId);
+            if (state == null) {
+                return;
+            }
+            long millis = clock.millis();
+            long now = millis * 1_000_000;
+            if (scenario != null) {
+                // Checked once per call; the beats already under way keep their length
+                state.rateFactor = 1 + scenario.severity(Scenario.Condition.TACHYCARDIA, patientId, millis);
+            }
+            long next = state.nextSampleNanos;
+            if (next == Long.MIN_VALUE) {
+                next = now;
+            } else if (now - next > MAX_BACKLOG_NANOS) {
+                next = now - MAX_BACKLOG_NANOS;
+            }
+            int due = now < next ? 1 : (int) Math.min(BATCH_SIZE, (now - next) / intervalNanos + 1);
+            Buffers buffers = BUFFERS.get();
+            if (buffers == null || buffers.timestamps.length < due) {
+                // Sized to the samples that are due rather than to a full batch, since a virtual
+                // thread may only live for this one call
+                buffers = new Buffers(due);
+                BUFFERS.set(buffers);
+            }
+            long[] timestamps = buffers.timestamps;
+            double[] values = buffers.values;
+            int count = 0;
+            for (; next <= now; next += intervalNanos) {
+                timestamps[count] = next / 1_000_000;
+                values[count] = nextSample(state);
+                if (++count == timestamps.length) {
+                    outputStrategy.outputBatch(patientId, Labels.ECG, timestamps, values, count);
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                outputStrategy.outputBatch(patientId, Labels.ECG, timestamps, values, count);
+            }
+            state.nextSampleNanos = next;
+        } catch (Exception e) {
+            System.err.println("An error occurred while generating ECG data for patient " + patientId);
+            e.printStackTrace();
+        }
+    }
+
+    private double nextSample(State state) {
+        SplittableRandom random = state.random;
+        double value = state.amplitude * lookup(BEAT, state.beatPhase)
+                + 0.05 * lookup(BREATH, state.breathPhase)
+                + 0.01 * random.nextGaussian();
+
+        double beatPhase = state.beatPhase + intervalMillis / state.rrMillis;
+        if (beatPhase >= 1) {
+            beatPhase -= 1;
+            // The next beat is a little longer or shorter
+            state.rrMillis = state.meanRrMillis / state.rateFactor * (1 + RR_VARIABILITY * (2 * random.nextDouble() - 1));
+        }
+        state.beatPhase = beatPhase;
+        double breathPhase = state.breathPhase + intervalMillis / BREATH_MILLIS;
+        state.breathPhase = breathPhase >= 1 ? breathPhase - 1 : breathPhase;
+        return value;
+    }
+
+    private static double lookup(double[] table, double phase) {
+        double position = phase * TABLE_SIZE;
+        int index = (int) position;
+        double fraction = position - index;
+        return table[index] + (table[index + 1] - table[index]) * fraction;
+    }
+
+    private static double[] beatTable() {
+        // Centre, width and amplitude of the P, Q, R, S and T waves, as fractions of the beat
+        double[][] waves = {
+                {0.15, 0.025, 0.15},
+                {0.30, 0.008, -0.15},
+                {0.32, 0.010, 1.0},
+                {0.34, 0.008, -0.25},
+                {0.60, 0.040, 0.35},
+        };
+        double[] table = new double[TABLE_SIZE + 1];
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            double phase = (double) i / TABLE_SIZE;
+            for (double[] wave : waves) {
+                double distance = (phase - wave[0]) / wave[1];
+                table[i] += wave[2] * Math.exp(-0.5 * distance * distance);
+            }
+        }
+        return table;
+    }
+
+    private static double[] breathTable() {
+        double[] table = new double[TABLE_SIZE + 1];
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            table[i] = Math.sin(2 * Math.PI * i / TABLE_SIZE);
+        }
+        return table;
+    }
+
+    private static final class Buffers {
+        private final long[] timestamps;
+        private final double[] values;
+
+        private Buffers(int size) {
+            this.timestamps = new long[size];
+            this.values = new double[size];
+        }
+    }
+
+    private static final class State {
+        private final SplittableRandom random; // One stream per patient
+        private long nextSampleNanos;
+        private double meanRrMillis;
+        private double rrMillis;
+        private double beatPhase;
+        private double breathPhase;
+        private double amplitude;
+        private double rateFactor = 1; // Of the heart rate, raised by tachycardia
+
+        private State(SplittableRandom random) {
+            this.random = random;
+        }
+    }
+}
@@ -8,9 +8,40 @@ import com.cardio_generator.outputs.OutputStrategy;
 public interface PatientDataGenerator {
     /**
      * Generate.
+     * Generators keep state per patient, so data for the same patient must not be generated by two threads at once.
+     * Patients that were not admitted, or have been discharged, get no data.
      *
      * @param patientId      the patient id
      * @param outputStrategy the output strategy
      */
     void generate(int patientId, OutputStrategy outputStrategy);
+
+    /**
+     * Starts keeping state for a patient, so that data can be generated for them. Admitting a
+     * patient who is already admitted changes nothing. Must not be called while data is being
+     * generated; {@link com.cardio_generator.TickScheduler#admit(int)} calls it between ticks.
+     *
+     * @param patientId the patient id, which can be any int
+     */
+    default void admit(int patientId) {
+    }
+
+    /**
+     * Drops the state of a patient. Must not be called while data is being generated;
+     * {@link com.cardio_generator.TickScheduler#discharge(int)} calls it between ticks.
+     *
+     * @param patientId the patient id
+     */
+    default void discharge(int patientId) {
+    }
+
+    /**
+     * Applies the deteriorations of a scenario to the generated data, from then on. Generators of
+     * measurements that no scenario condition affects ignore it. Must not be called while data is
+     * being generated.
+     *
+     * @param scenario the scenario, or null for none
+     */
+    default void setScenario(Scenario scenario) {
+    }
 }
@@ -0,0 +1,183 @@
+package com.cardio_generator.generators;
+
+/**
+ * Maps patient IDs to the state a generator keeps for them, without boxing the IDs.
+ * <p>
+ * The IDs and states are kept in two parallel arrays and found by open addressing with linear
+ * probing, so a lookup is a hash and usually a single array read. Removing a patient moves the
+ * entries after it back instead of leaving a tombstone, so lookups stay short however many
+ * patients come and go. The arrays grow and shrink with the number of patients, not with the
+ * largest ID, so sparse hospital IDs cost no more than 1..N.
+ * <p>
+ * The map is not thread-safe. Generators are only changed between ticks of the
+ * {@link com.cardio_generator.TickScheduler}, while no data is being generated.
+ *
+ * @param <S> the type of the per-patient state
+ */
+public final class PatientStateMap<S> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values; // null marks a free slot, so every int can be an ID
+    private int size;
+    private int mask;
+
+    /**
+     * Creates an empty map.
+     */
+    public PatientStateMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Creates an empty map with room for a number of patients.
+     *
+     * @param expectedSize the number of patients to make room for
+     */
+    public PatientStateMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Returns the state of a patient.
+     *
+     * @param patientId the patient id
+     * @return the state, or null if the patient is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public S get(int patientId) {
+        int[] keys = this.keys;
+        Object[] values = this.values;
+        for (int i = slot(patientId, mask); ; i = (i + 1) & mask) {
+            Object value = values[i];
+            if (value == null || keys[i] == patientId) {
+                return (S) value;
+            }
+        }
+    }
+
+    /**
+     * Sets the state of a patient.
+     *
+     * @param patientId the patient id
+     * @param state     the state, not null
+     * @return the previous state, or null if the patient was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public S put(int patientId, S state) {
+        if (state == null) {
+            throw new NullPointerException("The state of patient " + patientId + " is null");
+        }
+        int i = slot(patientId, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == patientId) {
+                S previous = (S) values[i];
+                values[i] = state;
+                return previous;
+            }
+        }
+        keys[i] = patientId;
+        values[i] = state;
+        // Kept at most half full, so that probe sequences stay short
+        if (++size > keys.length / 2) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the state of a patient.
+     *
+     * @param patientId the patient id
+     * @return the removed state, or null if the patient was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public S remove(int patientId) {
+        int i = slot(patientId, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == patientId) {
+                break;
+            }
+        }
+        S removed = (S) values[i];
+        if (removed == null) {
+            return null;
+        }
+        // Move back every following entry that would otherwise no longer be found from its slot
+        int free = i;
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - free) & mask)) {
+                keys[free] = keys[j];
+                values[free] = values[j];
+                free = j;
+            }
+        }
+        values[free] = null;
+        if (--size < keys.length / 8 && keys.length > MIN_CAPACITY) {
+            resize(keys.length / 2);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the number of patients in the map.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the IDs of the patients in the map, in no particular order.
+     *
+     * @return the IDs
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i], mask);
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 2 < expectedSize) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private static int slot(int patientId, int mask) {
+        // Spreads consecutive IDs, and IDs that differ only in their high bits, over the table
+        int h = patientId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,49 @@
+package com.cardio_generator.generators;
+
+import java.util.SplittableRandom;
+
+/**
+ * Creates the random number streams of the generators.
+ * Every patient gets its own {@link SplittableRandom}, seeded from the generator's seed and the
+ * patient's ID. Generators running on different threads therefore never share random state, and a
+ * generator produces the same data for a patient whenever it is given the same seed, whichever
+ * other patients are admitted or discharged and in whatever order.
+ */
+final class RandomStreams {
+
+    private RandomStreams() {
+    }
+
+    /**
+     * Returns a seed for a generator that is not given one.
+     *
+     * @return a seed that differs between calls
+     */
+    static long randomSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    /**
+     * Creates the random stream of a patient.
+     *
+     * @param seed      the seed of the generator
+     * @param patientId the patient id
+     * @return the stream
+     */
+    static SplittableRandom forPatient(long seed, int patientId) {
+        // Mixed, since SplittableRandom streams of nearby seeds are shifted copies of each other
+        return new SplittableRandom(mix(seed ^ mix(patientId)));
+    }
+
+    /**
+     * Mixes the bits of a value, so that nearby values give unrelated results.
+     *
+     * @param z the value
+     * @return the mixed value
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
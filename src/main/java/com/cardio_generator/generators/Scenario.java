@@ -0,0 +1,226 @@
+package com.cardio_generator.generators;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A schedule of deteriorations of patients, which the generators apply on top of their normal
+ * physiology so that the alert rules have something to fire on.
+ * <p>
+ * A scenario is a JSON document of the form {@code {"events": [ ... ]}}. Every event has a
+ * {@code condition}, the patients it affects and when it happens:
+ * <pre>
+ * { "condition": "hypotension", "patients": [1, 2, "10-19"], "start": "PT5M",
+ *   "ramp": "PT10M", "duration": "PT30M", "recovery": "PT5M", "severity": 1.0 }
+ * </pre>
+ * The condition is {@code hypotension}, {@code desaturation}, {@code tachycardia} or
+ * {@code critical}, which is all three at once. The patients are a list of IDs and ID ranges, or
+ * {@code "fraction": 0.2} for a random fifth of all patients, chosen by the seed and the patient ID
+ * so that patients admitted later are included just as well. {@code start} is the time after the
+ * start of the simulation. The severity then rises linearly over {@code ramp}, stays for
+ * {@code duration} and falls back to 0 over {@code recovery}; ramp and recovery are optional.
+ * At full severity a patient's systolic pressure drops by 45 mmHg, saturation by 12 points and the
+ * heart rate doubles.
+ */
+public final class Scenario {
+    /**
+     * The deteriorations a scenario can schedule.
+     */
+    public enum Condition {
+        HYPOTENSION, DESATURATION, TACHYCARDIA
+    }
+
+    private static final int ALL_CONDITIONS = (1 << Condition.values().length) - 1;
+
+    private final Event[] events;
+
+    private Scenario(Event[] events) {
+        this.events = events;
+    }
+
+    /**
+     * Parses a scenario document.
+     *
+     * @param json        the scenario document
+     * @param startMillis the start of the simulation, which the event times are relative to
+     * @param seed        the seed that picks the patients of events given as a fraction
+     * @return the scenario
+     * @throws IllegalArgumentException if the document or one of its events is invalid
+     */
+    public static Scenario fromJson(String json, long startMillis, long seed) {
+        JSONArray events;
+        try {
+            events = new JSONObject(json).getJSONArray("events");
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Invalid scenario document: " + e.getMessage(), e);
+        }
+        Event[] parsed = new Event[events.length()];
+        for (int i = 0; i < parsed.length; i++) {
+            try {
+                parsed[i] = parseEvent(events.getJSONObject(i), startMillis, seed + i);
+            } catch (JSONException | DateTimeParseException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid scenario event " + i + ": " + e.getMessage(), e);
+            }
+        }
+        return new Scenario(parsed);
+    }
+
+    /**
+     * Reads a scenario file.
+     *
+     * @param path        the scenario file
+     * @param startMillis the start of the simulation, which the event times are relative to
+     * @param seed        the seed that picks the patients of events given as a fraction
+     * @return the scenario
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the document or one of its events is invalid
+     */
+    public static Scenario fromFile(Path path, long startMillis, long seed) throws IOException {
+        return fromJson(Files.readString(path), startMillis, seed);
+    }
+
+    /**
+     * Returns the number of events in the scenario.
+     *
+     * @return the event count
+     */
+    public int getEventCount() {
+        return events.length;
+    }
+
+    /**
+     * Returns how far a patient has deteriorated at a point in time. Where events overlap the
+     * most severe one counts.
+     *
+     * @param condition the condition
+     * @param patientId the patient id
+     * @param timeMillis the time, in milliseconds since the Unix epoch
+     * @return the severity, from 0 for none to 1 for the full effect
+     */
+    public double severity(Condition condition, int patientId, long timeMillis) {
+        int bit = 1 << condition.ordinal();
+        double severity = 0;
+        for (Event event : events) {
+            if ((event.conditions & bit) != 0 && timeMillis > event.startMillis && timeMillis < event.endMillis
+                    && event.affects(patientId)) {
+                severity = Math.max(severity, event.severityAt(timeMillis));
+            }
+        }
+        return severity;
+    }
+
+    private static Event parseEvent(JSONObject json, long startMillis, long seed) {
+        String name = json.getString("condition").toLowerCase(Locale.ROOT);
+        int conditions;
+        if (name.equals("critical")) {
+            conditions = ALL_CONDITIONS;
+        } else {
+            try {
+                conditions = 1 << Condition.valueOf(name.toUpperCase(Locale.ROOT)).ordinal();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown condition '" + name + "'");
+            }
+        }
+        long start = startMillis + Duration.parse(json.getString("start")).toMillis();
+        long ramp = Duration.parse(json.optString("ramp", "PT0S")).toMillis();
+        long hold = Duration.parse(json.getString("duration")).toMillis();
+        long recovery = Duration.parse(json.optString("recovery", "PT0S")).toMillis();
+        double severity = json.optDouble("severity", 1);
+        if (ramp < 0 || hold < 0 || recovery < 0 || !(severity > 0 && severity <= 1)) {
+            throw new IllegalArgumentException("Durations must not be negative and the severity must be in (0, 1]");
+        }
+
+        double fraction = -1;
+        List<int[]> ranges = new ArrayList<>();
+        if (json.has("fraction")) {
+            fraction = json.getDouble("fraction");
+            if (!(fraction >= 0 && fraction <= 1)) {
+                throw new IllegalArgumentException("The fraction must be between 0 and 1");
+            }
+        } else {
+            Object patients = json.get("patients");
+            JSONArray list = patients instanceof JSONArray ? (JSONArray) patients : new JSONArray().put(patients);
+            for (int i = 0; i < list.length(); i++) {
+                ranges.add(parseRange(list.get(i)));
+            }
+        }
+        return new Event(conditions, start, ramp, hold, recovery, severity, fraction, seed,
+                ranges.toArray(new int[0][]));
+    }
+
+    private static int[] parseRange(Object patients) {
+        if (patients instanceof Number) {
+            int id = ((Number) patients).intValue();
+            return new int[]{id, id};
+        }
+        String text = patients.toString().trim();
+        int dash = text.indexOf('-', 1); // Not the sign of a negative first ID
+        try {
+            if (dash < 0) {
+                int id = Integer.parseInt(text);
+                return new int[]{id, id};
+            }
+            return new int[]{Integer.parseInt(text.substring(0, dash).trim()),
+                    Integer.parseInt(text.substring(dash + 1).trim())};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid patients '" + text + "', expected an ID or a range like 10-19");
+        }
+    }
+
+    private static final class Event {
+        private final int conditions; // One bit per Condition
+        private final long startMillis;
+        private final long fullMillis; // End of the ramp
+        private final long recoveryMillis; // End of the hold
+        private final long endMillis;
+        private final double severity;
+        private final long threshold; // Patients whose hash is below it are picked, for fractions
+        private final long seed;
+        private final int[][] ranges;
+
+        private Event(int conditions, long startMillis, long ramp, long hold, long recovery, double severity,
+                      double fraction, long seed, int[][] ranges) {
+            this.conditions = conditions;
+            this.startMillis = startMillis;
+            this.fullMillis = startMillis + ramp;
+            this.recoveryMillis = fullMillis + hold;
+            this.endMillis = recoveryMillis + recovery;
+            this.severity = severity;
+            this.threshold = fraction < 0 ? -1 : (long) (fraction * (1L << 53));
+            this.seed = seed;
+            this.ranges = ranges;
+        }
+
+        private boolean affects(int patientId) {
+            if (threshold >= 0) {
+                return (RandomStreams.mix(seed ^ RandomStreams.mix(patientId)) >>> 11) < threshold;
+            }
+            for (int[] range : ranges) {
+                if (patientId >= range[0] && patientId <= range[1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private double severityAt(long timeMillis) {
+            if (timeMillis < fullMillis) {
+                return severity * (timeMillis - startMillis) / (fullMillis - startMillis);
+            }
+            if (timeMillis <= recoveryMillis) {
+                return severity;
+            }
+            return severity * (endMillis - timeMillis) / (endMillis - recoveryMillis);
+        }
+    }
+}
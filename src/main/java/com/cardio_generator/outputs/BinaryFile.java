@@ -0,0 +1,373 @@
+package com.cardio_generator.outputs;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A data file written by {@link BinaryOutputStrategy}, mapped into memory for reading.
+ * <p>
+ * The data file, e.g. {@code samples-000001.bin}, starts with a 16 byte header (the magic number
+ * {@code CDB1}, the format version and 8 reserved bytes), followed by blocks. A block holds samples
+ * of one patient and one label as two columns: a 32 byte block header (patient id, label code,
+ * sample count, 4 reserved bytes, first and last timestamp), then the timestamps as 8 byte longs,
+ * then the values as 8 byte doubles. All numbers are little-endian.
+ * <p>
+ * When the strategy is closed it writes the index file, e.g. {@code samples-000001.idx}: the magic
+ * number {@code CDI1}, the version, the names of the label codes used in the data file and then
+ * the offset and header of every block. With the index, the blocks of a patient, label or time
+ * range are found without touching the data file. Without it, for a data file that was not closed
+ * properly, the block headers are read from the data file itself and the built-in label codes of
+ * {@link Labels} are used.
+ * <p>
+ * Samples are read straight from the mapped file, without copying it into the heap.
+ */
+public final class BinaryFile implements AutoCloseable {
+    static final int DATA_MAGIC = 0x31424443; // "CDB1"
+    static final int INDEX_MAGIC = 0x31494443; // "CDI1"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_BYTES = 16;
+    static final int BLOCK_HEADER_BYTES = 32;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final long MAX_MAPPING_BYTES = 1L << 30;
+    private static final Pattern NAME = Pattern.compile("samples-(\\d+)\\.bin");
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<Block> blocks;
+    private final String[] labels;
+    private MappedByteBuffer mapping;
+    private long mappingStart;
+
+    private BinaryFile(Path path, FileChannel channel, List<Block> blocks, String[] labels) {
+        this.path = path;
+        this.channel = channel;
+        this.blocks = Collections.unmodifiableList(blocks);
+        this.labels = labels;
+    }
+
+    /**
+     * Opens a data file, using its index if there is one.
+     *
+     * @param path the data file
+     * @return the opened file
+     * @throws IOException if the file cannot be read or is not a data file
+     */
+    public static BinaryFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).order(ORDER);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // Read the whole header
+            }
+            if (header.position() < FILE_HEADER_BYTES || header.getInt(0) != DATA_MAGIC) {
+                throw new IOException(path + " is not a binary data file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(path + " has unsupported version " + header.getInt(4));
+            }
+            Path index = path.resolveSibling(path.getFileName().toString().replaceFirst("\\.bin$", ".idx"));
+            List<Block> blocks = new ArrayList<>();
+            String[] labels;
+            try {
+                labels = readIndex(index, blocks);
+            } catch (NoSuchFileException e) {
+                labels = scanBlocks(channel, blocks);
+            }
+            return new BinaryFile(path, channel, blocks, labels);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the data files in a directory, in the order they were written.
+     *
+     * @param directory the directory the binary output wrote to
+     * @return the data files
+     * @throws IOException if the directory cannot be read
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "samples-*.bin")) {
+            for (Path entry : entries) {
+                if (NAME.matcher(entry.getFileName().toString()).matches()) {
+                    files.add(entry);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Returns the blocks of the file, in the order they were written.
+     *
+     * @return the blocks
+     */
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Returns the label with a code used in this file.
+     *
+     * @param code the label code stored in the file
+     * @return the label
+     */
+    public String getLabel(int code) {
+        return code >= 0 && code < labels.length && labels[code] != null ? labels[code] : Labels.name(code);
+    }
+
+    /**
+     * Passes every sample of the file to an output.
+     *
+     * @param output the output
+     * @throws IOException if the file cannot be read
+     */
+    public void scan(OutputStrategy output) throws IOException {
+        scan(-1, null, Long.MIN_VALUE, Long.MAX_VALUE, output);
+    }
+
+    /**
+     * Passes the samples of a patient and label within a time range to an output, in the order
+     * they were written. Blocks that cannot hold such samples are skipped by their header.
+     * The label codes passed to the output are the codes of this JVM's {@link Labels}.
+     *
+     * @param patientId the patient, or -1 for all patients
+     * @param label     the label, or null for all labels
+     * @param startTime the start of the range, inclusive, in milliseconds since the Unix epoch
+     * @param endTime   the end of the range, inclusive, in milliseconds since the Unix epoch
+     * @param output    the output
+     * @throws IOException if the file cannot be read
+     */
+    public void scan(int patientId, String label, long startTime, long endTime, OutputStrategy output)
+            throws IOException {
+        int[] codes = labelCodes();
+        for (Block block : blocks) {
+            if ((patientId >= 0 && block.patientId != patientId)
+                    || (label != null && !label.equals(getLabel(block.labelCode)))
+                    || block.lastTimestamp < startTime || block.firstTimestamp > endTime) {
+                continue;
+            }
+            int labelCode = block.labelCode < codes.length ? codes[block.labelCode] : block.labelCode;
+            ByteBuffer buffer = map(block);
+            int timestamps = (int) (block.offset - mappingStart) + BLOCK_HEADER_BYTES;
+            int values = timestamps + block.count * Long.BYTES;
+            for (int i = 0; i < block.count; i++) {
+                long timestamp = buffer.getLong(timestamps + i * Long.BYTES);
+                if (timestamp >= startTime && timestamp <= endTime) {
+                    output.output(block.patientId, timestamp, labelCode, buffer.getDouble(values + i * Double.BYTES));
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the samples of a block into arrays, which must hold at least {@link Block#getCount()}
+     * samples.
+     *
+     * @param block      a block of this file
+     * @param timestamps receives the timestamps of the samples
+     * @param values     receives the values of the samples
+     * @return the label code of the block in this JVM's {@link Labels}
+     * @throws IOException if the file cannot be read
+     */
+    public int read(Block block, long[] timestamps, double[] values) throws IOException {
+        ByteBuffer buffer = map(block).duplicate().order(ORDER);
+        buffer.position((int) (block.offset - mappingStart) + BLOCK_HEADER_BYTES);
+        buffer.asLongBuffer().get(timestamps, 0, block.count);
+        buffer.position(buffer.position() + block.count * Long.BYTES);
+        buffer.asDoubleBuffer().get(values, 0, block.count);
+        int code = block.labelCode;
+        return code >= 0 && code < labels.length && labels[code] != null ? Labels.code(labels[code]) : code;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapping = null;
+        channel.close();
+    }
+
+    /**
+     * Returns a mapping of the file that holds the whole block, mapping the next part of the file
+     * if needed. Parts are at most 1 GiB, so files of any size can be read.
+     */
+    private ByteBuffer map(Block block) throws IOException {
+        long end = block.offset + block.byteSize();
+        if (mapping == null || block.offset < mappingStart || end > mappingStart + mapping.capacity()) {
+            long size = Math.min(Math.max(MAX_MAPPING_BYTES, block.byteSize()), channel.size() - block.offset);
+            if (size < block.byteSize()) {
+                throw new IOException(path + " ends inside a block");
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, block.offset, size);
+            mapping.order(ORDER);
+            mappingStart = block.offset;
+        }
+        return mapping;
+    }
+
+    /**
+     * Maps the label codes stored in the file to the codes of this JVM's {@link Labels}.
+     */
+    private int[] labelCodes() {
+        int[] codes = new int[labels.length];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = labels[i] != null ? Labels.code(labels[i]) : i;
+        }
+        return codes;
+    }
+
+    private static String[] readIndex(Path index, List<Block> blocks) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(index)).order(ORDER);
+        try {
+            if (buffer.getInt() != INDEX_MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(index + " is not a binary index file");
+            }
+            String[] labels = new String[buffer.getInt()];
+            for (int i = 0; i < labels.length; i++) {
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                labels[i] = name.length == 0 ? null : new String(name, StandardCharsets.UTF_8);
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                long offset = buffer.getLong();
+                blocks.add(readBlockHeader(buffer, offset));
+            }
+            return labels;
+        } catch (BufferUnderflowException e) {
+            throw new IOException(index + " is truncated", e);
+        }
+    }
+
+    private static String[] scanBlocks(FileChannel channel, List<Block> blocks) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES).order(ORDER);
+        long offset = FILE_HEADER_BYTES;
+        long size = channel.size();
+        while (offset + BLOCK_HEADER_BYTES <= size) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (channel.read(header, offset + header.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            header.flip();
+            Block block = readBlockHeader(header, offset);
+            if (block.count <= 0 || offset + block.byteSize() > size) {
+                break; // A block that was not completely written
+            }
+            blocks.add(block);
+            offset += block.byteSize();
+        }
+        return new String[0];
+    }
+
+    private static Block readBlockHeader(ByteBuffer buffer, long offset) {
+        int patientId = buffer.getInt();
+        int labelCode = buffer.getInt();
+        int count = buffer.getInt();
+        buffer.getInt();
+        long firstTimestamp = buffer.getLong();
+        long lastTimestamp = buffer.getLong();
+        return new Block(offset, patientId, labelCode, count, firstTimestamp, lastTimestamp);
+    }
+
+    /**
+     * Returns the name of a data file.
+     */
+    static String dataName(int sequence) {
+        return String.format("samples-%06d.bin", sequence);
+    }
+
+    /**
+     * Returns the name of the index of a data file.
+     */
+    static String indexName(int sequence) {
+        return String.format("samples-%06d.idx", sequence);
+    }
+
+    /**
+     * Returns the highest data file number in a directory, or 0 if there is none.
+     */
+    static int lastSequence(Path directory) throws IOException {
+        int last = 0;
+        for (Path file : list(directory)) {
+            Matcher matcher = NAME.matcher(file.getFileName().toString());
+            if (matcher.matches()) {
+                last = Math.max(last, Integer.parseInt(matcher.group(1)));
+            }
+        }
+        return last;
+    }
+
+    /**
+     * The header of a block: whose samples it holds, how many and from which time range.
+     */
+    public static final class Block {
+        private final long offset;
+        private final int patientId;
+        private final int labelCode;
+        private final int count;
+        private final long firstTimestamp;
+        private final long lastTimestamp;
+
+        Block(long offset, int patientId, int labelCode, int count, long firstTimestamp, long lastTimestamp) {
+            this.offset = offset;
+            this.patientId = patientId;
+            this.labelCode = labelCode;
+            this.count = count;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getPatientId() {
+            return patientId;
+        }
+
+        /**
+         * Returns the label code as stored in the file; see {@link BinaryFile#getLabel(int)}.
+         *
+         * @return the label code
+         */
+        public int getLabelCode() {
+            return labelCode;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getFirstTimestamp() {
+            return firstTimestamp;
+        }
+
+        public long getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        long byteSize() {
+            return BLOCK_HEADER_BYTES + (long) count * (Long.BYTES + Double.BYTES);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.cardio_generator.outputs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the samples to a binary file of fixed-width columns, see {@link BinaryFile} for the format.
+ * <p>
+ * The samples of every patient and label are collected in memory, as an array of timestamps and an
+ * array of values, until a block of them is full. The block is then written to the data file in one
+ * go. A sample takes 16 bytes in the file, against about 70 bytes as a line of the file output, and
+ * is read back without parsing. Blocks that are not full are written when the strategy is flushed
+ * or closed; closing also writes the index of the blocks. Every run writes a new data file, so a
+ * restarted simulator does not overwrite the data of earlier runs.
+ */
+public class BinaryOutputStrategy implements OutputStrategy {
+    /**
+     * The default number of samples in a block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    private static final int INITIAL_COLUMN_SIZE = 64;
+
+    private final Path directory;
+    private final int sequence;
+    private final int blockSize;
+    private final FileChannel channel;
+    private final ByteBuffer block;
+    private final List<BinaryFile.Block> blocks = new ArrayList<>();
+    private final Object columnsLock = new Object();
+    private volatile List<Map<Integer, Column>> columns = List.of(); // By label code, then by patient id
+    private volatile boolean closed;
+    private long position;
+
+    /**
+     * Instantiates a new Binary output strategy with the default block size.
+     *
+     * @param directory the directory to write to, which is created if needed
+     * @throws IOException if the data file cannot be created
+     */
+    public BinaryOutputStrategy(String directory) throws IOException {
+        this(directory, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Instantiates a new Binary output strategy.
+     *
+     * @param directory the directory to write to, which is created if needed
+     * @param blockSize the number of samples of a patient and label that are written together
+     * @throws IOException if the data file cannot be created
+     */
+    public BinaryOutputStrategy(String directory, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("The block size must be positive");
+        }
+        this.directory = Paths.get(directory);
+        this.blockSize = blockSize;
+        Files.createDirectories(this.directory);
+        this.sequence = BinaryFile.lastSequence(this.directory) + 1;
+        this.channel = FileChannel.open(this.directory.resolve(BinaryFile.dataName(sequence)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.block = ByteBuffer.allocateDirect(BinaryFile.BLOCK_HEADER_BYTES + blockSize * (Long.BYTES + Double.BYTES))
+                .order(BinaryFile.ORDER);
+        block.putInt(BinaryFile.DATA_MAGIC).putInt(BinaryFile.VERSION).putLong(0).flip();
+        writeFully();
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, int labelCode, double value) {
+        if (closed) {
+            System.err.println("Error writing " + Labels.name(labelCode) + " data: the binary output is closed");
+            return;
+        }
+        if (patientId < 0) {
+            System.err.println("Error writing " + Labels.name(labelCode) + " data: invalid patient id " + patientId);
+            return;
+        }
+        Column column = column(patientId, labelCode);
+        synchronized (column) {
+            column.add(timestamp, value);
+            if (column.count == blockSize) {
+                write(column);
+            }
+        }
+    }
+
+    /**
+     * Copies the samples into the column of the patient and label in bulk, under a single lock.
+     */
+    @Override
+    public void outputBatch(int patientId, int labelCode, long[] timestamps, double[] values, int count) {
+        if (closed) {
+            System.err.println("Error writing " + Labels.name(labelCode) + " data: the binary output is closed");
+            return;
+        }
+        if (patientId < 0) {
+            System.err.println("Error writing " + Labels.name(labelCode) + " data: invalid patient id " + patientId);
+            return;
+        }
+        Column column = column(patientId, labelCode);
+        synchronized (column) {
+            int done = 0;
+            while (done < count) {
+                int length = Math.min(count - done, blockSize - column.count);
+                column.addAll(timestamps, values, done, length);
+                done += length;
+                if (column.count == blockSize) {
+                    write(column);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the samples that are not yet in the file, as blocks that are not full.
+     */
+    public void flush() {
+        for (Map<Integer, Column> byPatient : columns) {
+            for (Column column : byPatient.values()) {
+                synchronized (column) {
+                    write(column);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining samples and the index, and closes the data file.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flush();
+        synchronized (this) {
+            try {
+                writeIndex();
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing binary output " + BinaryFile.dataName(sequence) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the column of a patient and label. The columns of a label are kept in a map by
+     * patient, so memory grows with the number of patients written rather than the largest ID.
+     */
+    private Column column(int patientId, int labelCode) {
+        List<Map<Integer, Column>> byLabel = columns;
+        if (labelCode >= byLabel.size()) {
+            synchronized (columnsLock) {
+                // Copied on write, so that readers never see a half-built list of labels
+                byLabel = columns;
+                if (labelCode >= byLabel.size()) {
+                    List<Map<Integer, Column>> grown = new ArrayList<>(byLabel);
+                    while (grown.size() <= labelCode) {
+                        grown.add(new ConcurrentHashMap<>());
+                    }
+                    byLabel = List.copyOf(grown);
+                    columns = byLabel;
+                }
+            }
+        }
+        Map<Integer, Column> byPatient = byLabel.get(labelCode);
+        Column column = byPatient.get(patientId);
+        if (column == null) {
+            column = byPatient.computeIfAbsent(patientId, id -> new Column(id, labelCode));
+        }
+        return column;
+    }
+
+    /**
+     * Writes the samples of a column as one block and empties the column. The caller holds the column's lock.
+     */
+    private void write(Column column) {
+        if (column.count == 0) {
+            return;
+        }
+        synchronized (this) {
+            long offset = position;
+            block.clear();
+            block.putInt(column.patientId).putInt(column.labelCode).putInt(column.count).putInt(0)
+                    .putLong(column.firstTimestamp).putLong(column.lastTimestamp);
+            block.asLongBuffer().put(column.timestamps, 0, column.count);
+            block.position(block.position() + column.count * Long.BYTES);
+            block.asDoubleBuffer().put(column.values, 0, column.count);
+            block.position(block.position() + column.count * Double.BYTES);
+            block.flip();
+            try {
+                writeFully();
+                blocks.add(new BinaryFile.Block(offset, column.patientId, column.labelCode, column.count,
+                        column.firstTimestamp, column.lastTimestamp));
+            } catch (IOException e) {
+                System.err.println("Error writing to binary output " + BinaryFile.dataName(sequence) + ": "
+                        + e.getMessage());
+            }
+        }
+        column.clear();
+    }
+
+    private void writeFully() throws IOException {
+        while (block.hasRemaining()) {
+            position += channel.write(block, position);
+        }
+    }
+
+    /**
+     * Writes the index to a temporary file first, so that an index that exists is always complete.
+     */
+    private void writeIndex() throws IOException {
+        int labelCount = Labels.count();
+        int size = 16;
+        byte[][] names = new byte[labelCount][];
+        for (int code = 0; code < labelCount; code++) {
+            names[code] = Labels.name(code).getBytes(StandardCharsets.UTF_8);
+            size += Short.BYTES + names[code].length;
+        }
+        size += blocks.size() * (Long.BYTES + BinaryFile.BLOCK_HEADER_BYTES);
+        ByteBuffer index = ByteBuffer.allocate(size).order(BinaryFile.ORDER);
+        index.putInt(BinaryFile.INDEX_MAGIC).putInt(BinaryFile.VERSION).putInt(labelCount);
+        for (byte[] name : names) {
+            index.putShort((short) name.length).put(name);
+        }
+        index.putInt(blocks.size());
+        for (BinaryFile.Block entry : blocks) {
+            index.putLong(entry.getOffset())
+                    .putInt(entry.getPatientId()).putInt(entry.getLabelCode()).putInt(entry.getCount()).putInt(0)
+                    .putLong(entry.getFirstTimestamp()).putLong(entry.getLastTimestamp());
+        }
+        Path target = directory.resolve(BinaryFile.indexName(sequence));
+        Path partial = directory.resolve(BinaryFile.indexName(sequence) + ".tmp");
+        Files.write(partial, Arrays.copyOf(index.array(), index.position()));
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The samples of one patient and label that are not yet in the file.
+     */
+    private final class Column {
+        private final int patientId;
+        private final int labelCode;
+        private long[] timestamps = new long[Math.min(INITIAL_COLUMN_SIZE, blockSize)];
+        private double[] values = new double[timestamps.length];
+        private int count;
+        private long firstTimestamp = Long.MAX_VALUE;
+        private long lastTimestamp = Long.MIN_VALUE;
+
+        private Column(int patientId, int labelCode) {
+            this.patientId = patientId;
+            this.labelCode = labelCode;
+        }
+
+        private void add(long timestamp, double value) {
+            ensureCapacity(count + 1);
+            track(timestamp);
+            timestamps[count] = timestamp;
+            values[count] = value;
+            count++;
+        }
+
+        private void addAll(long[] newTimestamps, double[] newValues, int from, int length) {
+            ensureCapacity(count + length);
+            for (int i = from; i < from + length; i++) {
+                track(newTimestamps[i]);
+            }
+            System.arraycopy(newTimestamps, from, timestamps, count, length);
+            System.arraycopy(newValues, from, values, count, length);
+            count += length;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > timestamps.length) {
+                int grown = Math.min(blockSize, Math.max(capacity, timestamps.length * 2));
+                timestamps = Arrays.copyOf(timestamps, grown);
+                values = Arrays.copyOf(values, grown);
+            }
+        }
+
+        private void track(long timestamp) {
+            firstTimestamp = Math.min(firstTimestamp, timestamp);
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+        }
+
+        private void clear() {
+            count = 0;
+            firstTimestamp = Long.MAX_VALUE;
+            lastTimestamp = Long.MIN_VALUE;
+        }
+    }
+}
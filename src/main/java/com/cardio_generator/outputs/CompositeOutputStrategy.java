@@ -0,0 +1,243 @@
+package com.cardio_generator.outputs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends every sample to several outputs at once.
+ * <p>
+ * Every output has its own bounded queue and its own thread that takes the samples from the queue
+ * and passes them on, so the generators never wait for an output and a slow output does not hold
+ * back the others. When the queue of an output is full, new samples are dropped for that output
+ * only. The dropped samples and the lag, the number of samples waiting in the queue, are counted
+ * per output.
+ */
+public class CompositeOutputStrategy implements OutputStrategy {
+    /**
+     * The default number of samples that may wait for each output.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final List<Sink> sinks = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a new Composite output strategy with the default queue capacity.
+     *
+     * @param outputs the outputs to send the samples to
+     */
+    public CompositeOutputStrategy(List<? extends OutputStrategy> outputs) {
+        this(outputs, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Instantiates a new Composite output strategy.
+     *
+     * @param outputs       the outputs to send the samples to
+     * @param queueCapacity the number of samples that may wait for each output, rounded up to a power of two
+     */
+    public CompositeOutputStrategy(List<? extends OutputStrategy> outputs, int queueCapacity) {
+        if (outputs.isEmpty()) {
+            throw new IllegalArgumentException("At least one output is needed");
+        }
+        if (queueCapacity <= 0 || queueCapacity > 1 << 30) {
+            throw new IllegalArgumentException("The queue capacity must be between 1 and 2^30");
+        }
+        int capacity = 1;
+        while (capacity < queueCapacity) {
+            capacity <<= 1;
+        }
+        for (OutputStrategy output : outputs) {
+            Sink sink = new Sink(output, capacity, "composite-output-" + sinks.size());
+            sinks.add(sink);
+            sink.thread.start();
+        }
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, int labelCode, double value) {
+        if (closed) {
+            return;
+        }
+        for (Sink sink : sinks) {
+            sink.offer(patientId, timestamp, labelCode, value);
+        }
+    }
+
+    /**
+     * Returns the number of outputs.
+     *
+     * @return the number of outputs
+     */
+    public int getSinkCount() {
+        return sinks.size();
+    }
+
+    /**
+     * Returns the output with the given index, in the order they were passed to the constructor.
+     *
+     * @param sink the index of the output
+     * @return the output
+     */
+    public OutputStrategy getSink(int sink) {
+        return sinks.get(sink).output;
+    }
+
+    /**
+     * Returns how many samples were dropped for an output because its queue was full.
+     *
+     * @param sink the index of the output
+     * @return the number of dropped samples
+     */
+    public long getDroppedSamples(int sink) {
+        return sinks.get(sink).dropped.get();
+    }
+
+    /**
+     * Returns how many samples were passed to an output.
+     *
+     * @param sink the index of the output
+     * @return the number of delivered samples
+     */
+    public long getDeliveredSamples(int sink) {
+        return sinks.get(sink).head;
+    }
+
+    /**
+     * Returns how many samples are waiting for an output, which is how far it lags behind the generators.
+     *
+     * @param sink the index of the output
+     * @return the number of queued samples
+     */
+    public long getQueuedSamples(int sink) {
+        Sink target = sinks.get(sink);
+        return Math.max(0, target.tail.get() - target.head);
+    }
+
+    /**
+     * Returns the largest number of samples that waited for an output at one time.
+     *
+     * @param sink the index of the output
+     * @return the highest number of queued samples
+     */
+    public long getMaxQueuedSamples(int sink) {
+        return sinks.get(sink).maxQueued.get();
+    }
+
+    /**
+     * Passes the queued samples on, then closes all outputs. Samples output after this are ignored.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Sink sink : sinks) {
+            LockSupport.unpark(sink.thread);
+        }
+        for (Sink sink : sinks) {
+            try {
+                sink.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sink.output.close();
+            if (sink.dropped.get() > 0) {
+                System.err.println("Output " + sink.thread.getName() + " (" + sink.output.getClass().getSimpleName()
+                        + ") dropped " + sink.dropped.get() + " samples");
+            }
+        }
+    }
+
+    /**
+     * An output with its queue, a bounded ring of samples stored in one array per field, and the
+     * thread that drains it.
+     * <p>
+     * Generator threads claim a slot by advancing the tail, write the sample and then publish it by
+     * setting the slot's sequence number; the drain thread reads slots in order once they are
+     * published and releases them for the next round by setting the sequence number again.
+     */
+    private final class Sink {
+        private final OutputStrategy output;
+        private final int mask;
+        private final AtomicLongArray sequences;
+        private final int[] patientIds;
+        private final long[] timestamps;
+        private final int[] labelCodes;
+        private final double[] values;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head; // Written by the drain thread only
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong maxQueued = new AtomicLong();
+        private final Thread thread;
+
+        private Sink(OutputStrategy output, int capacity, String name) {
+            this.output = output;
+            this.mask = capacity - 1;
+            this.sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+            this.patientIds = new int[capacity];
+            this.timestamps = new long[capacity];
+            this.labelCodes = new int[capacity];
+            this.values = new double[capacity];
+            this.thread = new Thread(this::drain, name);
+            thread.setDaemon(true);
+        }
+
+        private void offer(int patientId, long timestamp, int labelCode, double value) {
+            long position;
+            int slot;
+            while (true) {
+                position = tail.get();
+                slot = (int) position & mask;
+                long sequence = sequences.get(slot);
+                if (sequence < position) {
+                    // The slot still holds a sample from the previous round, so the queue is full
+                    dropped.incrementAndGet();
+                    return;
+                }
+                if (sequence == position && tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            }
+            patientIds[slot] = patientId;
+            timestamps[slot] = timestamp;
+            labelCodes[slot] = labelCode;
+            values[slot] = value;
+            sequences.lazySet(slot, position + 1);
+
+            long queued = position + 1 - head;
+            long max;
+            while (queued > (max = maxQueued.get()) && !maxQueued.compareAndSet(max, queued)) {
+                // Retry until the highest value is stored
+            }
+        }
+
+        private void drain() {
+            long position = head;
+            while (true) {
+                // Read the flag first, so that the samples queued before close are still passed on
+                boolean stopping = closed;
+                int slot = (int) position & mask;
+                if (sequences.get(slot) == position + 1) {
+                    try {
+                        output.output(patientIds[slot], timestamps[slot], labelCodes[slot], values[slot]);
+                    } catch (RuntimeException e) {
+                        System.err.println("Error in output " + thread.getName() + ": " + e.getMessage());
+                    }
+                    sequences.lazySet(slot, position + mask + 1);
+                    head = ++position;
+                } else if (stopping) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+    }
+}
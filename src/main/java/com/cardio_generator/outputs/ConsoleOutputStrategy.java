@@ -1,8 +1,205 @@
 package com.cardio_generator.outputs;
 
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The type Console output strategy.
+ * <p>
+ * Prints one {@code Patient ID: ..., Timestamp: ..., Label: ..., Data: ...} line per sample. The
+ * generator threads only format their line, with a per-thread {@link StringBuilder}, and add it to a
+ * bounded lock-free ring. A single writer thread sleeps until lines are queued, then drains all of
+ * them and prints them in large chunks, so the generators do not contend for the lock of the console
+ * stream. When the console falls behind and the ring is full, the generators wait for the writer
+ * instead of using more memory. Lines output after {@link #close()} are dropped.
+ */
 public class ConsoleOutputStrategy implements OutputStrategy {
+    /**
+     * The default number of lines that may wait to be printed.
+     */
+    public static final int DEFAULT_MAX_QUEUED_LINES = 64 * 1024;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final ThreadLocal<StringBuilder> LINE = ThreadLocal.withInitial(() -> new StringBuilder(96));
+
+    private final PrintStream out;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final String[] lines;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // Written by the writer thread, and by close once the writer has stopped
+    private volatile Thread writer; // Started by the first line, guarded by this
+    private volatile boolean running = true;
+    private volatile boolean waiting;
+
+    /**
+     * Instantiates a new Console output strategy that prints to {@link System#out}.
+     */
+    public ConsoleOutputStrategy() {
+        this(System.out, DEFAULT_MAX_QUEUED_LINES);
+    }
+
+    /**
+     * Instantiates a new Console output strategy.
+     *
+     * @param out            the stream to print to
+     * @param maxQueuedLines the number of lines that may wait to be printed before the generators
+     *                       wait, rounded up to a power of two
+     */
+    public ConsoleOutputStrategy(PrintStream out, int maxQueuedLines) {
+        if (maxQueuedLines <= 0 || maxQueuedLines > 1 << 30) {
+            throw new IllegalArgumentException("The queue limit must be between 1 and 2^30");
+        }
+        int capacity = 1;
+        while (capacity < maxQueuedLines) {
+            capacity <<= 1;
+        }
+        this.out = out;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.lines = new String[capacity];
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, int labelCode, double value) {
+        StringBuilder line = LINE.get();
+        line.setLength(0);
+        line.append("Patient ID: ").append(patientId)
+                .append(", Timestamp: ").append(timestamp)
+                .append(", Label: ").append(Labels.name(labelCode))
+                .append(", Data: ");
+        Labels.appendValue(line, labelCode, value).append(System.lineSeparator());
+        offer(line.toString());
+    }
+
+    /**
+     * Prints the remaining lines and stops the writer thread.
+     */
     @Override
-    public void output(int patientId, long timestamp, String label, String data) {
-        System.out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n", patientId, timestamp, label, data);
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        // Lines published while the writer stopped; those claimed but not yet published are dropped
+        StringBuilder chunk = new StringBuilder();
+        drain(chunk);
+        if (chunk.length() > 0) {
+            write(chunk);
+        }
+    }
+
+    /**
+     * Starts the writer thread, unless it was started or the strategy was closed meanwhile. The
+     * writer is started by the first line rather than the constructor, so that it never sees a
+     * half-built strategy.
+     */
+    private synchronized void startWriter() {
+        if (writer == null && running) {
+            Thread thread = new Thread(this::run, "console-output-writer");
+            thread.setDaemon(true);
+            writer = thread;
+            thread.start();
+        }
+    }
+
+    private void offer(String text) {
+        if (writer == null) {
+            startWriter();
+        }
+        long position;
+        int slot;
+        while (true) {
+            if (!running) {
+                return;
+            }
+            position = tail.get();
+            slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence < position) {
+                // The slot still holds a line from the previous round, so wait for the writer
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            } else if (sequence == position && tail.compareAndSet(position, position + 1)) {
+                break;
+            }
+        }
+        lines[slot] = text;
+        // A volatile write, so that it is ordered before waiting is read
+        sequences.set(slot, position + 1);
+        if (waiting) {
+            waiting = false;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void run() {
+        StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 256);
+        while (true) {
+            // Read the flag first, so that the lines queued before close are still printed
+            boolean stopping = !running;
+            if (drain(chunk)) {
+                continue;
+            }
+            if (chunk.length() > 0) {
+                write(chunk);
+            }
+            if (stopping) {
+                return;
+            }
+            waiting = true;
+            // Checked again, since a line published before waiting was set did not wake the writer
+            if (sequences.get((int) head & mask) != head + 1 && running) {
+                LockSupport.park(this);
+            }
+            waiting = false;
+        }
+    }
+
+    /**
+     * Appends the published lines to the chunk, writing it whenever it is full.
+     *
+     * @return whether any line was taken
+     */
+    private boolean drain(StringBuilder chunk) {
+        long position = head;
+        int slot = (int) position & mask;
+        if (sequences.get(slot) != position + 1) {
+            return false;
+        }
+        do {
+            chunk.append(lines[slot]);
+            lines[slot] = null;
+            sequences.lazySet(slot, position + mask + 1);
+            position++;
+            if (chunk.length() >= CHUNK_SIZE) {
+                write(chunk);
+            }
+            slot = (int) position & mask;
+        } while (sequences.get(slot) == position + 1);
+        head = position;
+        return true;
+    }
+
+    private void write(StringBuilder chunk) {
+        byte[] bytes = chunk.toString().getBytes(out.charset());
+        out.write(bytes, 0, bytes.length);
+        out.flush();
+        chunk.setLength(0);
     }
 }
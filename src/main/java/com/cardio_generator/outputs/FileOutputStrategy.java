@@ -1,21 +1,70 @@
 package com.cardio_generator.outputs;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * The type File output strategy.
  * Refactoring done:
  * Changed Upper camel case to camel case to make distinction between classes and variables clearer in lines
  * for variables: baseDirectory, filMap, lambda and filePath
+ * <p>
+ * Every label is written to its own file, which is kept open for the lifetime of the strategy.
+ * Lines are collected in a buffer per file and written to the file in one go when the buffer is
+ * full, and at least once per flush interval, so concurrent generator threads only contend on
+ * the file of the label they write. {@link #close()} writes out the remaining lines.
+ * <p>
+ * With a maximum segment size or duration, the data of a label is split into numbered segments
+ * instead, e.g. {@code ECG-000001.txt}. A segment is closed once it holds the maximum number of
+ * bytes, or once a sample arrives that is the maximum duration or more after the first sample
+ * of the segment. Closed segments are compressed with GZIP in the background and recorded in the
+ * label's index file, e.g. {@code ECG.index}, together with the range of sample timestamps they
+ * hold. {@link SegmentIndex} uses the index to find the segments covering a time range.
  */
 public class FileOutputStrategy implements OutputStrategy {
+    /**
+     * The default size of the buffer of every file, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /**
+     * The default time after which buffered lines are written, in milliseconds.
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
 
     private String baseDirectory;
+    private final int bufferSize;
+    private final long maxSegmentBytes;
+    private final long maxSegmentMillis;
+    private final boolean compress;
+    private final long flushIntervalMillis;
+    private final Map<String, LabelFile> files = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final ExecutorService archiver;
+    private boolean flushing; // Whether the flusher has been scheduled, guarded by this
+    private volatile boolean closed;
 
     /**
      * The File map.
@@ -28,28 +77,344 @@ public class FileOutputStrategy implements OutputStrategy {
      * @param baseDirectory the base directory
      */
     public FileOutputStrategy(String baseDirectory) {
+        this(baseDirectory, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Instantiates a new File output strategy.
+     *
+     * @param baseDirectory       the base directory
+     * @param bufferSize          the size of the buffer of every file, in bytes
+     * @param flushIntervalMillis the longest time a line stays buffered, in milliseconds
+     */
+    public FileOutputStrategy(String baseDirectory, int bufferSize, long flushIntervalMillis) {
+        this(baseDirectory, bufferSize, flushIntervalMillis, 0, 0, false);
+    }
 
+    /**
+     * Instantiates a new File output strategy that splits the data of every label into segments.
+     *
+     * @param baseDirectory       the base directory
+     * @param bufferSize          the size of the buffer of every file, in bytes
+     * @param flushIntervalMillis the longest time a line stays buffered, in milliseconds
+     * @param maxSegmentBytes     the size at which a segment is closed, or 0 for no limit
+     * @param maxSegmentMillis    the range of sample timestamps after which a segment is closed, or 0 for no limit
+     * @param compress            whether closed segments are compressed with GZIP
+     */
+    public FileOutputStrategy(String baseDirectory, int bufferSize, long flushIntervalMillis,
+                              long maxSegmentBytes, long maxSegmentMillis, boolean compress) {
+        if (bufferSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Buffer size and flush interval must be positive");
+        }
+        if (maxSegmentBytes < 0 || maxSegmentMillis < 0) {
+            throw new IllegalArgumentException("Segment size and duration must not be negative");
+        }
         this.baseDirectory = baseDirectory;
+        this.bufferSize = bufferSize;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentMillis = maxSegmentMillis;
+        this.compress = compress;
+        this.flushIntervalMillis = flushIntervalMillis;
+        // Scheduled when the first file is opened, so that the flusher never sees a half-built strategy
+        this.flusher = Executors.newSingleThreadScheduledExecutor(daemonThread("file-output-flusher"));
+        // A single thread, so that the segments of a label are indexed in order
+        this.archiver = Executors.newSingleThreadExecutor(daemonThread("file-output-archiver"));
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, int labelCode, double value) {
+        LabelFile file = file(labelCode);
+        if (file == null) {
+            return;
+        }
+        try {
+            write(file, patientId, timestamp, labelCode, value);
+        } catch (IOException e) {
+            System.err.println("Error writing to file " + file.path + ": " + e.getMessage());
+        }
     }
 
+    /**
+     * Writes all lines while holding the lock of the label's file once.
+     */
     @Override
-    public void output(int patientId, long timestamp, String label, String data) {
+    public void outputBatch(int patientId, int labelCode, long[] timestamps, double[] values, int count) {
+        LabelFile file = file(labelCode);
+        if (file == null) {
+            return;
+        }
+        synchronized (file) {
+            try {
+                for (int i = 0; i < count; i++) {
+                    write(file, patientId, timestamps[i], labelCode, values[i]);
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing to file " + file.path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered lines of all files.
+     */
+    public void flush() {
+        for (LabelFile file : files.values()) {
+            try {
+                file.flush();
+            } catch (IOException e) {
+                System.err.println("Error writing to file " + file.path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Closes all files. When segmenting, the open segments are closed, compressed and indexed like
+     * any other segment, and this method waits until that is done.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (LabelFile file : files.values()) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                System.err.println("Error closing file " + file.path + ": " + e.getMessage());
+            }
+        }
+        archiver.shutdown();
+        try {
+            archiver.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the open file of a label, or null after reporting why there is none.
+     */
+    private LabelFile file(int labelCode) {
+        String label = Labels.name(labelCode);
+        if (closed) {
+            System.err.println("Error writing " + label + " data: the file output is closed");
+            return null;
+        }
+        try {
+            return files.computeIfAbsent(label, this::open);
+        } catch (UncheckedIOException e) {
+            System.err.println("Error opening the file for " + label + ": " + e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    private static void write(LabelFile file, int patientId, long timestamp, int labelCode, double value)
+            throws IOException {
+        LineEncoder line = LineEncoder.get();
+        Labels.appendValue(line.start().append("Patient ID: ").append(patientId)
+                .append(", Timestamp: ").append(timestamp)
+                .append(", Label: ").append(file.label)
+                .append(", Data: "), labelCode, value);
+        line.encode();
+        file.write(line.bytes(), line.length(), timestamp);
+    }
+
+    private boolean isSegmented() {
+        return maxSegmentBytes > 0 || maxSegmentMillis > 0;
+    }
+
+    private LabelFile open(String label) {
+        startFlushing();
         try {
             // Create the directory
             Files.createDirectories(Paths.get(baseDirectory));
+            if (!isSegmented()) {
+                // Set the FilePath variable
+                String filePath = fileMap.computeIfAbsent(label, k -> Paths.get(baseDirectory, label + ".txt").toString());
+                return new LabelFile(label, Paths.get(filePath), 0);
+            }
+            int sequence = lastSegment(label) + 1;
+            Path path = Paths.get(baseDirectory, SegmentIndex.segmentName(label, sequence));
+            fileMap.put(label, path.toString());
+            return new LabelFile(label, path, sequence);
         } catch (IOException e) {
-            System.err.println("Error creating base directory: " + e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void startFlushing() {
+        if (flushing) {
             return;
         }
-        // Set the FilePath variable
-        String filePath = fileMap.computeIfAbsent(label, k -> Paths.get(baseDirectory, label + ".txt").toString());
+        try {
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            flushing = true;
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile, and close writes out the buffers itself
+        }
+    }
+
+    /**
+     * Finds the highest segment number of a label in the base directory, so that a restarted
+     * simulator continues the numbering instead of overwriting old segments.
+     */
+    private int lastSegment(String label) throws IOException {
+        Pattern pattern = Pattern.compile(Pattern.quote(label) + "-(\\d+)\\.txt(\\.gz)?");
+        int last = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(baseDirectory))) {
+            for (Path entry : entries) {
+                Matcher matcher = pattern.matcher(entry.getFileName().toString());
+                if (matcher.matches()) {
+                    last = Math.max(last, Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Compresses a closed segment, if enabled, and appends it to the index of its label.
+     */
+    private void archive(String label, Path segment, long firstTimestamp, long lastTimestamp, long lines) {
+        try {
+            Path archived = segment;
+            if (compress) {
+                archived = segment.resolveSibling(segment.getFileName() + ".gz");
+                Path partial = segment.resolveSibling(segment.getFileName() + ".gz.tmp");
+                try (InputStream in = Files.newInputStream(segment);
+                     OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+                    in.transferTo(out);
+                }
+                Files.move(partial, archived, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(segment);
+            }
+            String entry = archived.getFileName() + "," + firstTimestamp + "," + lastTimestamp + "," + lines
+                    + System.lineSeparator();
+            Files.write(Paths.get(baseDirectory, SegmentIndex.indexName(label)), entry.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Error archiving segment " + segment + ": " + e.getMessage());
+        }
+    }
+
+    private static ThreadFactory daemonThread(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The open output file of a label together with the lines not yet written to it.
+     */
+    private final class LabelFile {
+        private final String label;
+        private final ByteBuffer buffer;
+        private Path path;
+        private FileChannel channel;
+        private int sequence; // The segment number, or 0 when not segmenting
+        private long segmentBytes;
+        private long lines;
+        private long firstTimestamp = Long.MAX_VALUE;
+        private long lastTimestamp = Long.MIN_VALUE;
+        private boolean closed;
+
+        private LabelFile(String label, Path path, int sequence) throws IOException {
+            this.label = label;
+            this.path = path;
+            this.sequence = sequence;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        private synchronized void write(byte[] line, int lineLength, long timestamp) throws IOException {
+            if (closed) {
+                throw new IOException("the file output is closed");
+            }
+            int length = lineLength + LINE_SEPARATOR.length;
+            if (sequence > 0 && lines > 0 && isFull(length, timestamp)) {
+                rotate();
+            }
+            if (length > buffer.remaining()) {
+                flush();
+            }
+            if (length > buffer.capacity()) {
+                // Longer than the whole buffer, so write it straight to the file
+                ByteBuffer whole = ByteBuffer.allocate(length).put(line, 0, lineLength).put(LINE_SEPARATOR).flip();
+                while (whole.hasRemaining()) {
+                    channel.write(whole);
+                }
+            } else {
+                buffer.put(line, 0, lineLength).put(LINE_SEPARATOR);
+            }
+            segmentBytes += length;
+            lines++;
+            firstTimestamp = Math.min(firstTimestamp, timestamp);
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+        }
+
+        private boolean isFull(int length, long timestamp) {
+            return (maxSegmentBytes > 0 && segmentBytes + length > maxSegmentBytes)
+                    || (maxSegmentMillis > 0 && timestamp - firstTimestamp >= maxSegmentMillis);
+        }
+
+        /**
+         * Closes the current segment, hands it to the archiver and starts the next one.
+         */
+        private void rotate() throws IOException {
+            closeSegment();
+            sequence++;
+            path = path.resolveSibling(SegmentIndex.segmentName(label, sequence));
+            fileMap.put(label, path.toString());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            segmentBytes = 0;
+            lines = 0;
+            firstTimestamp = Long.MAX_VALUE;
+            lastTimestamp = Long.MIN_VALUE;
+        }
+
+        private void closeSegment() throws IOException {
+            flush();
+            channel.close();
+            if (sequence > 0 && lines > 0) {
+                Path segment = path;
+                long first = firstTimestamp;
+                long last = lastTimestamp;
+                long count = lines;
+                archiver.execute(() -> archive(label, segment, first, last, count));
+            } else if (sequence > 0) {
+                Files.deleteIfExists(path);
+            }
+        }
+
+        private synchronized void flush() throws IOException {
+            if (closed) {
+                return;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
 
-        // Write the data to the file
-        try (PrintWriter out = new PrintWriter(
-                Files.newBufferedWriter(Paths.get(filePath), StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
-            out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n", patientId, timestamp, label, data);
-        } catch (Exception e) {
-            System.err.println("Error writing to file " + filePath + ": " + e.getMessage());
+        private synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                closeSegment();
+            } finally {
+                closed = true;
+                channel.close();
+            }
         }
     }
-}
\ No newline at end of file
+}
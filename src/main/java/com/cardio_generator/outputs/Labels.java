@@ -0,0 +1,156 @@
+package com.cardio_generator.outputs;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the labels a sample can have.
+ * <p>
+ * Generators pass a label as an int code and its value as a double, so that no text has to be made
+ * per sample; the text outputs turn both into text only when they write the sample. The labels of
+ * the built-in generators have fixed codes. Other labels are given the next free code the first
+ * time they are seen, and keep it for the lifetime of the JVM.
+ * <p>
+ * The text form of a value depends on its label: blood saturation is written as a percentage
+ * ({@code 97.0%}) and an alert as {@code triggered} (1) or {@code resolved} (0). All other values
+ * are written as by {@link Double#toString(double)}.
+ */
+public final class Labels {
+    public static final int ECG = 0;
+    public static final int SATURATION = 1;
+    public static final int SYSTOLIC_PRESSURE = 2;
+    public static final int DIASTOLIC_PRESSURE = 3;
+    public static final int CHOLESTEROL = 4;
+    public static final int WHITE_BLOOD_CELLS = 5;
+    public static final int RED_BLOOD_CELLS = 6;
+    public static final int ALERT = 7;
+
+    /**
+     * The value of an alert that was triggered.
+     */
+    public static final double TRIGGERED = 1;
+    /**
+     * The value of an alert that was resolved.
+     */
+    public static final double RESOLVED = 0;
+
+    private static final Map<String, Integer> CODES = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+
+    static {
+        register("ECG");
+        register("Saturation");
+        register("SystolicPressure");
+        register("DiastolicPressure");
+        register("Cholesterol");
+        register("WhiteBloodCells");
+        register("RedBloodCells");
+        register("Alert");
+    }
+
+    private Labels() {
+    }
+
+    /**
+     * Returns the code of a label, registering the label if it is new.
+     *
+     * @param name the label
+     * @return the code of the label
+     */
+    public static int code(String name) {
+        Integer code = CODES.get(name);
+        return code != null ? code : register(name);
+    }
+
+    /**
+     * Returns the label with the given code.
+     *
+     * @param code the code of the label
+     * @return the label
+     * @throws IllegalArgumentException if no label has this code
+     */
+    public static String name(int code) {
+        String[] current = names;
+        if (code < 0 || code >= current.length) {
+            throw new IllegalArgumentException("Unknown label code " + code);
+        }
+        return current[code];
+    }
+
+    /**
+     * Returns the number of registered labels; their codes are 0 up to this number.
+     *
+     * @return the number of labels
+     */
+    public static int count() {
+        return names.length;
+    }
+
+    /**
+     * Appends the text form of a value to a builder, without creating an intermediate string.
+     *
+     * @param text  the builder
+     * @param code  the code of the label of the value
+     * @param value the value
+     * @return the builder
+     */
+    public static StringBuilder appendValue(StringBuilder text, int code, double value) {
+        switch (code) {
+            case SATURATION:
+                return text.append(value).append('%');
+            case ALERT:
+                return text.append(value == RESOLVED ? "resolved" : "triggered");
+            default:
+                return text.append(value);
+        }
+    }
+
+    /**
+     * Returns the text form of a value.
+     *
+     * @param code  the code of the label of the value
+     * @param value the value
+     * @return the text
+     */
+    public static String format(int code, double value) {
+        return appendValue(new StringBuilder(24), code, value).toString();
+    }
+
+    /**
+     * Parses the text form of a value, as written by {@link #appendValue(StringBuilder, int, double)}.
+     *
+     * @param code the code of the label of the value
+     * @param text the text
+     * @return the value
+     * @throws NumberFormatException if the text is not a value of this label
+     */
+    public static double parse(int code, String text) {
+        if (code == ALERT) {
+            if (text.equals("triggered")) {
+                return TRIGGERED;
+            }
+            if (text.equals("resolved")) {
+                return RESOLVED;
+            }
+        }
+        if (text.endsWith("%")) {
+            return Double.parseDouble(text.substring(0, text.length() - 1));
+        }
+        return Double.parseDouble(text);
+    }
+
+    private static synchronized int register(String name) {
+        Integer existing = CODES.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        int code = names.length;
+        grown[code] = name;
+        // Publish the name before the code, so that every code that can be seen has a name
+        names = grown;
+        CODES.put(name, code);
+        return code;
+    }
+}
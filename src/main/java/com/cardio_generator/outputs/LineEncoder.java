@@ -0,0 +1,66 @@
+package com.cardio_generator.outputs;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A per-thread buffer that formats a line of text and encodes it to UTF-8, reusing the same
+ * builder and byte array for every line the thread writes.
+ */
+final class LineEncoder {
+    private static final ThreadLocal<LineEncoder> ENCODERS = ThreadLocal.withInitial(LineEncoder::new);
+
+    private final StringBuilder text = new StringBuilder(128);
+    private byte[] bytes = new byte[128];
+    private int length;
+
+    private LineEncoder() {
+    }
+
+    /**
+     * Returns the encoder of the current thread.
+     *
+     * @return the encoder
+     */
+    static LineEncoder get() {
+        return ENCODERS.get();
+    }
+
+    /**
+     * Clears the line and returns the builder to format the next one into.
+     *
+     * @return the empty builder
+     */
+    StringBuilder start() {
+        text.setLength(0);
+        return text;
+    }
+
+    /**
+     * Encodes the formatted line; afterwards {@link #bytes()} holds {@link #length()} bytes of it.
+     */
+    void encode() {
+        int count = text.length();
+        if (bytes.length < count) {
+            bytes = new byte[Math.max(count, bytes.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Only labels chosen by a caller can hold other characters
+                bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+                length = bytes.length;
+                return;
+            }
+            bytes[i] = (byte) c;
+        }
+        length = count;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+}
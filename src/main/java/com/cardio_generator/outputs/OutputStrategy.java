@@ -3,14 +3,54 @@ package com.cardio_generator.outputs;
 /**
  * The interface Output strategy.
  */
-public interface OutputStrategy {
+public interface OutputStrategy extends AutoCloseable {
     /**
      * Output.
      *
      * @param patientId the patient id
      * @param timestamp the timestamp
+     * @param labelCode the code of the label, see {@link Labels}
+     * @param value     the value
+     */
+    void output(int patientId, long timestamp, int labelCode, double value);
+
+    /**
+     * Outputs a block of samples of one patient and label, such as a stretch of a waveform.
+     * Strategies that can take the block at once, for example under a single lock, override this;
+     * by default every sample is output on its own.
+     *
+     * @param patientId  the patient id
+     * @param labelCode  the code of the label, see {@link Labels}
+     * @param timestamps the timestamps of the samples
+     * @param values     the values of the samples
+     * @param count      the number of samples, from the start of both arrays
+     */
+    default void outputBatch(int patientId, int labelCode, long[] timestamps, double[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            output(patientId, timestamps[i], labelCode, values[i]);
+        }
+    }
+
+    /**
+     * Outputs a sample given as text, by parsing it with {@link Labels}. Generators should prefer
+     * {@link #output(int, long, int, double)}, which needs no text per sample.
+     *
+     * @param patientId the patient id
+     * @param timestamp the timestamp
      * @param label     the label
      * @param data      the data
+     * @throws NumberFormatException if the data is not a value of the label
+     */
+    default void output(int patientId, long timestamp, String label, String data) {
+        int labelCode = Labels.code(label);
+        output(patientId, timestamp, labelCode, Labels.parse(labelCode, data));
+    }
+
+    /**
+     * Flushes any buffered output and releases the resources of this strategy.
+     * Nothing may be output after the strategy has been closed.
      */
-    void output(int patientId, long timestamp, String label, String data);
+    @Override
+    default void close() {
+    }
 }
@@ -0,0 +1,145 @@
+package com.cardio_generator.outputs;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The index of the closed segments that {@link FileOutputStrategy} wrote for one label.
+ * Every line of the index names a segment file and the range of sample timestamps it holds,
+ * so the segments covering a time range can be found without opening any of them.
+ */
+public final class SegmentIndex {
+    private final Path directory;
+    private final List<Segment> segments;
+
+    private SegmentIndex(Path directory, List<Segment> segments) {
+        this.directory = directory;
+        this.segments = Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Reads the index of a label.
+     *
+     * @param directory the directory the file output wrote to
+     * @param label     the label
+     * @return the index, which is empty if no segment of the label was closed yet
+     * @throws IOException if the index cannot be read or is malformed
+     */
+    public static SegmentIndex load(Path directory, String label) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(directory.resolve(indexName(label)), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return new SegmentIndex(directory, segments);
+        }
+        for (String line : lines) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 4) {
+                throw new IOException("Malformed index entry: " + line);
+            }
+            try {
+                segments.add(new Segment(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                        Long.parseLong(fields[3])));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed index entry: " + line, e);
+            }
+        }
+        return new SegmentIndex(directory, segments);
+    }
+
+    /**
+     * Returns all closed segments, in the order they were written.
+     *
+     * @return the segments
+     */
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Returns the segments that hold samples in a time range.
+     *
+     * @param startTime the start of the range, inclusive, in milliseconds since the Unix epoch
+     * @param endTime   the end of the range, inclusive, in milliseconds since the Unix epoch
+     * @return the segments whose timestamps overlap the range, in the order they were written
+     */
+    public List<Segment> find(long startTime, long endTime) {
+        List<Segment> found = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.firstTimestamp <= endTime && segment.lastTimestamp >= startTime) {
+                found.add(segment);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Opens a segment for reading, decompressing it if it was compressed.
+     *
+     * @param segment a segment of this index
+     * @return a reader over the lines of the segment
+     * @throws IOException if the segment cannot be opened
+     */
+    public BufferedReader open(Segment segment) throws IOException {
+        InputStream in = Files.newInputStream(directory.resolve(segment.fileName));
+        if (segment.fileName.endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    static String segmentName(String label, int sequence) {
+        return String.format("%s-%06d.txt", label, sequence);
+    }
+
+    static String indexName(String label) {
+        return label + ".index";
+    }
+
+    /**
+     * A closed segment file and the range of sample timestamps in it.
+     */
+    public static final class Segment {
+        private final String fileName;
+        private final long firstTimestamp;
+        private final long lastTimestamp;
+        private final long lineCount;
+
+        private Segment(String fileName, long firstTimestamp, long lastTimestamp, long lineCount) {
+            this.fileName = fileName;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.lineCount = lineCount;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getFirstTimestamp() {
+            return firstTimestamp;
+        }
+
+        public long getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        public long getLineCount() {
+            return lineCount;
+        }
+    }
+}
@@ -1,50 +1,304 @@
 package com.cardio_generator.outputs;
 
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.concurrent.Executors;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The type Tcp output strategy.
+ * <p>
+ * A non-blocking server that streams every sample to all connected clients, one
+ * {@code patientId,timestamp,label,data} line per sample. Each client has a bounded outbound buffer
+ * that the generator threads append to; a single selector thread accepts clients and writes out
+ * what has accumulated in each buffer every few milliseconds, so lines are sent in large writes
+ * instead of one per sample. A client that does not keep up fills its buffer and is then handled
+ * by the {@link SlowClientPolicy}; the generators never wait for a client. Samples generated while
+ * no client is connected are discarded.
+ * <p>
+ * The server is opened by {@link #open(int)}, which starts the selector thread once the strategy is
+ * fully constructed.
  */
 public class TcpOutputStrategy implements OutputStrategy {
+    private static final Logger LOGGER = Logger.getLogger(TcpOutputStrategy.class.getName());
+    /**
+     * The default size of the outbound buffer of every client, in bytes.
+     */
+    public static final int DEFAULT_CLIENT_BUFFER_SIZE = 1024 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 5;
+
+    /**
+     * What to do with a client whose outbound buffer is full.
+     */
+    public enum SlowClientPolicy {
+        /**
+         * Drop the samples that do not fit, and keep sending once the client catches up.
+         */
+        DROP,
+        /**
+         * Disconnect the client.
+         */
+        DISCONNECT
+    }
 
-    private ServerSocket serverSocket;
-    private Socket clientSocket;
-    private PrintWriter out;
+    private final int clientBufferSize;
+    private final SlowClientPolicy policy;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedLines = new AtomicLong();
+    private final AtomicLong disconnectedClients = new AtomicLong();
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private volatile boolean running;
+
+    private TcpOutputStrategy(int port, int clientBufferSize, SlowClientPolicy policy) throws IOException {
+        this.clientBufferSize = clientBufferSize;
+        this.policy = policy;
+        this.selector = Selector.open();
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+    }
 
     /**
-     * Instantiates a new Tcp output strategy.
+     * Opens a server that drops samples for slow clients.
      *
-     * @param port the port
+     * @param port the port, or 0 for any free port
+     * @return the strategy, accepting clients
+     * @throws UncheckedIOException if the server cannot be opened, e.g. because the port is in use
      */
-    public TcpOutputStrategy(int port) {
+    public static TcpOutputStrategy open(int port) {
+        return open(port, DEFAULT_CLIENT_BUFFER_SIZE, SlowClientPolicy.DROP);
+    }
+
+    /**
+     * Opens a server.
+     *
+     * @param port             the port, or 0 for any free port
+     * @param clientBufferSize the size of the outbound buffer of every client, in bytes
+     * @param policy           what to do with a client whose outbound buffer is full
+     * @return the strategy, accepting clients
+     * @throws UncheckedIOException if the server cannot be opened, e.g. because the port is in use
+     */
+    public static TcpOutputStrategy open(int port, int clientBufferSize, SlowClientPolicy policy) {
+        TcpOutputStrategy strategy;
         try {
-            serverSocket = new ServerSocket(port);
-            System.out.println("TCP Server started on port " + port);
-
-            // Accept clients in a new thread to not block the main thread
-            Executors.newSingleThreadExecutor().submit(() -> {
-                try {
-                    clientSocket = serverSocket.accept();
-                    out = new PrintWriter(clientSocket.getOutputStream(), true);
-                    System.out.println("Client connected: " + clientSocket.getInetAddress());
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
+            strategy = new TcpOutputStrategy(port, clientBufferSize, policy);
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException("Cannot open the TCP output on port " + port, e);
         }
+        strategy.start();
+        return strategy;
+    }
+
+    private void start() {
+        running = true;
+        Thread thread = new Thread(this::run, "tcp-output-" + getPort());
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("TCP server started on port " + getPort());
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, int labelCode, double value) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        LineEncoder line = LineEncoder.get();
+        Labels.appendValue(line.start().append(patientId).append(',').append(timestamp).append(',')
+                .append(Labels.name(labelCode)).append(','), labelCode, value).append('\n');
+        line.encode();
+        for (Client client : clients) {
+            client.append(line.bytes(), line.length());
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the number of connected clients.
+     *
+     * @return the number of clients
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Returns how many lines were dropped because a client's buffer was full.
+     *
+     * @return the number of dropped lines, counted once per client
+     */
+    public long getDroppedLines() {
+        return droppedLines.get();
+    }
+
+    /**
+     * Returns how many clients were disconnected because their buffer was full.
+     *
+     * @return the number of disconnected clients
+     */
+    public long getDisconnectedClients() {
+        return disconnectedClients.get();
     }
 
+    /**
+     * Closes the server and all connections, after a last attempt to send what is left in the client buffers.
+     */
     @Override
-    public void output(int patientId, long timestamp, String label, String data) {
-        if (out != null) {
-            String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
-            out.println(message);
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void run() {
+        ByteBuffer scratch = ByteBuffer.allocate(4096);
+        try {
+            while (running) {
+                selector.select(FLUSH_INTERVAL_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        discardInput((Client) key.attachment(), scratch);
+                    }
+                }
+                for (Client client : clients) {
+                    client.flush();
+                }
+            }
+            for (Client client : clients) {
+                client.flush();
+                client.close();
+            }
+            serverChannel.close();
+            selector.close();
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                LOGGER.log(Level.SEVERE, "TCP output on port " + getPort() + " failed", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        Client client = new Client(channel);
+        channel.register(selector, SelectionKey.OP_READ, client);
+        clients.add(client);
+        LOGGER.info("Client connected: " + channel.getRemoteAddress());
+    }
+
+    /**
+     * Reads and ignores what a client sends, which is how a closed connection is noticed.
+     */
+    private void discardInput(Client client, ByteBuffer scratch) {
+        try {
+            scratch.clear();
+            if (client.channel.read(scratch) < 0) {
+                client.close();
+            }
+        } catch (IOException e) {
+            client.close();
+        }
+    }
+
+    /**
+     * A connected client and the lines that still have to be sent to it.
+     */
+    private final class Client {
+        private final SocketChannel channel;
+        private final ByteBuffer buffer;
+        private boolean overflowed;
+        private boolean closed;
+
+        private Client(SocketChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(clientBufferSize);
+        }
+
+        private synchronized void append(byte[] line, int length) {
+            if (closed || overflowed) {
+                return;
+            }
+            if (length > buffer.remaining()) {
+                if (policy == SlowClientPolicy.DROP) {
+                    droppedLines.incrementAndGet();
+                } else {
+                    // The selector thread disconnects the client on its next round
+                    overflowed = true;
+                }
+                return;
+            }
+            buffer.put(line, 0, length);
+        }
+
+        /**
+         * Writes as much of the buffer as the socket accepts without blocking.
+         */
+        private synchronized void flush() {
+            if (closed) {
+                return;
+            }
+            if (overflowed) {
+                disconnectedClients.incrementAndGet();
+                LOGGER.warning("Disconnecting slow client: " + channel.socket().getRemoteSocketAddress());
+                close();
+                return;
+            }
+            buffer.flip();
+            try {
+                channel.write(buffer);
+            } catch (IOException e) {
+                close();
+            } finally {
+                buffer.compact();
+            }
+        }
+
+        private synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            clients.remove(this);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The connection is gone either way
+            }
         }
     }
 }
@@ -1,27 +1,235 @@
 package com.cardio_generator.outputs;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
 import org.java_websocket.server.WebSocketServer;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Streams the samples to all connected WebSocket clients.
+ * Samples are collected into batches of {@code patientId,timestamp,label,data} lines, separated by
+ * newlines. A batch is sent once it reaches the maximum batch size, and at the latest after the
+ * maximum latency. Every batch is encoded into a frame once and that frame is sent to all clients.
+ * A client whose send queue already holds the maximum number of frames does not get the batch,
+ * so a slow client cannot make the server buffer without bound. Batches are sent in the order they
+ * were taken: whoever takes a batch acquires the send lock before releasing the batch lock.
+ */
 public class WebSocketOutputStrategy implements OutputStrategy {
+    /**
+     * The default longest time a sample waits for its batch to be sent, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_LATENCY_MILLIS = 5;
+    /**
+     * The default size at which a batch is sent without waiting, in characters.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64 * 1024;
+    /**
+     * The default number of frames that may wait in the send queue of one client.
+     */
+    public static final int DEFAULT_MAX_QUEUED_FRAMES = 256;
 
     private WebSocketServer server;
+    private final int maxBatchSize;
+    private final int maxQueuedFrames;
+    private final long maxLatencyMillis;
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private StringBuilder batch = new StringBuilder();
+    private boolean flushing; // Whether the flusher has been scheduled, guarded by this
 
     public WebSocketOutputStrategy(int port) {
+        this(port, DEFAULT_MAX_LATENCY_MILLIS, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_QUEUED_FRAMES);
+    }
+
+    /**
+     * Instantiates a new WebSocket output strategy.
+     *
+     * @param port             the port
+     * @param maxLatencyMillis the longest time a sample waits for its batch to be sent, in milliseconds
+     * @param maxBatchSize     the size at which a batch is sent without waiting, in characters
+     * @param maxQueuedFrames  the number of frames that may wait in the send queue of one client
+     *                         before it misses batches
+     */
+    public WebSocketOutputStrategy(int port, long maxLatencyMillis, int maxBatchSize, int maxQueuedFrames) {
+        if (maxLatencyMillis <= 0 || maxBatchSize <= 0 || maxQueuedFrames <= 0) {
+            throw new IllegalArgumentException("Latency, batch size and queue limit must be positive");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxQueuedFrames = maxQueuedFrames;
+        this.maxLatencyMillis = maxLatencyMillis;
         server = new SimpleWebSocketServer(new InetSocketAddress(port));
         System.out.println("WebSocket server created on port: " + port + ", listening for connections...");
         server.start();
+        // Scheduled by the first sample, so that the flusher never sees a half-built strategy
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "websocket-output-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void output(int patientId, long timestamp, int labelCode, double value) {
+        String label = Labels.name(labelCode);
+        String full = null;
+        synchronized (this) {
+            if (!flushing) {
+                startFlushing();
+            }
+            if (batch.length() > 0) {
+                batch.append('\n');
+            }
+            batch.append(patientId).append(',').append(timestamp).append(',').append(label).append(',');
+            Labels.appendValue(batch, labelCode, value);
+            if (batch.length() >= maxBatchSize) {
+                full = takeBatch();
+                sendLock.lock();
+            }
+        }
+        if (full != null) {
+            try {
+                broadcast(full);
+            } finally {
+                sendLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds all samples to the batch under a single lock.
+     */
+    @Override
+    public void outputBatch(int patientId, int labelCode, long[] timestamps, double[] values, int count) {
+        String label = Labels.name(labelCode);
+        List<String> full = null;
+        synchronized (this) {
+            if (!flushing) {
+                startFlushing();
+            }
+            for (int i = 0; i < count; i++) {
+                if (batch.length() > 0) {
+                    batch.append('\n');
+                }
+                batch.append(patientId).append(',').append(timestamps[i]).append(',').append(label).append(',');
+                Labels.appendValue(batch, labelCode, values[i]);
+                if (batch.length() >= maxBatchSize) {
+                    if (full == null) {
+                        full = new ArrayList<>();
+                    }
+                    full.add(takeBatch());
+                }
+            }
+            if (full != null) {
+                sendLock.lock();
+            }
+        }
+        if (full != null) {
+            try {
+                for (String message : full) {
+                    broadcast(message);
+                }
+            } finally {
+                sendLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Sends the samples collected so far.
+     */
+    public void flush() {
+        String message;
+        synchronized (this) {
+            if (batch.length() == 0) {
+                return;
+            }
+            message = takeBatch();
+            sendLock.lock();
+        }
+        try {
+            broadcast(message);
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of connected clients.
+     *
+     * @return the number of clients
+     */
+    public int getClientCount() {
+        return server.getConnections().size();
     }
 
+    /**
+     * Returns how many frames were not sent to a client because its send queue was full.
+     *
+     * @return the number of dropped frames, counted once per client
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Sends the remaining samples and stops the server.
+     */
     @Override
-    public void output(int patientId, long timestamp, String label, String data) {
-        String message = String.format("%d,%d,%s,%s", patientId, timestamp, label, data);
-        // Broadcast the message to all connected clients
-        for (WebSocket conn : server.getConnections()) {
-            conn.send(message);
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+            flush();
+            server.stop(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Schedules the flusher. The caller holds the lock of this strategy.
+     */
+    private void startFlushing() {
+        flushing = true;
+        try {
+            flusher.scheduleAtFixedRate(this::flush, maxLatencyMillis, maxLatencyMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile, and close sends the last batch itself
+        }
+    }
+
+    private String takeBatch() {
+        String message = batch.toString();
+        batch = new StringBuilder(Math.min(message.length() + 256, maxBatchSize + 256));
+        return message;
+    }
+
+    private void broadcast(String message) {
+        Collection<WebSocket> connections = server.getConnections();
+        if (connections.isEmpty()) {
+            return;
+        }
+        List<WebSocket> ready = new ArrayList<>(connections.size());
+        for (WebSocket conn : connections) {
+            if (conn instanceof WebSocketImpl && ((WebSocketImpl) conn).outQueue.size() >= maxQueuedFrames) {
+                droppedFrames.incrementAndGet();
+            } else {
+                ready.add(conn);
+            }
         }
+        // Encodes the frame once and queues it for every connection
+        server.broadcast(message, ready);
     }
 
     private static class SimpleWebSocketServer extends WebSocketServer {
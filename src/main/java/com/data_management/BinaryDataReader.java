@@ -0,0 +1,44 @@
+package com.data_management;
+
+import com.cardio_generator.outputs.BinaryFile;
+import com.cardio_generator.outputs.Labels;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Loads the data files written by the binary output of the simulator into a DataStorage.
+ * The files are memory-mapped and every sample is read straight from the mapping, without
+ * parsing any text. As with WebSocketReader, the values are stored as {@link SampleValues}
+ * converts them.
+ * <p>
+ * Unlike the {@link DataReader}s it does not receive a stream of text messages, so it only
+ * has a single operation that reads the files.
+ */
+public class BinaryDataReader {
+    private final Path directory;
+
+    /**
+     * Class constructor.
+     *
+     * @param directory The directory the binary output wrote to.
+     */
+    public BinaryDataReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads all data files of the directory, in the order they were written.
+     *
+     * @param dataStorage The DataStorage object, where the data will be stored.
+     * @throws IOException if a data file cannot be read.
+     */
+    public void readData(DataStorage dataStorage) throws IOException {
+        for (Path path : BinaryFile.list(directory)) {
+            try (BinaryFile file = BinaryFile.open(path)) {
+                file.scan((patientId, timestamp, labelCode, value) -> dataStorage.addPatientData(patientId,
+                        SampleValues.toStored(labelCode, value), Labels.name(labelCode), timestamp));
+            }
+        }
+    }
+}
@@ -5,16 +5,35 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Manages storage and retrieval of patient data within a healthcare monitoring
  * system.
  * This class serves as a repository for all patient records, organized by
  * patient IDs.
+ * Besides being queried, it pushes new records to the consumers that
+ * {@link #subscribe(Set, Set, Consumer) subscribe} to them.
  */
 public class DataStorage {
+    /**
+     * Record type of the heart rate derived from the ECG stream, in beats per minute.
+     */
+    public static final String HEART_RATE = "HeartRate";
+    /**
+     * Record type of the RR-interval variability (RMSSD) derived from the ECG stream, in milliseconds.
+     */
+    public static final String RR_VARIABILITY = "RRVariability";
+    /**
+     * The number of records a subscription can fall behind before it loses records.
+     */
+    public static final int SUBSCRIPTION_CAPACITY = 1 << 16;
+
     private static DataStorage dsInstance;
     private Map<Integer, Patient> patientMap; // Stores patient objects indexed by their unique patient ID.
+    private double ecgSampleRateHz = 250; // Nominal ECG sample rate for beat detection, 0 disables it
+    private RecordRing ring; // Created by the first subscription, so storing costs nothing without one
 
     /**
      * Constructs a new instance of DataStorage, initializing the underlying storage
@@ -65,6 +84,10 @@ public class DataStorage {
      * If the patient does not exist, a new Patient object is created and added to
      * the storage.
      * Otherwise, the new data is added to the existing patient's records.
+     * ECG samples are also passed through the patient's {@link ECGBeatDetector};
+     * whenever it detects a beat, the current heart rate and RR-interval
+     * variability are stored as {@link #HEART_RATE} and {@link #RR_VARIABILITY}
+     * records at the time of the sample.
      *
      * @param patientId        the unique identifier of the patient
      * @param measurementValue the value of the health metric being recorded
@@ -79,7 +102,56 @@ public class DataStorage {
             patient = new Patient(patientId);
             patientMap.put(patientId, patient);
         }
-        patient.addRecord(measurementValue, recordType, timestamp);
+        publish(patient.addRecord(measurementValue, recordType, timestamp));
+        if (ecgSampleRateHz > 0 && recordType.equalsIgnoreCase("ECG")) {
+            ECGBeatDetector detector = patient.getBeatDetector(ecgSampleRateHz);
+            if (detector.accept(timestamp, measurementValue)) {
+                publish(patient.addRecord(detector.getHeartRate(), HEART_RATE, timestamp));
+                if (!Double.isNaN(detector.getRRVariability())) {
+                    publish(patient.addRecord(detector.getRRVariability(), RR_VARIABILITY, timestamp));
+                }
+            }
+        }
+    }
+
+    private void publish(PatientRecord record) {
+        if (ring != null) {
+            ring.publish(record);
+        }
+    }
+
+    /**
+     * Subscribes to the records added from now on, instead of polling {@link #getRecords}.
+     * The matching records are delivered in batches, in the order they were added, on a thread
+     * of the subscription; derived {@link #HEART_RATE} and {@link #RR_VARIABILITY} records are
+     * included. Adding records never waits for a subscriber: one that falls more than
+     * {@link #SUBSCRIPTION_CAPACITY} records behind loses the oldest ones, see
+     * {@link RecordSubscription#getDroppedRecords()}.
+     *
+     * @param patientIds  the patients to receive records of, or null for all patients
+     * @param recordTypes the record types to receive, ignoring case, or null for all types
+     * @param consumer    the consumer of the batches, called by one thread at a time
+     * @return the subscription, which must be closed to stop the deliveries
+     */
+    public synchronized RecordSubscription subscribe(Set<Integer> patientIds, Set<String> recordTypes,
+                                                     Consumer<List<PatientRecord>> consumer) {
+        if (ring == null) {
+            ring = new RecordRing(SUBSCRIPTION_CAPACITY);
+        }
+        RecordSubscription subscription = new RecordSubscription(ring, patientIds, recordTypes, consumer);
+        subscription.start();
+        return subscription;
+    }
+
+    /**
+     * Sets the nominal sample rate of the ECG streams used for beat detection.
+     * Streams that are sampled at less than half this rate are not analysed.
+     * Only patients whose first ECG sample arrives afterwards use the new rate.
+     *
+     * @param sampleRateHz the sample rate in Hz, or 0 to disable beat detection
+     */
+    public synchronized void setEcgSampleRate(double sampleRateHz) {
+        this.ecgSampleRateHz = sampleRateHz;
     }
 
     /**
@@ -93,9 +165,9 @@ public class DataStorage {
      * @param endTime   the end of the time range, in milliseconds since the Unix
      *                  epoch
      * @return a list of PatientRecord objects that fall within the specified time
-     * range
+     * range; a copy, so it can be used while records are being added
      */
-    public List<PatientRecord> getRecords(int patientId, long startTime, long endTime) {
+    public synchronized List<PatientRecord> getRecords(int patientId, long startTime, long endTime) {
         Patient patient = patientMap.get(patientId);
         if (patient != null) {
             return patient.getRecords(startTime, endTime);
@@ -103,12 +175,41 @@ public class DataStorage {
         return new ArrayList<>(); // return an empty list if no patient is found
     }
 
+    /**
+     * Retrieves the records of a patient that were added from a sequence number on, in the order
+     * they were added. Polling with the sequence number after the last record seen returns every
+     * new record exactly once, including records that arrive with an older timestamp.
+     *
+     * @param patientId    the unique identifier of the patient
+     * @param fromSequence the {@link PatientRecord#getSequence() sequence number} of the first record
+     * @return the records added from {@code fromSequence} on; a copy
+     */
+    public synchronized List<PatientRecord> getRecordsFrom(int patientId, int fromSequence) {
+        Patient patient = patientMap.get(patientId);
+        if (patient != null) {
+            return patient.getRecordsFrom(fromSequence);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Returns the number of records stored for a patient, which is the sequence number the
+     * next record of the patient gets.
+     *
+     * @param patientId the unique identifier of the patient
+     * @return the number of records, 0 for an unknown patient
+     */
+    public synchronized int getRecordCount(int patientId) {
+        Patient patient = patientMap.get(patientId);
+        return patient == null ? 0 : patient.getRecordCount();
+    }
+
     /**
      * Retrieves a collection of all patients stored in the data storage.
      *
      * @return a list of all patients
      */
-    public List<Patient> getAllPatients() {
+    public synchronized List<Patient> getAllPatients() {
         return new ArrayList<>(patientMap.values());
     }
 }
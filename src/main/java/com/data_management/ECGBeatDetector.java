@@ -0,0 +1,216 @@
+package com.data_management;
+
+/**
+ * Detects heart beats (R peaks) in a patient's ECG stream, one sample at a time.
+ * The detector follows the Pan-Tompkins pipeline: a 5-15 Hz band-pass filter, a five-point
+ * derivative, squaring, a 150 ms moving-window integration and adaptive signal/noise
+ * thresholds with a 200 ms refractory period. The search-back for missed beats and the
+ * T-wave slope check of the original algorithm are left out.
+ * <p>
+ * All state lives in fixed-size primitive ring buffers, so {@link #accept(long, double)}
+ * does not allocate and runs in constant time per sample. The filters are designed for a
+ * nominal sample rate; while the stream is sampled at less than half that rate (for example
+ * one value per second) the detector stays idle, as there is no waveform to analyse.
+ */
+public class ECGBeatDetector {
+    private static final int RR_HISTORY = 16;
+    private static final int HEART_RATE_BEATS = 8;
+    private static final long REFRACTORY_MILLIS = 200;
+    private static final long MIN_RR_MILLIS = 250;
+    private static final long MAX_RR_MILLIS = 3000;
+    private static final double LEARNING_SECONDS = 2.0;
+
+    private final double nominalIntervalMillis;
+    private final int learningSamples;
+
+    // Band-pass biquad coefficients and state
+    private final double b0, b2, a1, a2;
+    private double x1, x2, y1, y2;
+
+    // Last four band-passed samples for the derivative
+    private final double[] history = new double[4];
+    private int historyPos;
+
+    // Moving-window integration
+    private final double[] window;
+    private int windowPos;
+    private double windowSum;
+
+    // Peak search on the integrated signal
+    private double candidatePeak;
+    private long candidateTime;
+    private double signalPeak;
+    private double noisePeak;
+    private double learningMax;
+    private double learningSum;
+    private int samples;
+    private long lastSampleTime = Long.MIN_VALUE;
+    private double meanIntervalMillis;
+
+    // Beats
+    private long lastBeatTime = Long.MIN_VALUE;
+    private final long[] rrIntervals = new long[RR_HISTORY];
+    private int rrCount;
+    private int rrPos;
+    private double heartRate = Double.NaN;
+    private double rrVariability = Double.NaN;
+
+    /**
+     * Constructs a detector for an ECG stream sampled at the given rate.
+     *
+     * @param sampleRateHz the nominal sample rate of the stream
+     */
+    public ECGBeatDetector(double sampleRateHz) {
+        if (sampleRateHz < 50) {
+            throw new IllegalArgumentException("ECG beat detection needs at least 50 Hz, got " + sampleRateHz);
+        }
+        this.nominalIntervalMillis = 1000.0 / sampleRateHz;
+        this.meanIntervalMillis = nominalIntervalMillis;
+        this.learningSamples = (int) (LEARNING_SECONDS * sampleRateHz);
+        this.window = new double[Math.max(1, (int) Math.round(0.150 * sampleRateHz))];
+
+        // Band-pass centred on 10 Hz with a 10 Hz bandwidth (Q = 1)
+        double w0 = 2 * Math.PI * 10.0 / sampleRateHz;
+        double alpha = Math.sin(w0) / 2.0;
+        double a0 = 1 + alpha;
+        this.b0 = alpha / a0;
+        this.b2 = -alpha / a0;
+        this.a1 = -2 * Math.cos(w0) / a0;
+        this.a2 = (1 - alpha) / a0;
+    }
+
+    /**
+     * Feeds the next ECG sample to the detector.
+     *
+     * @param timestamp the time of the sample, in milliseconds since the Unix epoch
+     * @param value     the ECG amplitude
+     * @return {@code true} if this sample completed the detection of a new beat, in which case
+     * {@link #getHeartRate()} and {@link #getRRVariability()} have been updated
+     */
+    public boolean accept(long timestamp, double value) {
+        if (lastSampleTime != Long.MIN_VALUE) {
+            meanIntervalMillis += ((timestamp - lastSampleTime) - meanIntervalMillis) * 0.05;
+        }
+        lastSampleTime = timestamp;
+        if (meanIntervalMillis > 2 * nominalIntervalMillis) {
+            return false;
+        }
+
+        // Band-pass
+        double filtered = b0 * value + b2 * x2 - a1 * y1 - a2 * y2;
+        x2 = x1;
+        x1 = value;
+        y2 = y1;
+        y1 = filtered;
+
+        // Five-point derivative: (2x[n] + x[n-1] - x[n-3] - 2x[n-4]) / 8
+        double xm1 = history[(historyPos + 3) & 3];
+        double xm3 = history[(historyPos + 1) & 3];
+        double xm4 = history[historyPos];
+        double derivative = (2 * filtered + xm1 - xm3 - 2 * xm4) / 8.0;
+        history[historyPos] = filtered;
+        historyPos = (historyPos + 1) & 3;
+
+        // Squaring and moving-window integration
+        double squared = derivative * derivative;
+        windowSum += squared - window[windowPos];
+        window[windowPos] = squared;
+        windowPos = (windowPos + 1) % window.length;
+        double integrated = windowSum / window.length;
+
+        boolean beat = false;
+        samples++;
+        if (samples <= learningSamples) {
+            learningMax = Math.max(learningMax, integrated);
+            learningSum += integrated;
+            if (samples == learningSamples) {
+                signalPeak = learningMax / 3.0;
+                noisePeak = learningSum / learningSamples / 2.0;
+            }
+        } else if (integrated > candidatePeak) {
+            candidatePeak = integrated;
+            candidateTime = timestamp;
+        } else if (integrated < candidatePeak / 2) {
+            // The integrated signal has fallen well below the highest point since the last peak,
+            // so that point was the peak; small ripples on top of the QRS lobe are ignored
+            beat = classifyPeak(candidatePeak, candidateTime);
+            candidatePeak = integrated;
+            candidateTime = timestamp;
+        }
+        return beat;
+    }
+
+    private boolean classifyPeak(double peak, long peakTime) {
+        double threshold = noisePeak + 0.25 * (signalPeak - noisePeak);
+        if (lastBeatTime != Long.MIN_VALUE && peakTime - lastBeatTime < REFRACTORY_MILLIS) {
+            // Part of the QRS complex that was just detected
+            return false;
+        }
+        if (peak <= threshold) {
+            noisePeak = 0.125 * peak + 0.875 * noisePeak;
+            return false;
+        }
+        signalPeak = 0.125 * peak + 0.875 * signalPeak;
+        long rr = lastBeatTime == Long.MIN_VALUE ? -1 : peakTime - lastBeatTime;
+        lastBeatTime = peakTime;
+        if (rr < MIN_RR_MILLIS || rr > MAX_RR_MILLIS) {
+            // First beat, or a gap in the signal: start a new series of intervals
+            rrCount = 0;
+            return false;
+        }
+        rrIntervals[rrPos] = rr;
+        rrPos = (rrPos + 1) % RR_HISTORY;
+        rrCount = Math.min(rrCount + 1, RR_HISTORY);
+        updateStatistics();
+        return true;
+    }
+
+    private void updateStatistics() {
+        int beats = Math.min(rrCount, HEART_RATE_BEATS);
+        long sum = 0;
+        for (int i = 1; i <= beats; i++) {
+            sum += rrIntervals[(rrPos - i + RR_HISTORY) % RR_HISTORY];
+        }
+        heartRate = 60000.0 * beats / sum;
+
+        if (rrCount < 2) {
+            rrVariability = Double.NaN;
+            return;
+        }
+        // RMSSD: root mean square of successive RR differences
+        double squares = 0;
+        for (int i = 1; i < rrCount; i++) {
+            long newer = rrIntervals[(rrPos - i + RR_HISTORY) % RR_HISTORY];
+            long older = rrIntervals[(rrPos - i - 1 + RR_HISTORY) % RR_HISTORY];
+            squares += (double) (newer - older) * (newer - older);
+        }
+        rrVariability = Math.sqrt(squares / (rrCount - 1));
+    }
+
+    /**
+     * Returns the heart rate averaged over the last eight RR intervals.
+     *
+     * @return the heart rate in beats per minute, or {@code NaN} before the second beat
+     */
+    public double getHeartRate() {
+        return heartRate;
+    }
+
+    /**
+     * Returns the RMSSD of the last sixteen RR intervals, a short-term measure of heart rate variability.
+     *
+     * @return the RR-interval variability in milliseconds, or {@code NaN} before the third beat
+     */
+    public double getRRVariability() {
+        return rrVariability;
+    }
+
+    /**
+     * Returns the time of the last detected R peak.
+     *
+     * @return the time in milliseconds since the Unix epoch, or {@link Long#MIN_VALUE} if there was none
+     */
+    public long getLastBeatTime() {
+        return lastBeatTime;
+    }
+}
@@ -12,6 +12,8 @@ import java.util.List;
 public class Patient {
     private int patientId;
     private List<PatientRecord> patientRecords;
+    private boolean sortedByTime = true; // true while records have been added in timestamp order
+    private ECGBeatDetector beatDetector;
 
     /**
      * Constructs a new Patient with a specified ID.
@@ -36,16 +38,37 @@ public class Patient {
      *                         "BloodPressure"
      * @param timestamp        the time at which the measurement was taken, in
      *                         milliseconds since UNIX epoch
+     * @return the added record
      */
-    public void addRecord(double measurementValue, String recordType, long timestamp) {
-        PatientRecord record = new PatientRecord(this.patientId, measurementValue, recordType, timestamp);
+    public PatientRecord addRecord(double measurementValue, String recordType, long timestamp) {
+        PatientRecord record = new PatientRecord(this.patientId, measurementValue, recordType, timestamp,
+                patientRecords.size());
+        if (!patientRecords.isEmpty() && patientRecords.get(patientRecords.size() - 1).getTimestamp() > timestamp) {
+            sortedByTime = false;
+        }
         this.patientRecords.add(record);
+        return record;
+    }
+
+    /**
+     * Returns the beat detector for this patient's ECG stream, creating it on first use.
+     *
+     * @param sampleRateHz the nominal sample rate of the ECG stream
+     * @return the beat detector
+     */
+    ECGBeatDetector getBeatDetector(double sampleRateHz) {
+        if (beatDetector == null) {
+            beatDetector = new ECGBeatDetector(sampleRateHz);
+        }
+        return beatDetector;
     }
 
     /**
      * Retrieves a list of PatientRecord objects for this patient that fall within a
      * specified time range.
      * The method filters records based on the start and end times provided.
+     * While records arrive in timestamp order the start of the range is found
+     * with a binary search, so querying recent records does not scan the whole history.
      *
      * @param startTime the start of the time range, in milliseconds since UNIX
      *                  epoch
@@ -55,14 +78,60 @@ public class Patient {
      */
     public List<PatientRecord> getRecords(long startTime, long endTime) {
         List<PatientRecord> list = new ArrayList<>();
-        for (long i = startTime; i <= endTime; i += 1000) {
+        if (!sortedByTime) {
             for (PatientRecord record : patientRecords) {
-                if (record.getTimestamp() == i) {
+                if (record.getTimestamp() >= startTime && record.getTimestamp() <= endTime) {
                     list.add(record);
                 }
             }
+            return list;
+        }
+        for (int i = firstIndexAtOrAfter(startTime); i < patientRecords.size(); i++) {
+            PatientRecord record = patientRecords.get(i);
+            if (record.getTimestamp() > endTime) {
+                break;
+            }
+            list.add(record);
         }
         return list;
 
     }
+
+    /**
+     * Retrieves the records that were added from the given sequence number on, in the order they
+     * were added, whatever their timestamps.
+     *
+     * @param fromSequence the {@link PatientRecord#getSequence() sequence number} of the first record
+     * @return a list of the records added from {@code fromSequence} on
+     */
+    public List<PatientRecord> getRecordsFrom(int fromSequence) {
+        if (fromSequence >= patientRecords.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(patientRecords.subList(Math.max(0, fromSequence), patientRecords.size()));
+    }
+
+    /**
+     * Returns the number of records added to this patient, which is also the sequence number
+     * of the next record.
+     *
+     * @return the number of records
+     */
+    public int getRecordCount() {
+        return patientRecords.size();
+    }
+
+    private int firstIndexAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = patientRecords.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (patientRecords.get(mid).getTimestamp() < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
 }
@@ -14,6 +14,8 @@ public class PatientRecord {
     private String recordType; // Example: ECG, blood pressure, etc.
     private double measurementValue; // Example: heart rate
     private long timestamp;
+    private final long storedNanos; // When the record was stored, for alert latency tracking
+    private final int sequence; // Position among the patient's records in the order they were added
 
     /**
      * Constructs a new patient record with specified details.
@@ -26,10 +28,19 @@ public class PatientRecord {
      *                         milliseconds since epoch
      */
     public PatientRecord(int patientId, double measurementValue, String recordType, long timestamp) {
+        this(patientId, measurementValue, recordType, timestamp, -1);
+    }
+
+    /**
+     * Constructs a record that is added to a patient as the patient's {@code sequence}-th record.
+     */
+    PatientRecord(int patientId, double measurementValue, String recordType, long timestamp, int sequence) {
         this.patientId = patientId;
         this.measurementValue = measurementValue;
         this.recordType = recordType;
         this.timestamp = timestamp;
+        this.storedNanos = System.nanoTime();
+        this.sequence = sequence;
     }
 
     /**
@@ -67,4 +78,26 @@ public class PatientRecord {
     public String getRecordType() {
         return recordType;
     }
+
+    /**
+     * Returns the {@link System#nanoTime()} at which this record was created.
+     * Records are created when they are added to a patient, so this is the time
+     * the measurement was stored.
+     * 
+     * @return the creation time in nanoseconds, only comparable to other {@code System.nanoTime()} values
+     */
+    public long getStoredNanos() {
+        return storedNanos;
+    }
+
+    /**
+     * Returns the position of this record among the records of its patient, in the order they
+     * were added, starting at 0. Unlike the timestamp it identifies the records that were added
+     * since a point, including records that arrive late.
+     *
+     * @return the sequence number, or -1 if the record was not added to a patient
+     */
+    public int getSequence() {
+        return sequence;
+    }
 }
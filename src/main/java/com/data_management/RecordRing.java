@@ -0,0 +1,82 @@
+package com.data_management;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The fixed-size ring through which {@link DataStorage} pushes new records to its subscriptions.
+ * <p>
+ * There is a single writer at a time, since records are only published while the storage is
+ * locked, and it never waits for the subscriptions: every record gets the next sequence number and
+ * overwrites the record one capacity before it. Each {@link RecordSubscription} reads behind the
+ * writer with a cursor of its own, so a slow subscription holds up neither the storage nor the
+ * other subscriptions; when it falls more than a capacity behind, the overwritten records are lost
+ * for that subscription only.
+ */
+final class RecordRing {
+    private final AtomicReferenceArray<PatientRecord> slots;
+    private final int mask;
+    private final List<RecordSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile long published; // The sequence number of the next record
+
+    /**
+     * Constructs an empty ring.
+     *
+     * @param capacity the number of records kept, a power of two
+     */
+    RecordRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two");
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Appends a record and wakes the subscriptions that wait for one. Must not be called by two
+     * threads at once.
+     *
+     * @param record the record
+     */
+    void publish(PatientRecord record) {
+        long sequence = published;
+        // Ordered before the sequence is published, so a reader that sees the sequence sees the record
+        slots.lazySet((int) sequence & mask, record);
+        published = sequence + 1;
+        for (RecordSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Returns the sequence number of the next record, which is the number of records published so far.
+     *
+     * @return the sequence number
+     */
+    long published() {
+        return published;
+    }
+
+    /**
+     * Returns the record with a sequence number, or a newer one if the writer has since overwritten it.
+     *
+     * @param sequence the sequence number, less than {@link #published()}
+     * @return the record
+     */
+    PatientRecord get(long sequence) {
+        return slots.get((int) sequence & mask);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    void add(RecordSubscription subscription) {
+        subscriptions.add(subscription);
+    }
+
+    void remove(RecordSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+}
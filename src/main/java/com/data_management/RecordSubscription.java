@@ -0,0 +1,185 @@
+package com.data_management;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A registration for the records that are added to a {@link DataStorage}, created by
+ * {@link DataStorage#subscribe(Set, Set, Consumer)}.
+ * <p>
+ * Every subscription has a thread of its own that sleeps until records are added, then delivers
+ * all the new records of its patients and record types to the consumer as one batch, in the order
+ * they were added. Records that arrive while the consumer is busy make up the next batch, so the
+ * batches grow with the load instead of the consumer being called once per record. A consumer that
+ * falls more than the ring capacity behind loses the oldest records it has not yet seen; they are
+ * counted by {@link #getDroppedRecords()} and logged.
+ */
+public final class RecordSubscription implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RecordSubscription.class.getName());
+    private static final AtomicInteger COUNT = new AtomicInteger();
+    private static final int CHUNK_SIZE = 256; // Records copied out of the ring before checking they are intact
+
+    private final RecordRing ring;
+    private final int[] patientIds; // Sorted, or null for all patients
+    private final Set<String> recordTypes; // Case-insensitive, or null for all record types
+    private final Consumer<List<PatientRecord>> consumer;
+    private final Thread thread;
+    private final PatientRecord[] chunk = new PatientRecord[CHUNK_SIZE];
+    private volatile long cursor; // The sequence number of the next record to read
+    private volatile long deliveredRecords;
+    private volatile long droppedRecords;
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    RecordSubscription(RecordRing ring, Set<Integer> patientIds, Set<String> recordTypes,
+                       Consumer<List<PatientRecord>> consumer) {
+        this.ring = ring;
+        this.patientIds = patientIds == null ? null
+                : patientIds.stream().mapToInt(Integer::intValue).sorted().toArray();
+        if (recordTypes == null) {
+            this.recordTypes = null;
+        } else {
+            this.recordTypes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            this.recordTypes.addAll(recordTypes);
+        }
+        this.consumer = consumer;
+        this.cursor = ring.published();
+        this.thread = new Thread(this::run, "record-subscriber-" + COUNT.incrementAndGet());
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        ring.add(this);
+        thread.start();
+    }
+
+    /**
+     * Wakes the subscription if it is waiting for records. Called by the writer after every record,
+     * so it only costs a volatile read while the subscription is busy.
+     */
+    void signal() {
+        if (waiting) {
+            waiting = false;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Returns how many records have been delivered to the consumer.
+     *
+     * @return the number of delivered records
+     */
+    public long getDeliveredRecords() {
+        return deliveredRecords;
+    }
+
+    /**
+     * Returns how many records were lost because the consumer fell more than the ring capacity
+     * behind. Records of other patients and record types are counted too, since they are lost
+     * before they can be told apart.
+     *
+     * @return the number of dropped records
+     */
+    public long getDroppedRecords() {
+        return droppedRecords;
+    }
+
+    /**
+     * Returns how many records have been added to the storage that the subscription has not yet
+     * looked at.
+     *
+     * @return the number of records behind
+     */
+    public long getLag() {
+        return Math.max(0, ring.published() - cursor);
+    }
+
+    /**
+     * Stops the deliveries. A batch that is being delivered is finished, but no batch is started afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ring.remove(this);
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (!closed) {
+            if (cursor == ring.published()) {
+                waiting = true;
+                // Checked again, since a record published before waiting was set did not signal
+                if (cursor == ring.published() && !closed) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+                continue;
+            }
+            List<PatientRecord> batch = read();
+            if (!batch.isEmpty() && !closed) {
+                try {
+                    consumer.accept(batch);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Record subscriber " + thread.getName() + " failed on a batch", e);
+                }
+                deliveredRecords += batch.size();
+            }
+        }
+    }
+
+    /**
+     * Reads every record published so far that matches the subscription.
+     */
+    private List<PatientRecord> read() {
+        List<PatientRecord> batch = new ArrayList<>();
+        long next = cursor;
+        long end = ring.published();
+        int capacity = ring.capacity();
+        // The slot of the next record to be published may be being overwritten already
+        long oldestIntact = end - capacity + 1;
+        if (next < oldestIntact) {
+            dropped(oldestIntact - next);
+            next = oldestIntact;
+        }
+        while (next < end) {
+            int count = (int) Math.min(CHUNK_SIZE, end - next);
+            for (int i = 0; i < count; i++) {
+                chunk[i] = ring.get(next + i);
+            }
+            // The writer may have overwritten the oldest of them while they were copied
+            oldestIntact = ring.published() - capacity + 1;
+            int skip = (int) Math.max(0, Math.min(count, oldestIntact - next));
+            if (skip > 0) {
+                dropped(skip);
+            }
+            for (int i = skip; i < count; i++) {
+                if (matches(chunk[i])) {
+                    batch.add(chunk[i]);
+                }
+            }
+            Arrays.fill(chunk, 0, count, null);
+            next += count;
+        }
+        cursor = next;
+        return batch;
+    }
+
+    private boolean matches(PatientRecord record) {
+        return (patientIds == null || Arrays.binarySearch(patientIds, record.getPatientId()) >= 0)
+                && (recordTypes == null || recordTypes.contains(record.getRecordType()));
+    }
+
+    private void dropped(long records) {
+        droppedRecords += records;
+        LOGGER.warning("Record subscriber " + thread.getName() + " fell behind and lost " + records
+                + " records (" + droppedRecords + " in total)");
+    }
+}
@@ -0,0 +1,26 @@
+package com.data_management;
+
+import com.cardio_generator.outputs.Labels;
+
+/**
+ * Converts the values of the simulator's samples to the scale they are stored in.
+ * <p>
+ * The simulator sends blood saturation as a percentage, while the alert rules compare it as a
+ * fraction, so the readers store it divided by 100. Every other value, including an alert as
+ * {@link Labels#TRIGGERED} or {@link Labels#RESOLVED}, is stored as it is.
+ */
+final class SampleValues {
+    private SampleValues() {
+    }
+
+    /**
+     * Returns the value to store for a sample.
+     *
+     * @param labelCode the code of the label of the sample
+     * @param value     the value of the sample, as parsed by {@link Labels#parse(int, String)}
+     * @return the value to store
+     */
+    static double toStored(int labelCode, double value) {
+        return labelCode == Labels.SATURATION ? value / 100 : value;
+    }
+}
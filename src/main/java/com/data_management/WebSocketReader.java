@@ -1,5 +1,6 @@
 package com.data_management;
 
+import com.cardio_generator.outputs.Labels;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.handshake.ServerHandshake;
 
@@ -38,12 +39,23 @@ public class WebSocketReader extends WebSocketClient implements DataReader {
 
     /**
      * This method is called when a message is received from the server.
+     * A message can hold several samples, one per line.
      *
      * @param message The message received from the server.
      */
     @Override
     public void onMessage(String message) {
-        recieveData(message);
+        int start = 0;
+        int end;
+        while ((end = message.indexOf('\n', start)) >= 0) {
+            if (end > start) {
+                recieveData(message.substring(start, end));
+            }
+            start = end + 1;
+        }
+        if (start < message.length()) {
+            recieveData(start == 0 ? message : message.substring(start));
+        }
     }
 
     /**
@@ -102,7 +114,8 @@ public class WebSocketReader extends WebSocketClient implements DataReader {
             int id = Integer.parseInt(values[0]);
             long timestamp = Long.parseLong(values[1]);
             String recordType = values[2];
-            double value = Double.parseDouble(values[3]);
+            int labelCode = Labels.code(recordType);
+            double value = SampleValues.toStored(labelCode, Labels.parse(labelCode, values[3]));
 
             dataStorage.addPatientData(id, value, recordType, timestamp);
         }catch (Exception e) {
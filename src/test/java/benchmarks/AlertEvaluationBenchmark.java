@@ -0,0 +1,85 @@
+package benchmarks;
+
+import com.alerts.AlertGenerator;
+import com.alerts.RuleEngine;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Measures {@link AlertGenerator#evaluateData} on patient histories of increasing length:
+ * once for a first evaluation of the whole history, and once for the steady state where a
+ * single new record arrived since the previous evaluation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlertEvaluationBenchmark {
+    private static final long INTERVAL = 250;
+
+    @Param({"100", "1000", "10000", "100000"})
+    int historySize;
+
+    private final Patient patient = new Patient(1);
+    private RuleEngine ruleEngine;
+    private DataStorage history;
+    private AlertGenerator freshGenerator;
+
+    private DataStorage growingHistory;
+    private AlertGenerator steadyGenerator;
+    private SplittableRandom random;
+    private long nextTimestamp;
+    private int nextType;
+
+    @Setup(Level.Trial)
+    public void createHistory() {
+        // Alerts are rare in the synthetic data, but logging them would dominate the measurement
+        Logger.getLogger(AlertGenerator.class.getName()).setLevel(java.util.logging.Level.OFF);
+        ruleEngine = RuleEngine.withDefaultRules();
+        history = new DataStorage();
+        SyntheticData.fill(history, 1, historySize, INTERVAL, 42L);
+
+        growingHistory = new DataStorage();
+        SyntheticData.fill(growingHistory, 1, historySize, INTERVAL, 42L);
+        steadyGenerator = new AlertGenerator(growingHistory, ruleEngine);
+        steadyGenerator.evaluateData(patient);
+        random = new SplittableRandom(43L);
+        nextTimestamp = SyntheticData.START + historySize * INTERVAL;
+    }
+
+    @Setup(Level.Invocation)
+    public void createGenerator() {
+        freshGenerator = new AlertGenerator(history, ruleEngine);
+    }
+
+    @Benchmark
+    public void evaluateWholeHistory() {
+        freshGenerator.evaluateData(patient);
+    }
+
+    @Benchmark
+    public void evaluateNewRecord() {
+        String type = SyntheticData.TYPES[nextType++ % SyntheticData.TYPES.length];
+        growingHistory.addPatientData(1, SyntheticData.value(type, random), type, nextTimestamp);
+        nextTimestamp += INTERVAL;
+        steadyGenerator.evaluateData(patient);
+    }
+}
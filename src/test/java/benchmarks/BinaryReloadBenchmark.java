@@ -0,0 +1,106 @@
+package benchmarks;
+
+import com.cardio_generator.outputs.BinaryFile;
+import com.cardio_generator.outputs.BinaryOutputStrategy;
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.cardio_generator.outputs.Labels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares reading back one million samples written by the file output, which has to parse every
+ * line, with reading them from the memory-mapped binary output. The sizes of both are printed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryReloadBenchmark {
+    private static final int PATIENTS = 100;
+    private static final int SAMPLES_PER_PATIENT = 10_000;
+
+    private Path directory;
+    private Path textFile;
+    private Path binaryFile;
+
+    @Setup(Level.Trial)
+    public void writeSamples() throws IOException {
+        directory = Files.createTempDirectory("binary-reload-benchmark");
+        FileOutputStrategy text = new FileOutputStrategy(directory.resolve("text").toString());
+        BinaryOutputStrategy binary = new BinaryOutputStrategy(directory.resolve("binary").toString());
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SAMPLES_PER_PATIENT; i++) {
+            for (int patientId = 1; patientId <= PATIENTS; patientId++) {
+                long timestamp = SyntheticData.START + i * 4L;
+                double value = SyntheticData.value("ECG", random);
+                text.output(patientId, timestamp, Labels.ECG, value);
+                binary.output(patientId, timestamp, Labels.ECG, value);
+            }
+        }
+        text.close();
+        binary.close();
+        textFile = directory.resolve("text").resolve("ECG.txt");
+        binaryFile = BinaryFile.list(directory.resolve("binary")).get(0);
+        System.out.println("Text file: " + Files.size(textFile) + " bytes, binary file: "
+                + Files.size(binaryFile) + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSamples() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void parseText(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(textFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(", ");
+                int patientId = Integer.parseInt(fields[0].substring(fields[0].indexOf(": ") + 2));
+                long timestamp = Long.parseLong(fields[1].substring(fields[1].indexOf(": ") + 2));
+                String label = fields[2].substring(fields[2].indexOf(": ") + 2);
+                double value = Double.parseDouble(fields[3].substring(fields[3].indexOf(": ") + 2));
+                blackhole.consume(patientId);
+                blackhole.consume(timestamp);
+                blackhole.consume(label);
+                blackhole.consume(value);
+            }
+        }
+    }
+
+    @Benchmark
+    public void scanBinary(Blackhole blackhole) throws IOException {
+        try (BinaryFile file = BinaryFile.open(binaryFile)) {
+            file.scan((patientId, timestamp, labelCode, value) -> {
+                blackhole.consume(patientId);
+                blackhole.consume(timestamp);
+                blackhole.consume(labelCode);
+                blackhole.consume(value);
+            });
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import com.cardio_generator.CachedClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading {@link Clock#systemUTC()} with reading a {@link CachedClock} at different
+ * resolutions, from as many threads as the generators use. At the end of every iteration the CPU
+ * time the refresher thread of the cached clock used per second is printed, which is the price of
+ * the cheaper reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Threads(4)
+@Fork(1)
+public class ClockBenchmark {
+    /**
+     * {@code system} reads {@link Clock#systemUTC()}, a number reads a {@link CachedClock} with that
+     * resolution in milliseconds.
+     */
+    @Param({"system", "1", "10", "100"})
+    public String clock;
+
+    private Clock source;
+    private Thread refresher;
+    private long refresherCpuNanos;
+    private long iterationStartNanos;
+
+    @Setup(Level.Trial)
+    public void createClock() {
+        if (clock.equals("system")) {
+            source = Clock.systemUTC();
+            return;
+        }
+        source = CachedClock.start(Long.parseLong(clock));
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("cached-clock") && thread.isAlive()) {
+                refresher = thread;
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        refresherCpuNanos = refresherCpuNanos();
+        iterationStartNanos = System.nanoTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printRefresherCpu() {
+        if (refresher != null) {
+            double seconds = (System.nanoTime() - iterationStartNanos) / 1e9;
+            System.out.printf("%nRefresher CPU: %.1f us per second%n",
+                    (refresherCpuNanos() - refresherCpuNanos) / 1e3 / seconds);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeClock() {
+        if (source instanceof CachedClock) {
+            ((CachedClock) source).close();
+        }
+    }
+
+    @Benchmark
+    public long millis() {
+        return source.millis();
+    }
+
+    private long refresherCpuNanos() {
+        if (refresher == null) {
+            return 0;
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.getThreadCpuTime(refresher.threadId());
+    }
+}
@@ -0,0 +1,118 @@
+package benchmarks;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DataStorage#addPatientData} with one to eight concurrent writers, and
+ * {@link DataStorage#getRecords} over windows of different sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class DataStorageBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedStorage {
+        DataStorage storage;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            storage = new DataStorage();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private static final int SIZE = 1 << 14;
+        final int[] patients = new int[SIZE];
+        final double[] values = new double[SIZE];
+        final String[] types = new String[SIZE];
+        long timestamp;
+        int next;
+
+        @Setup(Level.Trial)
+        public void create(ThreadParams threads) {
+            SplittableRandom random = new SplittableRandom(42L + threads.getThreadIndex());
+            for (int i = 0; i < SIZE; i++) {
+                patients[i] = 1 + random.nextInt(1000);
+                types[i] = SyntheticData.TYPES[random.nextInt(SyntheticData.TYPES.length)];
+                values[i] = SyntheticData.value(types[i], random);
+            }
+            timestamp = SyntheticData.START;
+        }
+
+        void write(DataStorage storage) {
+            int i = next++ & (SIZE - 1);
+            storage.addPatientData(patients[i], values[i], types[i], timestamp++);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class History {
+        static final int RECORDS = 1_000_000;
+        static final long INTERVAL = 250;
+
+        @Param({"1000", "60000", "3600000", "86400000"})
+        long windowMillis;
+
+        DataStorage storage;
+        long end;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            storage = new DataStorage();
+            SyntheticData.fill(storage, 1, RECORDS, INTERVAL, 42L);
+            end = SyntheticData.START + (RECORDS - 1) * INTERVAL;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void addPatientData1Writer(SharedStorage shared, Writer writer) {
+        writer.write(shared.storage);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void addPatientData2Writers(SharedStorage shared, Writer writer) {
+        writer.write(shared.storage);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addPatientData4Writers(SharedStorage shared, Writer writer) {
+        writer.write(shared.storage);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addPatientData8Writers(SharedStorage shared, Writer writer) {
+        writer.write(shared.storage);
+    }
+
+    @Benchmark
+    public List<PatientRecord> getRecentRecords(History history) {
+        return history.storage.getRecords(1, history.end - history.windowMillis, history.end);
+    }
+}
@@ -0,0 +1,116 @@
+package benchmarks;
+
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.cardio_generator.outputs.Labels;
+import com.cardio_generator.outputs.OutputStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Compares the lines per second written by {@link FileOutputStrategy} with the previous
+ * implementation, which opened, wrote and closed the file for every line, and the samples passed
+ * as numbers with the same samples passed as text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class FileOutputBenchmark {
+    private final AtomicLong timestamp = new AtomicLong(SyntheticData.START);
+    private Path directory;
+    private OutputStrategy buffered;
+    private OutputStrategy reopening;
+
+    @Setup(Level.Iteration)
+    public void createOutputs() throws IOException {
+        directory = Files.createTempDirectory("file-output-benchmark");
+        buffered = new FileOutputStrategy(directory.resolve("buffered").toString());
+        reopening = new ReopeningFileOutput(directory.resolve("reopening").toString());
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteOutputs() throws IOException {
+        buffered.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void bufferedChannels() {
+        write(buffered);
+    }
+
+    @Benchmark
+    public void bufferedChannelsFromText() {
+        // As the generators did before they passed numbers: format the value, then parse it back
+        long time = timestamp.getAndIncrement();
+        int labelCode = (int) (time & 3);
+        buffered.output((int) (time & 1023) + 1, time, Labels.name(labelCode),
+                Labels.format(labelCode, (time & 255) * 0.01));
+    }
+
+    @Benchmark
+    public void reopenPerLine() {
+        write(reopening);
+    }
+
+    private void write(OutputStrategy output) {
+        // ECG, Saturation, SystolicPressure and DiastolicPressure
+        long time = timestamp.getAndIncrement();
+        output.output((int) (time & 1023) + 1, time, (int) (time & 3), (time & 255) * 0.01);
+    }
+
+    /**
+     * The file output as it was before it kept its files open.
+     */
+    private static final class ReopeningFileOutput implements OutputStrategy {
+        private final String baseDirectory;
+
+        private ReopeningFileOutput(String baseDirectory) {
+            this.baseDirectory = baseDirectory;
+        }
+
+        @Override
+        public void output(int patientId, long timestamp, int labelCode, double value) {
+            String label = Labels.name(labelCode);
+            String data = Labels.format(labelCode, value);
+            try {
+                Files.createDirectories(Paths.get(baseDirectory));
+            } catch (IOException e) {
+                return;
+            }
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(baseDirectory, label + ".txt"),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                out.printf("Patient ID: %d, Timestamp: %d, Label: %s, Data: %s%n", patientId, timestamp, label, data);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package benchmarks;
+
+import com.alerts.AlertGenerator;
+import com.alerts.AlertLatencyMonitor;
+import com.alerts.LatencyHistogram;
+import com.alerts.RuleEngine;
+import com.cardio_generator.TickScheduler;
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.HighRateECGDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import com.data_management.WebSocketReader;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures the whole pipeline in one JVM: the simulator's generators on a {@link TickScheduler},
+ * a {@link WebSocketOutputStrategy} on localhost, a {@link WebSocketReader} storing into
+ * {@link DataStorage}, and a thread that keeps running {@link AlertGenerator#evaluateData} over all
+ * patients.
+ * <p>
+ * For every ECG sample rate the patient count is doubled step by step until the pipeline no longer
+ * keeps up: fewer than 95% of the generated samples are stored, the 99th percentile of the time from
+ * a sample's timestamp to its storage exceeds the limit, frames are dropped, or more than 5% of the
+ * generator ticks overrun. The ECG samples of a tick are generated at its end, so the ingest
+ * latency includes half a tick on average. Every step prints the stored records per second, the
+ * ingest latency percentiles, the time of a full alert evaluation pass and the heap used per
+ * patient after the step. This is not a JMH benchmark, as it measures a running system rather than
+ * a method; run it with:
+ * <pre>
+ * mvn -Ppipeline-benchmark -DskipTests verify -Dpipeline.args="--ecg-rates 250,500"
+ * </pre>
+ */
+public class PipelineBenchmark {
+    private static final double SUSTAINED_FRACTION = 0.95;
+    private static final double MAX_OVERRUN_FRACTION = 0.05; // Of the ticks, e.g. for GC pauses
+    private static final long TICK_MILLIS = 100;
+    // Held, so that its level is not lost when the logger is garbage collected
+    private static final Logger ALERT_LOGGER = Logger.getLogger("com.alerts");
+
+    private final double ecgRateHz;
+    private final int patientCount;
+    private final long warmupMillis;
+    private final long measureMillis;
+
+    private PipelineBenchmark(double ecgRateHz, int patientCount, long warmupMillis, long measureMillis) {
+        this.ecgRateHz = ecgRateHz;
+        this.patientCount = patientCount;
+        this.warmupMillis = warmupMillis;
+        this.measureMillis = measureMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Double> ecgRates = List.of(250.0);
+        int startPatients = 16;
+        int maxPatients = 1 << 16;
+        long warmupMillis = 3000;
+        long measureMillis = 10_000;
+        long maxP99Millis = 1000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--ecg-rates":
+                    ecgRates = new ArrayList<>();
+                    for (String rate : value.split(",")) {
+                        ecgRates.add(Double.parseDouble(rate));
+                    }
+                    break;
+                case "--start-patients":
+                    startPatients = Integer.parseInt(value);
+                    break;
+                case "--max-patients":
+                    maxPatients = Integer.parseInt(value);
+                    break;
+                case "--warmup-seconds":
+                    warmupMillis = (long) (Double.parseDouble(value) * 1000);
+                    break;
+                case "--measure-seconds":
+                    measureMillis = (long) (Double.parseDouble(value) * 1000);
+                    break;
+                case "--max-p99-millis":
+                    maxP99Millis = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        // Every triggered alert is logged as a warning, which would measure the console instead
+        ALERT_LOGGER.setLevel(Level.SEVERE);
+
+        List<String> summary = new ArrayList<>();
+        for (double ecgRate : ecgRates) {
+            System.out.printf("%nECG at %.0f Hz%n", ecgRate);
+            System.out.printf("%9s %12s %12s %9s %9s %9s %11s %11s %10s  %s%n", "patients", "offered/s", "stored/s",
+                    "p50 ms", "p99 ms", "p99.9 ms", "eval p99 ms", "alert p99 ms", "KB/patient", "sustained");
+            Result best = null;
+            for (int patients = startPatients; patients <= maxPatients; patients *= 2) {
+                Result result = new PipelineBenchmark(ecgRate, patients, warmupMillis, measureMillis).run();
+                boolean sustained = result.isSustained(maxP99Millis);
+                System.out.printf("%9d %12.0f %12.0f %9.1f %9.1f %9.1f %11.1f %11.1f %10.1f  %s%n", patients,
+                        result.offeredPerSecond, result.storedPerSecond, result.p50Millis, result.p99Millis,
+                        result.p999Millis, result.evaluationP99Millis, result.alertP99Millis,
+                        result.heapBytesPerPatient / 1024, sustained ? "yes" : "no (" + result.limit(maxP99Millis) + ")");
+                if (!sustained) {
+                    break;
+                }
+                best = result;
+                if (result.heapFraction > 0.5) {
+                    System.out.println("Stopping before the heap runs out; give the JVM more heap with -Xmx to go further");
+                    break;
+                }
+            }
+            summary.add(best == null
+                    ? String.format("ECG at %.0f Hz: not sustained with %d patients", ecgRate, startPatients)
+                    : String.format("ECG at %.0f Hz: %d patients, %.0f records/s, p99 %.1f ms, %.1f KB heap per patient",
+                    ecgRate, best.patientCount, best.storedPerSecond, best.p99Millis, best.heapBytesPerPatient / 1024));
+        }
+        System.out.printf("%nSustainable throughput%n");
+        summary.forEach(System.out::println);
+        System.exit(0);
+    }
+
+    private Result run() throws Exception {
+        long baselineHeap = usedHeapAfterGc();
+        int port = freePort();
+        MeasuredStorage storage = new MeasuredStorage();
+        storage.setEcgSampleRate(ecgRateHz);
+        AlertLatencyMonitor alertLatency = new AlertLatencyMonitor(Long.MAX_VALUE);
+        AlertGenerator alertGenerator = new AlertGenerator(storage, RuleEngine.withDefaultRules(), alertLatency);
+
+        WebSocketOutputStrategy server = new WebSocketOutputStrategy(port);
+        WebSocketReader reader = new WebSocketReader(new URI("ws://localhost:" + port), storage);
+        if (!reader.connectBlocking(10, TimeUnit.SECONDS)) {
+            throw new IOException("Could not connect to the WebSocket output on port " + port);
+        }
+        while (server.getClientCount() < 1) {
+            Thread.sleep(10);
+        }
+
+        LongAdder generated = new LongAdder();
+        OutputStrategy counted = new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, int labelCode, double value) {
+                generated.increment();
+                server.output(patientId, timestamp, labelCode, value);
+            }
+
+            @Override
+            public void outputBatch(int patientId, int labelCode, long[] timestamps, double[] values, int count) {
+                generated.add(count);
+                server.outputBatch(patientId, labelCode, timestamps, values, count);
+            }
+        };
+        TickScheduler scheduler = schedule(counted);
+        Evaluator evaluator = new Evaluator(storage, alertGenerator);
+
+        scheduler.start();
+        evaluator.start();
+        Thread.sleep(warmupMillis);
+
+        storage.latency = new LatencyHistogram();
+        evaluator.passes = new LatencyHistogram();
+        alertLatency.reset();
+        long overruns = scheduler.getOverrunCount();
+        long droppedFrames = server.getDroppedFrames();
+        long generatedBefore = generated.sum();
+        long storedBefore = storage.stored.sum();
+        long startNanos = System.nanoTime();
+        Thread.sleep(measureMillis);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        Result result = new Result();
+        result.patientCount = patientCount;
+        result.offeredPerSecond = (generated.sum() - generatedBefore) / seconds;
+        result.storedPerSecond = (storage.stored.sum() - storedBefore) / seconds;
+        result.p50Millis = storage.latency.getPercentileMicros(0.5) / 1000.0;
+        result.p99Millis = storage.latency.getPercentileMicros(0.99) / 1000.0;
+        result.p999Millis = storage.latency.getPercentileMicros(0.999) / 1000.0;
+        result.evaluationP99Millis = evaluator.passes.getPercentileMicros(0.99) / 1000.0;
+        result.alertP99Millis = alertLatency.getEndToEndP99Millis().values().stream()
+                .mapToDouble(Double::doubleValue).max().orElse(0);
+        result.overruns = scheduler.getOverrunCount() - overruns;
+        result.ticks = measureMillis / TICK_MILLIS;
+        result.droppedFrames = server.getDroppedFrames() - droppedFrames;
+
+        scheduler.stop();
+        evaluator.stop();
+        reader.closeBlocking();
+        server.close();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long usedHeap = usedHeapAfterGc();
+        result.heapBytesPerPatient = Math.max(0, usedHeap - baselineHeap) / (double) patientCount;
+        result.heapFraction = usedHeap / (double) memory.getHeapMemoryUsage().getMax();
+        // Keep the stored records reachable until the heap has been measured
+        storage.stored.add(0);
+        return result;
+    }
+
+    /**
+     * Schedules the generators as {@code HealthDataSimulator --ecg-rate} does, with a fixed seed.
+     */
+    private TickScheduler schedule(OutputStrategy output) {
+        Clock clock = Clock.systemUTC();
+        SplittableRandom seeds = new SplittableRandom(42);
+        List<Integer> patientIds = new ArrayList<>();
+        for (int i = 1; i <= patientCount; i++) {
+            patientIds.add(i);
+        }
+        Collections.shuffle(patientIds, new Random(seeds.nextLong()));
+        TickScheduler scheduler = new TickScheduler(TICK_MILLIS);
+        scheduler.schedule(new HighRateECGDataGenerator(patientCount, clock, seeds.nextLong(), ecgRateHz),
+                patientIds, TICK_MILLIS, TimeUnit.MILLISECONDS, output);
+        scheduler.schedule(new BloodSaturationDataGenerator(patientCount, clock, seeds.nextLong()),
+                patientIds, 1, TimeUnit.SECONDS, output);
+        scheduler.schedule(new BloodPressureDataGenerator(patientCount, clock, seeds.nextLong()),
+                patientIds, 1, TimeUnit.MINUTES, output);
+        scheduler.schedule(new BloodLevelsDataGenerator(patientCount, clock, seeds.nextLong()),
+                patientIds, 2, TimeUnit.MINUTES, output);
+        return scheduler;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Records how many samples the reader stored and how long after their timestamp.
+     */
+    private static final class MeasuredStorage extends DataStorage {
+        private final LongAdder stored = new LongAdder();
+        private volatile LatencyHistogram latency = new LatencyHistogram();
+
+        @Override
+        public void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+            super.addPatientData(patientId, measurementValue, recordType, timestamp);
+            stored.increment();
+            latency.record((System.currentTimeMillis() - timestamp) * 1000);
+        }
+    }
+
+    /**
+     * Evaluates the alert rules for every patient over and over, timing every pass.
+     */
+    private static final class Evaluator implements Runnable {
+        private static final long IDLE_PASS_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+        private final DataStorage storage;
+        private final AlertGenerator alertGenerator;
+        private final Thread thread = new Thread(this, "pipeline-alert-evaluator");
+        private volatile LatencyHistogram passes = new LatencyHistogram();
+        private volatile boolean stopped;
+
+        private Evaluator(DataStorage storage, AlertGenerator alertGenerator) {
+            this.storage = storage;
+            this.alertGenerator = alertGenerator;
+            thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        private void stop() throws InterruptedException {
+            stopped = true;
+            thread.join();
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                long startNanos = System.nanoTime();
+                for (Patient patient : storage.getAllPatients()) {
+                    alertGenerator.evaluateData(patient);
+                }
+                long passNanos = System.nanoTime() - startNanos;
+                passes.record(passNanos / 1000);
+                if (passNanos < IDLE_PASS_NANOS) {
+                    // Little to evaluate, so leave the cores to the pipeline being measured
+                    LockSupport.parkNanos(IDLE_PASS_NANOS - passNanos);
+                }
+            }
+        }
+    }
+
+    private static final class Result {
+        private int patientCount;
+        private double offeredPerSecond;
+        private double storedPerSecond;
+        private double p50Millis;
+        private double p99Millis;
+        private double p999Millis;
+        private double evaluationP99Millis;
+        private double alertP99Millis;
+        private long overruns;
+        private long ticks;
+        private long droppedFrames;
+        private double heapBytesPerPatient;
+        private double heapFraction;
+
+        private boolean isSustained(long maxP99Millis) {
+            return limit(maxP99Millis) == null;
+        }
+
+        private String limit(long maxP99Millis) {
+            if (storedPerSecond < offeredPerSecond * SUSTAINED_FRACTION) {
+                return "reader behind";
+            }
+            if (p99Millis > maxP99Millis) {
+                return "p99 over " + maxP99Millis + " ms";
+            }
+            if (droppedFrames > 0) {
+                return droppedFrames + " frames dropped";
+            }
+            if (overruns > ticks * MAX_OVERRUN_FRACTION) {
+                return overruns + " ticks overran";
+            }
+            return null;
+        }
+    }
+}
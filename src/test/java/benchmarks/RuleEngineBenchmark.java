@@ -0,0 +1,93 @@
+package benchmarks;
+
+import com.alerts.RuleEngine;
+import com.alerts.RuleState;
+import com.data_management.PatientRecord;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many records, and how many alert rules, the {@link RuleEngine} evaluates per second.
+ * The {@code rules} counter in the results is the rule throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleEngineBenchmark {
+    private static final String[] TYPES = {"ECG", "Saturation", "SystolicPressure", "DiastolicPressure", "Cholesterol"};
+    private static final int RECORDS = 1 << 16;
+
+    private RuleEngine engine;
+    private RuleState state;
+    private PatientRecord[] records;
+    private long alerts;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long rules;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rules = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createRecords() {
+        engine = RuleEngine.withDefaultRules();
+        state = engine.newState();
+        SplittableRandom random = new SplittableRandom(42L);
+        records = new PatientRecord[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            // Wider than the normal ranges, so that a share of the records raise alerts
+            double value;
+            switch (type) {
+                case "ECG":
+                    value = random.nextDouble(-0.5, 0.5);
+                    break;
+                case "Saturation":
+                    value = random.nextDouble(0.88, 1.0);
+                    break;
+                case "SystolicPressure":
+                    value = random.nextDouble(85, 185);
+                    break;
+                case "DiastolicPressure":
+                    value = random.nextDouble(55, 125);
+                    break;
+                default:
+                    value = random.nextDouble(150, 200);
+            }
+            records[i] = new PatientRecord(1 + random.nextInt(100), value, type, SyntheticData.START + i * 10L);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long evaluateRecords(Counters counters) {
+        long rules = 0;
+        for (PatientRecord record : records) {
+            rules += engine.evaluate(record, state, alert -> alerts++);
+        }
+        counters.rules += rules;
+        return alerts;
+    }
+}
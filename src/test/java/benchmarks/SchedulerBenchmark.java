@@ -0,0 +1,95 @@
+package benchmarks;
+
+import com.cardio_generator.SimulatedClock;
+import com.cardio_generator.TickScheduler;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.HighRateECGDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link TickScheduler} on its pool of worker threads with the scheduler on virtual
+ * threads, in batches and with a virtual thread per patient. Every operation generates ten seconds
+ * of simulated time as fast as possible: a 250 Hz ECG, saturation every second and blood pressure
+ * every minute, into an output that discards the samples. Run with {@code -prof gc} to compare the
+ * memory allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class SchedulerBenchmark {
+    private static final long TICK_MILLIS = 100;
+    private static final long SIMULATED_MILLIS = 10_000;
+
+    private static final OutputStrategy DISCARD = new OutputStrategy() {
+        @Override
+        public void output(int patientId, long timestamp, int labelCode, double value) {
+        }
+
+        @Override
+        public void outputBatch(int patientId, int labelCode, long[] timestamps, double[] values, int count) {
+        }
+    };
+
+    @Param({"1000", "10000", "50000"})
+    public int patients;
+
+    /**
+     * {@code pooled} runs batches on a worker per core, {@code virtual} runs the same batches on
+     * virtual threads and {@code virtual-per-patient} runs every patient on a virtual thread.
+     */
+    @Param({"pooled", "virtual", "virtual-per-patient"})
+    public String threads;
+
+    private TickScheduler scheduler;
+
+    @Setup(Level.Invocation)
+    public void createScheduler() {
+        SimulatedClock clock = new SimulatedClock(SyntheticData.START);
+        boolean virtual = !threads.equals("pooled");
+        int batchSize = threads.equals("virtual-per-patient") ? 1 : TickScheduler.DEFAULT_BATCH_SIZE;
+        scheduler = new TickScheduler(TICK_MILLIS, Runtime.getRuntime().availableProcessors(), batchSize, clock,
+                Double.POSITIVE_INFINITY, virtual);
+        scheduler.setEndMillis(SyntheticData.START + SIMULATED_MILLIS);
+
+        List<Integer> patientIds = new ArrayList<>();
+        for (int i = 1; i <= patients; i++) {
+            patientIds.add(i);
+        }
+        Collections.shuffle(patientIds, new Random(1));
+        scheduler.schedule(new HighRateECGDataGenerator(patients, clock, 1L, 250), patientIds,
+                TICK_MILLIS, TimeUnit.MILLISECONDS, DISCARD);
+        scheduler.schedule(new BloodSaturationDataGenerator(patients, clock, 2L), patientIds,
+                1, TimeUnit.SECONDS, DISCARD);
+        scheduler.schedule(new BloodPressureDataGenerator(patients, clock, 3L), patientIds,
+                1, TimeUnit.MINUTES, DISCARD);
+    }
+
+    @Benchmark
+    public long tenSimulatedSeconds() throws InterruptedException {
+        scheduler.start();
+        scheduler.awaitTermination();
+        return scheduler.getOverrunCount();
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+
+import java.util.SplittableRandom;
+
+/**
+ * Reproducible synthetic patient data for the benchmarks.
+ * Every generator takes an explicit seed, so two runs see exactly the same records.
+ */
+final class SyntheticData {
+    static final long START = 1_700_000_000_000L;
+    static final String[] TYPES = {"ECG", "Saturation", "SystolicPressure", "DiastolicPressure"};
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Returns a plausible value for a record type, mostly inside the normal range.
+     */
+    static double value(String type, SplittableRandom random) {
+        switch (type) {
+            case "ECG":
+                return random.nextDouble(-0.3, 0.3);
+            case "Saturation":
+                return random.nextDouble(0.93, 1.0);
+            case "SystolicPressure":
+                return random.nextDouble(110, 125);
+            case "DiastolicPressure":
+                return random.nextDouble(70, 80);
+            default:
+                return random.nextDouble();
+        }
+    }
+
+    /**
+     * Creates records for one patient, one every {@code intervalMillis}, cycling through the record types.
+     */
+    static PatientRecord[] records(int patientId, int count, long intervalMillis, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        PatientRecord[] records = new PatientRecord[count];
+        for (int i = 0; i < count; i++) {
+            String type = TYPES[i % TYPES.length];
+            records[i] = new PatientRecord(patientId, value(type, random), type, START + i * intervalMillis);
+        }
+        return records;
+    }
+
+    /**
+     * Creates messages in the comma-separated format the simulator streams over WebSocket and TCP.
+     */
+    static String[] messages(int count, int patients, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] messages = new String[count];
+        for (int i = 0; i < count; i++) {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            messages[i] = (1 + random.nextInt(patients)) + "," + (START + i) + "," + type + "," + value(type, random);
+        }
+        return messages;
+    }
+
+    /**
+     * Fills a storage with the records of {@link #records} for one patient.
+     */
+    static void fill(DataStorage storage, int patientId, int count, long intervalMillis, long seed) {
+        for (PatientRecord record : records(patientId, count, intervalMillis, seed)) {
+            storage.addPatientData(record.getPatientId(), record.getMeasurementValue(), record.getRecordType(), record.getTimestamp());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import com.data_management.DataStorage;
+import com.data_management.WebSocketReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast {@link WebSocketReader#recieveData(String)} turns messages into stored records,
+ * with and without the cost of the storage itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebSocketReaderBenchmark {
+    private static final int MESSAGES = 1 << 16;
+
+    private String[] messages;
+    private WebSocketReader parseOnly;
+    private WebSocketReader parseAndStore;
+    private int next;
+
+    /**
+     * A storage that only keeps a checksum, so the benchmark measures parsing alone.
+     */
+    static final class DiscardingStorage extends DataStorage {
+        long checksum;
+
+        @Override
+        public synchronized void addPatientData(int patientId, double measurementValue, String recordType, long timestamp) {
+            checksum += patientId + timestamp + recordType.length() + (long) measurementValue;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createMessages() throws Exception {
+        messages = SyntheticData.messages(MESSAGES, 100, 42L);
+        parseOnly = new WebSocketReader(new URI("ws://localhost:8080"), new DiscardingStorage());
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStorage() throws Exception {
+        parseAndStore = new WebSocketReader(new URI("ws://localhost:8080"), new DataStorage());
+    }
+
+    @Benchmark
+    public void parse() {
+        parseOnly.recieveData(messages[next++ & (MESSAGES - 1)]);
+    }
+
+    @Benchmark
+    public void parseAndStore() {
+        parseAndStore.recieveData(messages[next++ & (MESSAGES - 1)]);
+    }
+}
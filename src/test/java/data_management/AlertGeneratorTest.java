@@ -1,68 +1,80 @@
 package data_management;
 
+import com.alerts.Alert;
 import com.alerts.AlertGenerator;
 import com.data_management.DataStorage;
 import com.data_management.Patient;
 import com.data_management.PatientRecord;
+import com.data_management.RecordSubscription;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 public class AlertGeneratorTest {
     private DataStorage dataStorage;
     private AlertGenerator alertGenerator;
+    private List<Alert> alerts;
 
     @BeforeEach
     public void setup() {
         dataStorage = mock(DataStorage.class);
         alertGenerator = new AlertGenerator(dataStorage);
+        alerts = new ArrayList<>();
+        alertGenerator.addAlertListener(alerts::add);
     }
 
     @Test
     void evaluateData_shouldTriggerAlert_whenSystolicPressureIsTooLow() {
         Patient patient = new Patient(1);
         PatientRecord record = new PatientRecord(1, 80.0, "systolicpressure", 1622544000L);
-        when(dataStorage.getRecords(anyInt(), anyLong(), anyLong())).thenReturn(Arrays.asList(record));
+        when(dataStorage.getRecordsFrom(anyInt(), anyInt())).thenReturn(Arrays.asList(record));
 
         alertGenerator.evaluateData(patient);
 
-        verify(dataStorage, times(2)).getRecords(anyInt(), anyLong(), anyLong());
+        verify(dataStorage, times(1)).getRecordsFrom(anyInt(), anyInt());
     }
 
     @Test
     void evaluateData_shouldTriggerAlert_whenDiastolicPressureIsTooHigh() {
         Patient patient = new Patient(1);
         PatientRecord record = new PatientRecord(1, 130.0, "diastolicpressure", 1622544000L);
-        when(dataStorage.getRecords(anyInt(), anyLong(), anyLong())).thenReturn(Arrays.asList(record));
+        when(dataStorage.getRecordsFrom(anyInt(), anyInt())).thenReturn(Arrays.asList(record));
 
         alertGenerator.evaluateData(patient);
 
-        verify(dataStorage, times(2)).getRecords(anyInt(), anyLong(), anyLong());
+        verify(dataStorage, times(1)).getRecordsFrom(anyInt(), anyInt());
     }
 
     @Test
     void evaluateData_shouldTriggerAlert_whenBloodSaturationIsTooLow() {
         Patient patient = new Patient(1);
         PatientRecord record = new PatientRecord(1, 0.8, "saturation", 1622544000L);
-        when(dataStorage.getRecords(anyInt(), anyLong(), anyLong())).thenReturn(Arrays.asList(record));
+        when(dataStorage.getRecordsFrom(anyInt(), anyInt())).thenReturn(Arrays.asList(record));
 
         alertGenerator.evaluateData(patient);
 
-        verify(dataStorage, times(2)).getRecords(anyInt(), anyLong(), anyLong());
+        verify(dataStorage, times(1)).getRecordsFrom(anyInt(), anyInt());
     }
 
     @Test
     public void evaluateData_shouldTriggerAlert_whenECGIsOverAverage() {
         Patient patient = new Patient(1);
         PatientRecord record = new PatientRecord(1, 0.4, "ecg", 1622544000L);
-        when(dataStorage.getRecords(anyInt(), anyLong(), anyLong())).thenReturn(Arrays.asList(record));
+        when(dataStorage.getRecordsFrom(anyInt(), anyInt())).thenReturn(Arrays.asList(record));
 
         alertGenerator.evaluateData(patient);
 
-        verify(dataStorage, times(2)).getRecords(anyInt(), anyLong(), anyLong());
+        verify(dataStorage, times(1)).getRecordsFrom(anyInt(), anyInt());
     }
 
     @Test
@@ -70,11 +82,90 @@ public class AlertGeneratorTest {
         Patient patient = new Patient(1);
         PatientRecord systolicRecord = new PatientRecord(1, 80.0, "systolicpressure", 1622544000L);
         PatientRecord saturationRecord = new PatientRecord(1, 0.8, "saturation", 1622544000L);
-        when(dataStorage.getRecords(anyInt(), anyLong(), anyLong())).thenReturn(Arrays.asList(systolicRecord, saturationRecord));
+        when(dataStorage.getRecordsFrom(anyInt(), anyInt())).thenReturn(Arrays.asList(systolicRecord, saturationRecord));
 
         alertGenerator.evaluateData(patient);
 
-        verify(dataStorage, times(2)).getRecords(anyInt(), anyLong(), anyLong());
+        verify(dataStorage, times(1)).getRecordsFrom(anyInt(), anyInt());
+    }
+
+    @Test
+    void evaluateData_shouldTriggerHypotensiveHypoxemia_whenReadingsAreWithinTolerance() {
+        Patient patient = new Patient(1);
+        PatientRecord systolicRecord = new PatientRecord(1, 85.0, "SystolicPressure", 1622544000000L);
+        PatientRecord saturationRecord = new PatientRecord(1, 0.88, "Saturation", 1622544001370L);
+        when(dataStorage.getRecordsFrom(anyInt(), anyInt())).thenReturn(Arrays.asList(systolicRecord, saturationRecord));
+
+        alertGenerator.evaluateData(patient);
+
+        assertTrue(alerts.stream().anyMatch(alert -> alert.getCondition().equals("Hypotensive Hypoxemia Alert")));
+    }
+
+    @Test
+    void evaluateData_shouldNotTriggerHypotensiveHypoxemia_whenReadingsAreTooFarApart() {
+        Patient patient = new Patient(1);
+        PatientRecord systolicRecord = new PatientRecord(1, 85.0, "SystolicPressure", 1622544000000L);
+        PatientRecord saturationRecord = new PatientRecord(1, 0.88, "Saturation", 1622544060000L);
+        when(dataStorage.getRecordsFrom(anyInt(), anyInt())).thenReturn(Arrays.asList(systolicRecord, saturationRecord));
+
+        alertGenerator.evaluateData(patient);
+
+        assertTrue(alerts.stream().noneMatch(alert -> alert.getCondition().equals("Hypotensive Hypoxemia Alert")));
     }
-}
 
+    @Test
+    void evaluateData_shouldOnlyEvaluateNewRecords_whenCalledAgain() {
+        DataStorage storage = new DataStorage();
+        AlertGenerator generator = new AlertGenerator(storage);
+        List<Alert> raised = new ArrayList<>();
+        generator.addAlertListener(raised::add);
+        Patient patient = new Patient(1);
+
+        storage.addPatientData(1, 80.0, "SystolicPressure", 1622544000000L);
+        generator.evaluateData(patient);
+        generator.evaluateData(patient);
+        assertEquals(1, raised.size());
+
+        storage.addPatientData(1, 0.5, "ECG", 1622544000000L);
+        generator.evaluateData(patient);
+        assertEquals(2, raised.size());
+    }
+
+    @Test
+    void evaluateData_shouldEvaluateRecords_whenTheyArriveOlderThanTheRecordsAlreadyEvaluated() {
+        DataStorage storage = new DataStorage();
+        AlertGenerator generator = new AlertGenerator(storage);
+        List<String> conditions = new ArrayList<>();
+        generator.addAlertListener(alert -> conditions.add(alert.getCondition()));
+        Patient patient = new Patient(1);
+
+        storage.addPatientData(1, 120.0, "SystolicPressure", 1622544060000L);
+        generator.evaluateData(patient);
+        // A saturation sample taken before the blood pressure, stored after it was evaluated
+        storage.addPatientData(1, 0.8, "Saturation", 1622544000000L);
+        generator.evaluateData(patient);
+
+        assertEquals(List.of("OXYGEN SATURATION TOO LOW"), conditions);
+    }
+
+    @Test
+    void evaluateAsStored_shouldTriggerAlerts_withoutEvaluateDataBeingCalled() throws InterruptedException {
+        DataStorage storage = new DataStorage();
+        AlertGenerator pushed = new AlertGenerator(storage);
+        CountDownLatch triggered = new CountDownLatch(1);
+        List<String> conditions = new CopyOnWriteArrayList<>();
+        pushed.addAlertListener(alert -> {
+            conditions.add(alert.getCondition());
+            triggered.countDown();
+        });
+
+        try (RecordSubscription subscription = pushed.evaluateAsStored()) {
+            storage.addPatientData(1, 120.0, "SystolicPressure", System.currentTimeMillis() - 10);
+            storage.addPatientData(1, 80.0, "SystolicPressure", System.currentTimeMillis());
+            assertTrue(triggered.await(10, TimeUnit.SECONDS));
+            Await.until("both records to be delivered", () -> subscription.getDeliveredRecords() == 2);
+            assertEquals(0, subscription.getDroppedRecords());
+        }
+        assertTrue(conditions.contains("SYSTOLIC TOO LOW"), conditions.toString());
+    }
+}
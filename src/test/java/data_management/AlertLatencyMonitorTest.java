@@ -0,0 +1,144 @@
+package data_management;
+
+import com.alerts.AlertGenerator;
+import com.alerts.AlertLatencyMonitor;
+import com.alerts.LatencyHistogram;
+import com.alerts.RuleEngine;
+import com.cardio_generator.SimulatedClock;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertLatencyMonitorTest {
+    private AlertLatencyMonitor monitor;
+
+    @BeforeEach
+    public void setup() {
+        monitor = new AlertLatencyMonitor(1000);
+    }
+
+    @Test
+    void getPercentileMicros_shouldBeWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 10L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(10000, histogram.getMaxMicros());
+        assertEquals(5005.0, histogram.getMeanMicros(), 1e-9);
+        long median = histogram.getPercentileMicros(0.5);
+        assertTrue(median >= 5000 && median <= 5000 * 1.125, "median was " + median);
+        long p99 = histogram.getPercentileMicros(0.99);
+        assertTrue(p99 >= 9900 && p99 <= 10000, "p99 was " + p99);
+    }
+
+    @Test
+    void recordDispatch_shouldMeasureAgainstTheMonitorsClock_whenSamplesAreInSimulatedTime() {
+        // A replay of last year's recording, two seconds behind in simulated time
+        SimulatedClock clock = new SimulatedClock(1_700_000_000_000L);
+        AlertLatencyMonitor simulated = new AlertLatencyMonitor(1000, clock);
+        long now = System.nanoTime();
+
+        simulated.recordDispatch("1", "TACHYCARDIA", clock.millis() - 2000, now, now, now);
+
+        double endToEnd = simulated.getPercentileMillis("TACHYCARDIA", "endToEnd", 0.5);
+        assertTrue(endToEnd >= 1750 && endToEnd <= 2000, "end to end was " + endToEnd);
+        assertEquals(1, simulated.getSloBreaches());
+    }
+
+    @Test
+    void recordDispatch_shouldSplitLatencyIntoStages() {
+        long now = System.nanoTime();
+        long sampleTime = System.currentTimeMillis() - 50;
+
+        monitor.recordDispatch("1", "Critical Systolic Pressure", sampleTime,
+                now - TimeUnit.MILLISECONDS.toNanos(3), now - TimeUnit.MILLISECONDS.toNanos(1), now);
+
+        assertEquals(1, (long) monitor.getAlertCounts().get("Critical Systolic Pressure"));
+        double queue = monitor.getPercentileMillis("Critical Systolic Pressure", "queue", 0.5);
+        assertTrue(queue >= 1.75 && queue <= 2.0, "queue was " + queue);
+        double dispatch = monitor.getPercentileMillis("Critical Systolic Pressure", "dispatch", 0.5);
+        assertTrue(dispatch >= 0.875 && dispatch <= 1.0, "dispatch was " + dispatch);
+        double endToEnd = monitor.getPercentileMillis("Critical Systolic Pressure", "endToEnd", 0.5);
+        assertTrue(endToEnd >= 40 && endToEnd < 1000, "end to end was " + endToEnd);
+        assertEquals(-1, monitor.getPercentileMillis("Critical Systolic Pressure", "unknown", 0.5));
+        assertEquals(0, monitor.getSloBreaches());
+    }
+
+    @Test
+    void recordDispatch_shouldCountBreach_whenEndToEndExceedsSlo() {
+        long now = System.nanoTime();
+        monitor.setSloThresholdMillis(100);
+
+        monitor.recordDispatch("1", "Low Saturation", System.currentTimeMillis() - 5000, now, now, now);
+        monitor.recordDispatch("1", "Low Saturation", System.currentTimeMillis(), now, now, now);
+
+        assertEquals(1, monitor.getSloBreaches());
+        assertTrue(monitor.getEndToEndMaxMillis().get("Low Saturation") >= 5000);
+
+        monitor.reset();
+        assertEquals(0, monitor.getSloBreaches());
+        assertTrue(monitor.getAlertCounts().isEmpty());
+    }
+
+    @Test
+    void recordDispatch_shouldLogOneWarningWithTheBreachCount_whenManyAlertsBreachAtOnce() {
+        Logger logger = Logger.getLogger(AlertLatencyMonitor.class.getName());
+        List<String> warnings = new CopyOnWriteArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                warnings.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+        try {
+            long now = System.nanoTime();
+            // A backlog of old samples: every alert breaches
+            for (int i = 0; i < 1000; i++) {
+                monitor.recordDispatch("1", "Low Saturation", 1622544000000L + i, now, now, now);
+            }
+        } finally {
+            logger.removeHandler(handler);
+        }
+
+        assertEquals(1000, monitor.getSloBreaches());
+        assertEquals(1, warnings.size(), warnings.toString());
+        assertTrue(warnings.get(0).contains("breaches since the last warning: 1,"), warnings.get(0));
+    }
+
+    @Test
+    void evaluateData_shouldRecordLatency_whenAlertIsTriggered() {
+        DataStorage storage = new DataStorage();
+        AlertGenerator generator = new AlertGenerator(storage, RuleEngine.withDefaultRules(), monitor);
+
+        storage.addPatientData(1, 0.8, "Saturation", System.currentTimeMillis());
+        generator.evaluateData(new Patient(1));
+
+        LatencyHistogram endToEnd = monitor.getHistogram("OXYGEN SATURATION TOO LOW", "endToEnd");
+        assertNotNull(endToEnd);
+        assertEquals(1, endToEnd.getCount());
+        assertEquals(0, monitor.getSloBreaches());
+    }
+}
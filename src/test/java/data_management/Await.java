@@ -0,0 +1,32 @@
+package data_management;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Waits for a condition that another thread makes true, for the tests of asynchronous code.
+ */
+final class Await {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private Await() {
+    }
+
+    /**
+     * Polls the condition until it holds, failing the test if it does not hold within ten seconds.
+     *
+     * @param description what is waited for, for the failure message
+     * @param condition   the condition
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    static void until(String description, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT_MILLIS * 1_000_000;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for " + description);
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package data_management;
+
+import com.cardio_generator.outputs.BinaryFile;
+import com.cardio_generator.outputs.BinaryOutputStrategy;
+import com.cardio_generator.outputs.Labels;
+import com.data_management.BinaryDataReader;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryOutputStrategyTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void output_shouldWriteBlocksThatScanBackEverySample() throws IOException {
+        BinaryOutputStrategy strategy = new BinaryOutputStrategy(directory.toString(), 100);
+        for (int i = 0; i < 250; i++) {
+            strategy.output(1, 1000L * i, Labels.ECG, i * 0.01);
+            strategy.output(2, 1000L * i, Labels.SATURATION, 95);
+        }
+        strategy.close();
+
+        List<Path> files = BinaryFile.list(directory);
+        assertEquals(List.of(directory.resolve("samples-000001.bin")), files);
+        // 500 samples of 16 bytes in 6 blocks, instead of about 70 bytes per line of text
+        assertEquals(16 + 6 * 32 + 500 * 16, Files.size(files.get(0)));
+        try (BinaryFile file = BinaryFile.open(files.get(0))) {
+            assertEquals(6, file.getBlocks().size());
+            List<String> samples = new ArrayList<>();
+            file.scan(1, "ECG", 120_000, 130_000, (patientId, timestamp, labelCode, value) ->
+                    samples.add(patientId + "," + timestamp + "," + Labels.name(labelCode) + "," + value));
+            assertEquals(11, samples.size());
+            assertEquals("1,120000,ECG,1.2", samples.get(0));
+            assertEquals("1,130000,ECG,1.3", samples.get(10));
+        }
+    }
+
+    @Test
+    void readData_shouldLoadEveryRunIntoDataStorage() throws IOException {
+        for (int run = 0; run < 2; run++) {
+            BinaryOutputStrategy strategy = new BinaryOutputStrategy(directory.toString());
+            strategy.output(1, 1000L + run, "Saturation", "97.0%");
+            strategy.output(1, 2000L + run, "Temperature", "36.6");
+            strategy.close();
+        }
+
+        DataStorage storage = new DataStorage();
+        new BinaryDataReader(directory).readData(storage);
+
+        List<PatientRecord> records = storage.getRecords(1, 0, Long.MAX_VALUE);
+        assertEquals(4, records.size());
+        assertTrue(records.stream().anyMatch(record -> record.getRecordType().equals("Saturation")
+                && record.getMeasurementValue() == 0.97 && record.getTimestamp() == 1001));
+        assertTrue(records.stream().anyMatch(record -> record.getRecordType().equals("Temperature")
+                && record.getMeasurementValue() == 36.6));
+    }
+
+    @Test
+    void output_shouldWriteSparsePatientIds_upToTheLargestInt() throws IOException {
+        BinaryOutputStrategy strategy = new BinaryOutputStrategy(directory.toString(), 10);
+        for (int patientId : new int[] {Integer.MAX_VALUE, 2_000_000_000, 7}) {
+            strategy.output(patientId, 1000, Labels.SATURATION, 96);
+            strategy.outputBatch(patientId, Labels.ECG, new long[] {1000, 1004}, new double[] {0.1, 0.2}, 2);
+        }
+        strategy.close();
+
+        try (BinaryFile file = BinaryFile.open(directory.resolve("samples-000001.bin"))) {
+            List<Integer> patients = new ArrayList<>();
+            file.scan(Integer.MAX_VALUE, "ECG", 0, Long.MAX_VALUE,
+                    (patientId, timestamp, labelCode, value) -> patients.add(patientId));
+            assertEquals(List.of(Integer.MAX_VALUE, Integer.MAX_VALUE), patients);
+            assertEquals(6, file.getBlocks().size());
+        }
+    }
+
+    @Test
+    void open_shouldReadBlockHeaders_whenIndexIsMissing() throws IOException {
+        BinaryOutputStrategy strategy = new BinaryOutputStrategy(directory.toString(), 10);
+        for (int i = 0; i < 25; i++) {
+            strategy.output(3, i, Labels.SYSTOLIC_PRESSURE, 120);
+        }
+        strategy.close();
+        Files.delete(directory.resolve("samples-000001.idx"));
+
+        try (BinaryFile file = BinaryFile.open(directory.resolve("samples-000001.bin"))) {
+            assertEquals(3, file.getBlocks().size());
+            assertEquals(5, file.getBlocks().get(2).getCount());
+            List<Long> timestamps = new ArrayList<>();
+            file.scan((patientId, timestamp, labelCode, value) -> timestamps.add(timestamp));
+            assertEquals(25, timestamps.size());
+            assertEquals("SystolicPressure", file.getLabel(file.getBlocks().get(0).getLabelCode()));
+        }
+    }
+}
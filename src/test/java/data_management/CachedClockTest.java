@@ -0,0 +1,55 @@
+package data_management;
+
+import com.cardio_generator.CachedClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachedClockTest {
+    @Test
+    void millis_shouldFollowTheSystemClockWithinItsResolution_onEveryThread() throws InterruptedException {
+        AtomicReference<String> failure = new AtomicReference<>();
+        try (CachedClock clock = CachedClock.start(5)) {
+            long first = clock.millis();
+            Thread reader = new Thread(() -> {
+                long previous = clock.millis();
+                long end = System.currentTimeMillis() + 300;
+                while (System.currentTimeMillis() < end) {
+                    long before = System.currentTimeMillis();
+                    long cached = clock.millis();
+                    // Generous slack, a busy test machine may not refresh the clock on time
+                    if (cached < previous || cached > System.currentTimeMillis() || cached < before - 200) {
+                        failure.compareAndSet(null, "read " + cached + " after " + previous + " at " + before);
+                    }
+                    previous = cached;
+                }
+            });
+            reader.start();
+            reader.join();
+
+            assertNull(failure.get());
+            assertTrue(clock.millis() >= first + 250, "the clock did not advance from " + first);
+        }
+    }
+
+    @Test
+    void withZone_shouldReturnTheSameTimeInTheRequestedZone() {
+        try (CachedClock clock = CachedClock.start(5)) {
+            ZoneId amsterdam = ZoneId.of("Europe/Amsterdam");
+            Clock zoned = clock.withZone(amsterdam);
+
+            assertEquals(amsterdam, zoned.getZone());
+            assertTrue(Math.abs(zoned.millis() - clock.millis()) <= 100);
+            assertSame(clock, zoned.withZone(ZoneOffset.UTC));
+            assertSame(clock, clock.withZone(ZoneOffset.UTC));
+        }
+    }
+}
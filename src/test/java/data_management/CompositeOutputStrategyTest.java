@@ -0,0 +1,110 @@
+package data_management;
+
+import com.cardio_generator.outputs.CompositeOutputStrategy;
+import com.cardio_generator.outputs.Labels;
+import com.cardio_generator.outputs.OutputStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompositeOutputStrategyTest {
+
+    @Test
+    void output_shouldSendEverySampleToEveryOutputInOrder() {
+        RecordingOutput first = new RecordingOutput();
+        RecordingOutput second = new RecordingOutput();
+        CompositeOutputStrategy composite = new CompositeOutputStrategy(List.of(first, second), 16);
+        for (int i = 0; i < 10; i++) {
+            composite.output(1, i, Labels.ECG, i * 0.5);
+        }
+        composite.close();
+
+        for (RecordingOutput output : List.of(first, second)) {
+            assertEquals(10, output.timestamps.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i, output.timestamps.get(i));
+            }
+            assertTrue(output.closed);
+        }
+        assertEquals(10, composite.getDeliveredSamples(0));
+        assertEquals(0, composite.getDroppedSamples(1));
+        assertEquals(0, composite.getQueuedSamples(1));
+    }
+
+    @Test
+    void output_shouldDropSamplesForSlowOutputOnly() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean blocked = new AtomicBoolean();
+        OutputStrategy slow = (patientId, timestamp, labelCode, value) -> {
+            blocked.set(true);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        RecordingOutput fast = new RecordingOutput();
+        CompositeOutputStrategy composite = new CompositeOutputStrategy(List.of(slow, fast), 1024);
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            int patientId = thread + 1;
+            threads.execute(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    composite.output(patientId, i, Labels.ECG, 0.5);
+                    if (i % 64 == 0) {
+                        // Give the fast output time to keep up
+                        sleep();
+                    }
+                }
+            });
+        }
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertTrue(blocked.get());
+        // The sample the slow output is stuck on keeps its slot until the output returns
+        assertEquals(1024, composite.getQueuedSamples(0));
+        assertEquals(1024, composite.getMaxQueuedSamples(0));
+        assertEquals(20000 - 1024, composite.getDroppedSamples(0));
+        release.countDown();
+        composite.close();
+
+        assertEquals(20000, fast.timestamps.size());
+        assertEquals(0, composite.getDroppedSamples(1));
+        assertEquals(1024, composite.getDeliveredSamples(0));
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class RecordingOutput implements OutputStrategy {
+        private final List<Long> timestamps = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean closed;
+
+        @Override
+        public void output(int patientId, long timestamp, int labelCode, double value) {
+            timestamps.add(timestamp);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
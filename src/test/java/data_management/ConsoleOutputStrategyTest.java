@@ -0,0 +1,76 @@
+package data_management;
+
+import com.cardio_generator.outputs.ConsoleOutputStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsoleOutputStrategyTest {
+
+    @Test
+    void output_shouldPrintOneLinePerSample() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConsoleOutputStrategy strategy = new ConsoleOutputStrategy(
+                new PrintStream(bytes, false, StandardCharsets.UTF_8), ConsoleOutputStrategy.DEFAULT_MAX_QUEUED_LINES);
+        strategy.output(1, 1000L, "ECG", "0.25");
+        strategy.output(2, 2000L, "Saturation", "97.0%");
+        strategy.close();
+
+        assertEquals(List.of("Patient ID: 1, Timestamp: 1000, Label: ECG, Data: 0.25",
+                        "Patient ID: 2, Timestamp: 2000, Label: Saturation, Data: 97.0%"),
+                bytes.toString(StandardCharsets.UTF_8).lines().toList());
+    }
+
+    @Test
+    void output_shouldKeepEveryLineIntact_whenQueueIsSmallerThanTheOutput() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConsoleOutputStrategy strategy = new ConsoleOutputStrategy(
+                new PrintStream(bytes, false, StandardCharsets.UTF_8), 16);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            int patientId = thread + 1;
+            threads.execute(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    strategy.output(patientId, i, "ECG", Double.toString(i * 0.001));
+                }
+            });
+        }
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(30, TimeUnit.SECONDS));
+        strategy.close();
+
+        List<String> lines = bytes.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(16000, lines.size());
+        Set<String> unique = new HashSet<>(lines);
+        assertEquals(16000, unique.size());
+        for (int patientId = 1; patientId <= 8; patientId++) {
+            assertTrue(unique.contains("Patient ID: " + patientId + ", Timestamp: 1999, Label: ECG, Data: 1.999"));
+        }
+    }
+
+    @Test
+    void output_shouldDropTheLine_whenCalledAfterClose() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConsoleOutputStrategy strategy = new ConsoleOutputStrategy(
+                new PrintStream(bytes, false, StandardCharsets.UTF_8), 1);
+        strategy.output(1, 1000L, "ECG", "0.25");
+        strategy.close();
+        // The queue holds one line, so this would wait for the stopped writer if it were queued
+        strategy.output(2, 2000L, "ECG", "0.5");
+        strategy.output(3, 3000L, "ECG", "0.75");
+
+        assertEquals(List.of("Patient ID: 1, Timestamp: 1000, Label: ECG, Data: 0.25"),
+                bytes.toString(StandardCharsets.UTF_8).lines().toList());
+    }
+}
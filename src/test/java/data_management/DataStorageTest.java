@@ -1,9 +1,16 @@
 package data_management;
 
 import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import com.data_management.RecordSubscription;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -39,4 +46,72 @@ class DataStorageTest {
         dataStorage.addPatientData(1, 200.0, "HeartRate", 1714376789051L);
         assertTrue(dataStorage.getRecords(1, 1800000000000L, 1900000000000L).isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void subscribe_shouldPushTheMatchingRecordsInOrder_asTheyAreAdded() throws InterruptedException {
+        dataStorage.setEcgSampleRate(0);
+        List<PatientRecord> received = new ArrayList<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        try (RecordSubscription subscription = dataStorage.subscribe(Set.of(1, 3), Set.of("saturation"), batch -> {
+            synchronized (received) {
+                received.addAll(batch);
+                batchSizes.add(batch.size());
+            }
+        })) {
+            for (int i = 0; i < 10_000; i++) {
+                dataStorage.addPatientData(i % 4 + 1, 0.95, i % 8 < 4 ? "Saturation" : "ECG", 1_700_000_000_000L + i);
+            }
+
+            Await.until("all records to be delivered", () -> subscription.getDeliveredRecords() == 2500);
+            assertEquals(0, subscription.getDroppedRecords());
+            assertEquals(0, subscription.getLag());
+        }
+
+        synchronized (received) {
+            assertEquals(2500, received.size());
+            assertTrue(batchSizes.size() <= 2500);
+            for (int i = 0; i < received.size(); i++) {
+                PatientRecord record = received.get(i);
+                assertEquals("Saturation", record.getRecordType());
+                assertEquals(i % 2 == 0 ? 1 : 3, record.getPatientId());
+                if (i > 0) {
+                    assertTrue(record.getTimestamp() > received.get(i - 1).getTimestamp());
+                }
+            }
+        }
+    }
+
+    @Test
+    void subscribe_shouldDropTheOldestRecords_whenTheConsumerFallsTooFarBehind() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        List<PatientRecord> received = new ArrayList<>();
+        int total = 3 * DataStorage.SUBSCRIPTION_CAPACITY;
+        try (RecordSubscription subscription = dataStorage.subscribe(null, null, batch -> {
+            blocked.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (received) {
+                received.addAll(batch);
+            }
+        })) {
+            dataStorage.addPatientData(1, 120, "SystolicPressure", 0);
+            blocked.await();
+            for (int i = 1; i < total; i++) {
+                dataStorage.addPatientData(1, 120, "SystolicPressure", i);
+            }
+            released.countDown();
+
+            // Every record is either delivered or counted as dropped, and the writer never waited
+            Await.until("every record to be delivered or dropped",
+                    () -> subscription.getDeliveredRecords() + subscription.getDroppedRecords() == total);
+            assertTrue(subscription.getDroppedRecords() >= total - 1 - DataStorage.SUBSCRIPTION_CAPACITY);
+        }
+        synchronized (received) {
+            assertEquals(total - 1, received.get(received.size() - 1).getTimestamp());
+        }
+    }
+}
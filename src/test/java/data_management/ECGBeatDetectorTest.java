@@ -0,0 +1,73 @@
+package data_management;
+
+import com.data_management.DataStorage;
+import com.data_management.ECGBeatDetector;
+import com.data_management.PatientRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ECGBeatDetectorTest {
+    private static final int SAMPLE_RATE = 250;
+    private static final long START = 1714376789000L;
+
+    /**
+     * Synthesizes an ECG trace with a narrow QRS spike, a broad T wave and some noise.
+     */
+    private static double sample(long millis, long rrMillis, SplittableRandom random) {
+        double t = (millis % rrMillis) / 1000.0;
+        double qrs = 1.2 * Math.exp(-Math.pow((t - 0.2) / 0.012, 2));
+        double tWave = 0.3 * Math.exp(-Math.pow((t - 0.45) / 0.06, 2));
+        return qrs + tWave + (random.nextDouble() - 0.5) * 0.05;
+    }
+
+    @Test
+    void accept_shouldDeriveHeartRateFromRegularBeats() {
+        ECGBeatDetector detector = new ECGBeatDetector(SAMPLE_RATE);
+        SplittableRandom random = new SplittableRandom(7);
+        int beats = 0;
+        for (int i = 0; i < SAMPLE_RATE * 20; i++) {
+            long millis = i * 1000L / SAMPLE_RATE;
+            if (detector.accept(START + millis, sample(millis, 800, random))) {
+                beats++;
+            }
+        }
+
+        // 20 s at 75 bpm, minus the learning phase and the first beat
+        assertTrue(beats >= 18 && beats <= 23, "beats detected: " + beats);
+        assertEquals(75.0, detector.getHeartRate(), 2.0);
+        assertEquals(0.0, detector.getRRVariability(), 10.0);
+    }
+
+    @Test
+    void accept_shouldStayIdleForLowRateStreams() {
+        ECGBeatDetector detector = new ECGBeatDetector(SAMPLE_RATE);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 120; i++) {
+            assertFalse(detector.accept(START + i * 1000L, sample(i * 1000L, 800, random)));
+        }
+        assertTrue(Double.isNaN(detector.getHeartRate()));
+    }
+
+    @Test
+    void addPatientData_shouldStoreDerivedHeartRateSeries() {
+        DataStorage storage = new DataStorage();
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < SAMPLE_RATE * 15; i++) {
+            long millis = i * 1000L / SAMPLE_RATE;
+            storage.addPatientData(1, sample(millis, 1500, random), "ECG", START + millis);
+        }
+
+        List<PatientRecord> heartRates = storage.getRecords(1, START, START + 15000).stream()
+                .filter(record -> record.getRecordType().equals(DataStorage.HEART_RATE))
+                .toList();
+        assertFalse(heartRates.isEmpty());
+        // 1500 ms between beats is 40 bpm, which the default rules flag as bradycardia
+        assertEquals(40.0, heartRates.get(heartRates.size() - 1).getMeasurementValue(), 1.5);
+    }
+}
@@ -0,0 +1,134 @@
+package data_management;
+
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.cardio_generator.outputs.SegmentIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileOutputStrategyTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void output_shouldWriteOneLinePerSampleInTheFileOfItsLabel() throws IOException {
+        FileOutputStrategy strategy = new FileOutputStrategy(directory.toString());
+        strategy.output(1, 1000L, "ECG", "0.25");
+        strategy.output(2, 2000L, "Saturation", "97.0%");
+        strategy.close();
+
+        assertEquals(List.of("Patient ID: 1, Timestamp: 1000, Label: ECG, Data: 0.25"),
+                Files.readAllLines(directory.resolve("ECG.txt")));
+        assertEquals(List.of("Patient ID: 2, Timestamp: 2000, Label: Saturation, Data: 97.0%"),
+                Files.readAllLines(directory.resolve("Saturation.txt")));
+    }
+
+    @Test
+    void output_shouldKeepEveryLineIntact_whenWrittenConcurrently() throws Exception {
+        FileOutputStrategy strategy = new FileOutputStrategy(directory.toString(), 256, 5);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            int patientId = thread + 1;
+            threads.execute(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    strategy.output(patientId, i, "ECG", Double.toString(i * 0.001));
+                }
+            });
+        }
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(30, TimeUnit.SECONDS));
+        strategy.close();
+
+        List<String> lines = Files.readAllLines(directory.resolve("ECG.txt"));
+        assertEquals(16000, lines.size());
+        Set<String> unique = new HashSet<>(lines);
+        assertEquals(16000, unique.size());
+        for (int patientId = 1; patientId <= 8; patientId++) {
+            assertTrue(unique.contains("Patient ID: " + patientId + ", Timestamp: 1999, Label: ECG, Data: 1.999"));
+        }
+    }
+
+    @Test
+    void flush_shouldWriteBufferedLines_beforeClose() throws IOException {
+        FileOutputStrategy strategy = new FileOutputStrategy(directory.toString(), 1 << 16, TimeUnit.HOURS.toMillis(1));
+        strategy.output(1, 1000L, "Alert", "triggered");
+        assertEquals(0, Files.size(directory.resolve("Alert.txt")));
+
+        strategy.flush();
+        assertEquals(1, Files.readAllLines(directory.resolve("Alert.txt")).size());
+        strategy.close();
+    }
+
+    @Test
+    void output_shouldRollCompressedSegments_whenSegmentDurationIsReached() throws IOException {
+        FileOutputStrategy strategy = new FileOutputStrategy(directory.toString(), 1024, 1000, 0, 60_000, true);
+        for (int second = 0; second < 300; second++) {
+            strategy.output(1, second * 1000L, "ECG", "0.1");
+        }
+        strategy.close();
+
+        SegmentIndex index = SegmentIndex.load(directory, "ECG");
+        assertEquals(5, index.getSegments().size());
+        assertEquals("ECG-000001.txt.gz", index.getSegments().get(0).getFileName());
+        assertEquals(0, index.getSegments().get(0).getFirstTimestamp());
+        assertEquals(59_000, index.getSegments().get(0).getLastTimestamp());
+        assertEquals(60, index.getSegments().get(0).getLineCount());
+        assertTrue(Files.exists(directory.resolve("ECG-000005.txt.gz")));
+        assertTrue(Files.notExists(directory.resolve("ECG-000001.txt")));
+
+        List<SegmentIndex.Segment> found = index.find(130_000, 190_000);
+        assertEquals(List.of("ECG-000003.txt.gz", "ECG-000004.txt.gz"),
+                found.stream().map(SegmentIndex.Segment::getFileName).collect(Collectors.toList()));
+        try (BufferedReader reader = index.open(found.get(0))) {
+            assertEquals("Patient ID: 1, Timestamp: 120000, Label: ECG, Data: 0.1", reader.readLine());
+            assertEquals(59, reader.lines().count());
+        }
+    }
+
+    @Test
+    void output_shouldRollSegments_whenSegmentSizeIsReached() throws IOException {
+        FileOutputStrategy strategy = new FileOutputStrategy(directory.toString(), 1024, 1000, 4096, 0, false);
+        for (int i = 0; i < 1000; i++) {
+            strategy.output(1, i, "Saturation", "97.0%");
+        }
+        strategy.close();
+
+        SegmentIndex index = SegmentIndex.load(directory, "Saturation");
+        assertTrue(index.getSegments().size() > 1);
+        long lines = 0;
+        for (SegmentIndex.Segment segment : index.getSegments()) {
+            assertTrue(Files.size(directory.resolve(segment.getFileName())) <= 4096);
+            lines += segment.getLineCount();
+        }
+        assertEquals(1000, lines);
+    }
+
+    @Test
+    void output_shouldContinueNumbering_whenRestarted() throws IOException {
+        FileOutputStrategy first = new FileOutputStrategy(directory.toString(), 1024, 1000, 0, 1000, true);
+        first.output(1, 0, "ECG", "0.1");
+        first.close();
+        FileOutputStrategy second = new FileOutputStrategy(directory.toString(), 1024, 1000, 0, 1000, true);
+        second.output(1, 5000, "ECG", "0.2");
+        second.close();
+
+        SegmentIndex index = SegmentIndex.load(directory, "ECG");
+        assertEquals(2, index.getSegments().size());
+        assertEquals("ECG-000002.txt.gz", index.getSegments().get(1).getFileName());
+        assertEquals(1, index.find(5000, 5000).size());
+    }
+}
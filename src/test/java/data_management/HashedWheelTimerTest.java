@@ -0,0 +1,73 @@
+package data_management;
+
+import com.alerts.HashedWheelTimer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedWheelTimerTest {
+    private HashedWheelTimer timer;
+
+    @BeforeEach
+    public void setup() {
+        timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8, "test-timer");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void newTimeout_shouldRunTaskAfterDelay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.newTimeout(latch::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    void newTimeout_shouldHandleDelaysLongerThanOneRotation() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        // 8 buckets of 10ms, so these wrap around the wheel
+        timer.newTimeout(latch::countDown, 150, TimeUnit.MILLISECONDS);
+        timer.newTimeout(latch::countDown, 230, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancel_shouldReleaseTimeoutImmediately() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(runs::incrementAndGet, 100, TimeUnit.MILLISECONDS);
+        assertEquals(1, timer.pendingTimeouts());
+
+        assertTrue(timeout.cancel());
+        assertEquals(0, timer.pendingTimeouts());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+
+        Thread.sleep(200);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void newTimeout_shouldFail_whenTheTimerWasStopped() {
+        timer.stop();
+
+        assertThrows(IllegalStateException.class, () -> timer.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS));
+        assertEquals(0, timer.pendingTimeouts());
+    }
+}
@@ -0,0 +1,84 @@
+package data_management;
+
+import com.cardio_generator.SimulatedClock;
+import com.cardio_generator.generators.HighRateECGDataGenerator;
+import com.cardio_generator.outputs.Labels;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.PatientRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HighRateECGDataGeneratorTest {
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void generate_shouldEmitEverySampleSinceThePreviousTick_inBatches() {
+        SimulatedClock clock = new SimulatedClock(START);
+        HighRateECGDataGenerator generator = new HighRateECGDataGenerator(1, clock, 1L, 250);
+        List<Long> timestamps = new ArrayList<>();
+        List<Integer> batches = new ArrayList<>();
+        OutputStrategy recorder = new OutputStrategy() {
+            @Override
+            public void output(int patientId, long timestamp, int labelCode, double value) {
+                throw new AssertionError("Samples should be emitted in batches");
+            }
+
+            @Override
+            public void outputBatch(int patientId, int labelCode, long[] batchTimestamps, double[] values, int count) {
+                assertEquals(Labels.ECG, labelCode);
+                batches.add(count);
+                for (int i = 0; i < count; i++) {
+                    timestamps.add(batchTimestamps[i]);
+                }
+            }
+        };
+
+        for (int tick = 0; tick <= 10; tick++) {
+            clock.setMillis(START + tick * 100L);
+            generator.generate(1, recorder);
+        }
+
+        // One sample at the start, then 25 per 100 ms tick, 4 ms apart
+        assertEquals(251, timestamps.size());
+        assertEquals(List.of(1, 25, 25, 25, 25, 25, 25, 25, 25, 25, 25), batches);
+        for (int i = 0; i < timestamps.size(); i++) {
+            assertEquals(START + 4L * i, timestamps.get(i));
+        }
+    }
+
+    @Test
+    void generate_shouldProduceBeatsTheDetectorRecognises() {
+        SimulatedClock clock = new SimulatedClock(START);
+        HighRateECGDataGenerator generator = new HighRateECGDataGenerator(2, clock, 7L, 250);
+        DataStorage storage = new DataStorage();
+        OutputStrategy toStorage = (patientId, timestamp, labelCode, value) ->
+                storage.addPatientData(patientId, value, Labels.name(labelCode), timestamp);
+
+        for (int tick = 0; tick <= 300; tick++) {
+            clock.setMillis(START + tick * 100L);
+            generator.generate(1, toStorage);
+            generator.generate(2, toStorage);
+        }
+
+        for (int patientId = 1; patientId <= 2; patientId++) {
+            List<PatientRecord> heartRates = new ArrayList<>();
+            for (PatientRecord record : storage.getRecords(patientId, START, START + 30_000)) {
+                if (record.getRecordType().equals(DataStorage.HEART_RATE)) {
+                    heartRates.add(record);
+                }
+            }
+            assertFalse(heartRates.isEmpty());
+            double detected = heartRates.get(heartRates.size() - 1).getMeasurementValue();
+            double expected = generator.getHeartRate(patientId);
+            assertTrue(Math.abs(detected - expected) < expected * 0.1,
+                    "detected " + detected + " bpm, expected " + expected + " bpm");
+        }
+    }
+}
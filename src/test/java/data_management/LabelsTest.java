@@ -0,0 +1,51 @@
+package data_management;
+
+import com.cardio_generator.outputs.Labels;
+import com.cardio_generator.outputs.OutputStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LabelsTest {
+
+    @Test
+    void format_shouldWriteValuesAsTheGeneratorsDid() {
+        assertEquals("0.25", Labels.format(Labels.ECG, 0.25));
+        assertEquals("97.0%", Labels.format(Labels.SATURATION, 97));
+        assertEquals("120.0", Labels.format(Labels.SYSTOLIC_PRESSURE, 120));
+        assertEquals("triggered", Labels.format(Labels.ALERT, Labels.TRIGGERED));
+        assertEquals("resolved", Labels.format(Labels.ALERT, Labels.RESOLVED));
+    }
+
+    @Test
+    void parse_shouldReadWhatFormatWrote() {
+        assertEquals(97.0, Labels.parse(Labels.SATURATION, "97.0%"));
+        assertEquals(Labels.TRIGGERED, Labels.parse(Labels.ALERT, "triggered"));
+        assertEquals(0.25, Labels.parse(Labels.ECG, "0.25"));
+        assertThrows(NumberFormatException.class, () -> Labels.parse(Labels.ECG, "triggered"));
+    }
+
+    @Test
+    void code_shouldRegisterNewLabelsOnce() {
+        assertEquals(Labels.SATURATION, Labels.code("Saturation"));
+        int code = Labels.code("Temperature");
+        assertEquals(code, Labels.code("Temperature"));
+        assertEquals("Temperature", Labels.name(code));
+        assertThrows(IllegalArgumentException.class, () -> Labels.name(Labels.count()));
+    }
+
+    @Test
+    void output_shouldPassTextSamplesAsNumbers() {
+        List<String> samples = new ArrayList<>();
+        OutputStrategy recorder = (patientId, timestamp, labelCode, value) ->
+                samples.add(patientId + "," + timestamp + "," + Labels.name(labelCode) + "," + value);
+        recorder.output(1, 1000L, "Saturation", "95.0%");
+        recorder.output(2, 2000L, "Alert", "resolved");
+
+        assertEquals(List.of("1,1000,Saturation,95.0", "2,2000,Alert,0.0"), samples);
+    }
+}
@@ -0,0 +1,97 @@
+package data_management;
+
+import com.cardio_generator.SimulatedClock;
+import com.cardio_generator.generators.AlertGenerator;
+import com.cardio_generator.generators.BloodLevelsDataGenerator;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.ECGDataGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PatientDataGeneratorTest {
+    private static final int PATIENTS = 10;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void generate_shouldProduceSameData_whenSeedIsEqual() {
+        assertEquals(run((clock, seed) -> new ECGDataGenerator(PATIENTS, clock, seed), 1L),
+                run((clock, seed) -> new ECGDataGenerator(PATIENTS, clock, seed), 1L));
+        assertEquals(run((clock, seed) -> new BloodSaturationDataGenerator(PATIENTS, clock, seed), 1L),
+                run((clock, seed) -> new BloodSaturationDataGenerator(PATIENTS, clock, seed), 1L));
+        assertEquals(run((clock, seed) -> new BloodPressureDataGenerator(PATIENTS, clock, seed), 1L),
+                run((clock, seed) -> new BloodPressureDataGenerator(PATIENTS, clock, seed), 1L));
+        assertEquals(run((clock, seed) -> new BloodLevelsDataGenerator(PATIENTS, clock, seed), 1L),
+                run((clock, seed) -> new BloodLevelsDataGenerator(PATIENTS, clock, seed), 1L));
+        assertEquals(run((clock, seed) -> new AlertGenerator(PATIENTS, clock, seed), 1L),
+                run((clock, seed) -> new AlertGenerator(PATIENTS, clock, seed), 1L));
+    }
+
+    @Test
+    void generate_shouldProduceDifferentData_whenSeedDiffers() {
+        assertNotEquals(run((clock, seed) -> new BloodLevelsDataGenerator(PATIENTS, clock, seed), 1L),
+                run((clock, seed) -> new BloodLevelsDataGenerator(PATIENTS, clock, seed), 2L));
+    }
+
+    @Test
+    void generate_shouldNotDependOnOtherPatients() {
+        // A patient's stream is its own, so generating data for other patients in between changes nothing
+        SimulatedClock clock = new SimulatedClock(START);
+        BloodPressureDataGenerator alone = new BloodPressureDataGenerator(PATIENTS, clock, 7L);
+        BloodPressureDataGenerator interleaved = new BloodPressureDataGenerator(PATIENTS, clock, 7L);
+        List<String> aloneLines = new ArrayList<>();
+        List<String> interleavedLines = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            alone.generate(3, (patientId, timestamp, labelCode, value) -> aloneLines.add(labelCode + ":" + value));
+            interleaved.generate(5, (patientId, timestamp, labelCode, value) -> { });
+            interleaved.generate(3, (patientId, timestamp, labelCode, value) ->
+                    interleavedLines.add(labelCode + ":" + value));
+        }
+
+        assertEquals(aloneLines, interleavedLines);
+    }
+
+    @Test
+    void admit_shouldGiveAPatientTheSameData_whicheverPatientsWereAdmittedBefore() {
+        SimulatedClock clock = new SimulatedClock(START);
+        BloodLevelsDataGenerator started = new BloodLevelsDataGenerator(PATIENTS, clock, 7L);
+        BloodLevelsDataGenerator empty = new BloodLevelsDataGenerator(0, clock, 7L);
+        empty.admit(9_000_017);
+        empty.admit(3);
+        List<String> startedLines = new ArrayList<>();
+        List<String> admittedLines = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            started.generate(3, (patientId, timestamp, labelCode, value) -> startedLines.add(labelCode + ":" + value));
+            empty.generate(3, (patientId, timestamp, labelCode, value) -> admittedLines.add(labelCode + ":" + value));
+        }
+        assertEquals(30, startedLines.size());
+        assertEquals(startedLines, admittedLines);
+
+        List<Integer> afterDischarge = new ArrayList<>();
+        empty.discharge(3);
+        empty.generate(3, (patientId, timestamp, labelCode, value) -> afterDischarge.add(patientId));
+        empty.generate(9_000_017, (patientId, timestamp, labelCode, value) -> afterDischarge.add(patientId));
+        assertEquals(List.of(9_000_017, 9_000_017, 9_000_017), afterDischarge);
+    }
+
+    private static List<String> run(BiFunction<SimulatedClock, Long, PatientDataGenerator> factory, long seed) {
+        SimulatedClock clock = new SimulatedClock(START);
+        PatientDataGenerator generator = factory.apply(clock, seed);
+        List<String> lines = new ArrayList<>();
+        for (int step = 0; step < 200; step++) {
+            clock.setMillis(START + step * 1000L);
+            for (int patientId = 1; patientId <= PATIENTS; patientId++) {
+                generator.generate(patientId, (id, timestamp, labelCode, value) ->
+                        lines.add(id + "," + timestamp + "," + labelCode + "," + value));
+            }
+        }
+        return lines;
+    }
+}
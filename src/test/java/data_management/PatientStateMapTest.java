@@ -0,0 +1,66 @@
+package data_management;
+
+import com.cardio_generator.generators.PatientStateMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PatientStateMapTest {
+    @Test
+    void putAndRemove_shouldMatchHashMap_forSparseIds() {
+        PatientStateMap<String> map = new PatientStateMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(3);
+        int[] ids = new int[500];
+        for (int i = 0; i < ids.length; i++) {
+            // Hospital numbers, negative IDs, zero and IDs that only differ in their high bits
+            ids[i] = i % 5 == 0 ? i << 20 : random.nextInt();
+        }
+        ids[1] = 0;
+        for (int step = 0; step < 100_000; step++) {
+            int id = ids[random.nextInt(ids.length)];
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), map.remove(id));
+            } else {
+                String state = "state " + step;
+                assertEquals(expected.put(id, state), map.put(id, state));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int id : ids) {
+            assertEquals(expected.get(id), map.get(id));
+        }
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), keys);
+    }
+
+    @Test
+    void remove_shouldKeepOtherPatientsFindable_whenMostAreDischarged() {
+        PatientStateMap<Integer> map = new PatientStateMap<>();
+        for (int id = 1; id <= 10_000; id++) {
+            map.put(id * 7919, id);
+        }
+        for (int id = 1; id <= 10_000; id++) {
+            if (id % 100 != 0) {
+                assertEquals(id, map.remove(id * 7919));
+            }
+        }
+
+        assertEquals(100, map.size());
+        for (int id = 1; id <= 10_000; id++) {
+            if (id % 100 == 0) {
+                assertEquals(id, map.get(id * 7919));
+            } else {
+                assertNull(map.get(id * 7919));
+            }
+        }
+    }
+}
@@ -3,14 +3,23 @@ package data_management;
 import com.alerts.Alert;
 import com.alerts.AlertGenerator;
 import com.alerts.RepeatedAlertDecorator;
+import com.data_management.DataStorage;
 import com.data_management.Patient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
 
 class RepeatedAlertDecoratorTest {
     private Alert decoratedAlert;
@@ -38,4 +47,46 @@ class RepeatedAlertDecoratorTest {
         String condition = repeatedAlertDecorator.getCondition();
         assertEquals("SYSTOLIC TOO HIGH", condition);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void stopRepeating_shouldCancelScheduledRecheck() {
+        repeatedAlertDecorator.triggerAlert();
+        assertTrue(repeatedAlertDecorator.isRepeating());
+
+        repeatedAlertDecorator.stopRepeating();
+        assertFalse(repeatedAlertDecorator.isRepeating());
+    }
+
+    @Test
+    public void triggerAlert_shouldRecheckRecords_whenTheyHaveTheTimestampOfTheRecordsAlreadySeen() {
+        DataStorage storage = new DataStorage();
+        AlertGenerator generator = new AlertGenerator(storage);
+        storage.addPatientData(1, 80.0, "SystolicPressure", 1622544000000L);
+        RepeatedAlertDecorator repeated = new RepeatedAlertDecorator(decoratedAlert, 1, generator, new Patient(1));
+
+        repeated.triggerAlert();
+        storage.addPatientData(1, 78.0, "SystolicPressure", 1622544000000L);
+
+        try {
+            verify(decoratedAlert, timeout(5000).times(2)).triggerAlert();
+        } finally {
+            repeated.stopRepeating();
+        }
+    }
+
+    @Test
+    public void triggerAlert_shouldKeepRechecking_whenARecheckThrows() {
+        when(alertGenerator.getRecordsFrom(any(Patient.class), anyInt()))
+                .thenThrow(new IllegalStateException("storage unavailable"))
+                .thenReturn(List.of());
+        RepeatedAlertDecorator repeated = new RepeatedAlertDecorator(decoratedAlert, 1, alertGenerator, patient);
+
+        repeated.triggerAlert();
+
+        try {
+            verify(alertGenerator, timeout(5000).times(2)).getRecordsFrom(any(Patient.class), anyInt());
+        } finally {
+            repeated.stopRepeating();
+        }
+    }
+}
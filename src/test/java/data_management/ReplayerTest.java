@@ -0,0 +1,96 @@
+package data_management;
+
+import com.cardio_generator.Replayer;
+import com.cardio_generator.SimulatedClock;
+import com.cardio_generator.outputs.BinaryOutputStrategy;
+import com.cardio_generator.outputs.FileOutputStrategy;
+import com.cardio_generator.outputs.Labels;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replay_shouldMergeSegmentsAndBinaryBlocksInTimestampOrder() throws IOException {
+        // Compressed, indexed segments of a minute each and the binary output in blocks of 50 samples
+        FileOutputStrategy text = new FileOutputStrategy(directory.toString(), 1024, 1000, 0, 60_000, true);
+        BinaryOutputStrategy binary = new BinaryOutputStrategy(directory.toString(), 50);
+        for (int i = 0; i < 300; i++) {
+            text.output(1, 1000L * i, Labels.ECG, i * 0.01);
+            text.output(2, 1000L * i + 500, Labels.SATURATION, 95);
+            binary.output(3, 1000L * i + 250, Labels.SYSTOLIC_PRESSURE, 120);
+            binary.output(4, 1000L * i + 750, Labels.ALERT, i % 2 == 0 ? Labels.TRIGGERED : Labels.RESOLVED);
+        }
+        text.close();
+        binary.close();
+        Files.writeString(directory.resolve("notes.txt"), "Recorded during the incident\n");
+
+        List<String> samples = new ArrayList<>();
+        long count;
+        try (Replayer replayer = Replayer.open(directory)) {
+            count = replayer.replay((patientId, timestamp, labelCode, value) ->
+                    samples.add(timestamp + "," + patientId + "," + Labels.name(labelCode) + "," + value),
+                    Double.POSITIVE_INFINITY);
+            assertEquals(1, replayer.getSkippedLines());
+        }
+
+        assertEquals(1200, count);
+        assertEquals(1200, samples.size());
+        for (int i = 0; i < 300; i++) {
+            assertEquals(1000L * i + ",1,ECG," + i * 0.01, samples.get(4 * i));
+            assertEquals(1000L * i + 250 + ",3,SystolicPressure,120.0", samples.get(4 * i + 1));
+            assertEquals(1000L * i + 500 + ",2,Saturation,95.0", samples.get(4 * i + 2));
+            assertEquals(1000L * i + 750 + ",4,Alert," + (i % 2 == 0 ? "1.0" : "0.0"), samples.get(4 * i + 3));
+        }
+    }
+
+    @Test
+    void replay_shouldMoveTheClockToEverySample_whenAClockIsSet() throws IOException {
+        FileOutputStrategy text = new FileOutputStrategy(directory.toString());
+        for (int i = 0; i < 10; i++) {
+            text.output(1, 1622544000000L + 100L * i, Labels.ECG, i);
+        }
+        text.close();
+
+        SimulatedClock clock = new SimulatedClock(0);
+        List<Long> lags = new ArrayList<>();
+        try (Replayer replayer = Replayer.open(directory)) {
+            replayer.setClock(clock);
+            replayer.replay((patientId, timestamp, labelCode, value) -> lags.add(clock.millis() - timestamp),
+                    Double.POSITIVE_INFINITY);
+        }
+
+        assertEquals(10, lags.size());
+        assertTrue(lags.stream().allMatch(lag -> lag == 0), lags.toString());
+        assertEquals(1622544000900L, clock.millis());
+    }
+
+    @Test
+    void replay_shouldKeepTheRecordedPace_atTheGivenSpeed() throws IOException {
+        FileOutputStrategy text = new FileOutputStrategy(directory.toString());
+        for (int i = 0; i <= 10; i++) {
+            text.output(1, 100L * i, Labels.ECG, i);
+        }
+        text.close();
+
+        List<Long> arrivals = new ArrayList<>();
+        try (Replayer replayer = Replayer.open(directory)) {
+            replayer.replay((patientId, timestamp, labelCode, value) -> arrivals.add(System.nanoTime()), 4);
+        }
+
+        // One second of recording at four times the speed
+        long elapsedMillis = (arrivals.get(10) - arrivals.get(0)) / 1_000_000;
+        assertTrue(elapsedMillis >= 245 && elapsedMillis < 1000, "took " + elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,100 @@
+package data_management;
+
+import com.alerts.Alert;
+import com.alerts.RuleEngine;
+import com.alerts.RuleState;
+import com.data_management.PatientRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleEngineTest {
+    private static final String RULES = "{\"rules\": ["
+            + "{\"condition\": \"HR LOW\", \"recordType\": \"HeartRate\", \"type\": \"threshold\", \"operator\": \"<\", \"value\": 50},"
+            + "{\"condition\": \"TEMP\", \"recordType\": \"Temperature\", \"type\": \"range\", \"min\": 35.5, \"max\": 38.0},"
+            + "{\"condition\": \"HR JUMP\", \"recordType\": \"HeartRate\", \"type\": \"trend\", \"delta\": 20}"
+            + "]}";
+
+    @Test
+    void evaluate_shouldFireThresholdRuleRegardlessOfRecordTypeCase() {
+        RuleEngine engine = RuleEngine.fromJson(RULES);
+        List<Alert> alerts = new ArrayList<>();
+
+        engine.evaluate(new PatientRecord(1, 45, "heartrate", 1L), engine.newState(), alerts::add);
+
+        assertEquals(1, alerts.size());
+        assertEquals("HR LOW", alerts.get(0).getCondition());
+        assertEquals("1", alerts.get(0).getPatientId());
+    }
+
+    @Test
+    void evaluate_shouldFireRangeRuleOnlyOutsideRange() {
+        RuleEngine engine = RuleEngine.fromJson(RULES);
+        RuleState state = engine.newState();
+        List<Alert> alerts = new ArrayList<>();
+
+        engine.evaluate(new PatientRecord(1, 36.6, "Temperature", 1L), state, alerts::add);
+        engine.evaluate(new PatientRecord(1, 38.0, "Temperature", 2L), state, alerts::add);
+        engine.evaluate(new PatientRecord(1, 39.2, "Temperature", 3L), state, alerts::add);
+
+        assertEquals(1, alerts.size());
+        assertEquals(3L, alerts.get(0).getTimestamp());
+    }
+
+    @Test
+    void evaluate_shouldFireTrendRuleOnLargeChangeBetweenConsecutiveRecords() {
+        RuleEngine engine = RuleEngine.fromJson(RULES);
+        RuleState state = engine.newState();
+        List<Alert> alerts = new ArrayList<>();
+
+        engine.evaluate(new PatientRecord(1, 70, "HeartRate", 1L), state, alerts::add);
+        engine.evaluate(new PatientRecord(1, 85, "HeartRate", 2L), state, alerts::add);
+        engine.evaluate(new PatientRecord(1, 120, "HeartRate", 3L), state, alerts::add);
+
+        assertEquals(1, alerts.size());
+        assertEquals("HR JUMP", alerts.get(0).getCondition());
+    }
+
+    @Test
+    void checkAlert_shouldNotFlagNormalDiastolicPressure() {
+        RuleEngine engine = RuleEngine.withDefaultRules();
+
+        assertNull(engine.checkAlert(new PatientRecord(1, 80.0, "DiastolicPressure", 1L)));
+        assertNotNull(engine.checkAlert(new PatientRecord(1, 125.0, "DiastolicPressure", 1L)));
+    }
+
+    @Test
+    void fromJson_shouldRejectUnknownRuleType() {
+        assertThrows(IllegalArgumentException.class, () -> RuleEngine.fromJson(
+                "{\"rules\": [{\"recordType\": \"ECG\", \"type\": \"spline\"}]}"));
+    }
+
+    @Test
+    void reload_shouldInstallChangedRulesAndKeepThemOnInvalidFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("rules.json");
+        Files.writeString(file, RULES);
+        RuleEngine engine = RuleEngine.fromFile(file);
+        PatientRecord record = new PatientRecord(1, 55, "HeartRate", 1L);
+        assertNull(engine.checkAlert(record));
+
+        Files.writeString(file, RULES.replace("\"value\": 50", "\"value\": 60"));
+        assertTrue(engine.reload());
+        assertNotNull(engine.checkAlert(record));
+
+        Files.writeString(file, "{\"rules\": [");
+        assertFalse(engine.reload());
+        assertNotNull(engine.checkAlert(record));
+    }
+}
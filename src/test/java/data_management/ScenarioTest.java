@@ -0,0 +1,120 @@
+package data_management;
+
+import com.alerts.AlertGenerator;
+import com.alerts.AlertLatencyMonitor;
+import com.alerts.RuleEngine;
+import com.cardio_generator.SimulatedClock;
+import com.cardio_generator.generators.BloodPressureDataGenerator;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.HighRateECGDataGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.generators.Scenario;
+import com.cardio_generator.outputs.Labels;
+import com.cardio_generator.outputs.OutputStrategy;
+import com.data_management.DataStorage;
+import com.data_management.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioTest {
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void severity_shouldRampHoldAndRecover_forTheSelectedPatients() {
+        Scenario scenario = Scenario.fromJson("{\"events\": [{\"condition\": \"hypotension\", \"patients\": [3, \"10-19\"],"
+                + " \"start\": \"PT1M\", \"ramp\": \"PT1M\", \"duration\": \"PT2M\", \"recovery\": \"PT2M\"}]}", START, 1L);
+
+        Scenario.Condition hypotension = Scenario.Condition.HYPOTENSION;
+        assertEquals(0, scenario.severity(hypotension, 3, START + 60_000));
+        assertEquals(0.5, scenario.severity(hypotension, 3, START + 90_000), 1e-9);
+        assertEquals(1, scenario.severity(hypotension, 15, START + 150_000));
+        assertEquals(0.75, scenario.severity(hypotension, 19, START + 270_000), 1e-9);
+        assertEquals(0, scenario.severity(hypotension, 19, START + 360_000));
+        assertEquals(0, scenario.severity(hypotension, 4, START + 150_000));
+        assertEquals(0, scenario.severity(Scenario.Condition.DESATURATION, 3, START + 150_000));
+    }
+
+    @Test
+    void severity_shouldAffectTheSameFractionOfPatients_forTheSameSeed() {
+        String json = "{\"events\": [{\"condition\": \"critical\", \"fraction\": 0.2, \"start\": \"PT0S\", \"duration\": \"PT1H\"}]}";
+        Scenario scenario = Scenario.fromJson(json, START, 42L);
+        Scenario again = Scenario.fromJson(json, START, 42L);
+
+        int affected = 0;
+        for (int patientId = 1; patientId <= 10_000; patientId++) {
+            double severity = scenario.severity(Scenario.Condition.DESATURATION, patientId, START + 1000);
+            assertEquals(severity, again.severity(Scenario.Condition.DESATURATION, patientId, START + 1000));
+            // A critical patient has every condition at once
+            assertEquals(severity, scenario.severity(Scenario.Condition.TACHYCARDIA, patientId, START + 1000));
+            if (severity > 0) {
+                affected++;
+            }
+        }
+        assertTrue(affected > 1800 && affected < 2200, affected + " of 10000 patients affected");
+    }
+
+    @Test
+    void fromJson_shouldThrow_whenAnEventIsInvalid() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Scenario.fromJson(
+                "{\"events\": [{\"condition\": \"fever\", \"patients\": [1], \"start\": \"PT0S\", \"duration\": \"PT1M\"}]}",
+                START, 1L));
+        assertTrue(e.getMessage().contains("fever"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Scenario.fromJson(
+                "{\"events\": [{\"condition\": \"critical\", \"patients\": [1], \"start\": \"soon\", \"duration\": \"PT1M\"}]}",
+                START, 1L));
+    }
+
+    @Test
+    void generate_shouldTriggerTheAlertRules_whenACriticalEventStarts() {
+        SimulatedClock clock = new SimulatedClock(START);
+        Scenario scenario = Scenario.fromJson("{\"events\": [{\"condition\": \"critical\", \"patients\": [1],"
+                + " \"start\": \"PT1M\", \"duration\": \"PT5M\"}]}", START, 1L);
+        List<PatientDataGenerator> generators = List.of(
+                new HighRateECGDataGenerator(1, clock, 1L, 250),
+                new BloodSaturationDataGenerator(1, clock, 2L),
+                new BloodPressureDataGenerator(1, clock, 3L));
+        generators.forEach(generator -> generator.setScenario(scenario));
+        DataStorage storage = new DataStorage();
+        OutputStrategy toStorage = (patientId, timestamp, labelCode, value) ->
+                // The alert rules expect saturation as a fraction, as the WebSocket reader stores it
+                storage.addPatientData(patientId, labelCode == Labels.SATURATION ? value / 100 : value,
+                        Labels.name(labelCode), timestamp);
+        // Evaluated only twice, so the alerts are late by design
+        AlertGenerator alertGenerator = new AlertGenerator(storage, RuleEngine.withDefaultRules(),
+                new AlertLatencyMonitor(TimeUnit.HOURS.toMillis(1), clock));
+        Set<String> conditions = new HashSet<>();
+        alertGenerator.addAlertListener(alert -> conditions.add(alert.getCondition()));
+
+        Set<String> before = new HashSet<>();
+        for (int tick = 0; tick <= 1800; tick++) {
+            clock.setMillis(START + tick * 100L);
+            generators.get(0).generate(1, toStorage);
+            if (tick % 10 == 0) {
+                generators.get(1).generate(1, toStorage);
+                generators.get(2).generate(1, toStorage);
+            }
+            if (tick == 590) {
+                alertGenerator.evaluateData(new Patient(1));
+                before.addAll(conditions);
+                conditions.clear();
+            }
+        }
+        alertGenerator.evaluateData(new Patient(1));
+
+        assertFalse(before.contains("TACHYCARDIA"), before.toString());
+        assertFalse(before.contains("Hypotensive Hypoxemia Alert"), before.toString());
+        for (String condition : List.of("SYSTOLIC TOO LOW", "DIASTOLIC TOO LOW", "OXYGEN SATURATION TOO LOW",
+                "TACHYCARDIA", "Hypotensive Hypoxemia Alert")) {
+            assertTrue(conditions.contains(condition), condition + " not in " + conditions);
+        }
+    }
+}
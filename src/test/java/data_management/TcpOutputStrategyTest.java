@@ -0,0 +1,96 @@
+package data_management;
+
+import com.cardio_generator.outputs.TcpOutputStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TcpOutputStrategyTest {
+    private TcpOutputStrategy strategy;
+
+    @AfterEach
+    public void tearDown() {
+        strategy.close();
+    }
+
+    @Test
+    void output_shouldSendEveryLineToAllClients() throws Exception {
+        strategy = TcpOutputStrategy.open(0);
+        try (Socket first = new Socket("localhost", strategy.getPort());
+             Socket second = new Socket("localhost", strategy.getPort())) {
+            Await.until("two clients", () -> strategy.getClientCount() == 2);
+
+            for (int i = 0; i < 1000; i++) {
+                strategy.output(1, i, "ECG", "0.5");
+            }
+
+            for (Socket socket : new Socket[]{first, second}) {
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                assertEquals("1,0,ECG,0.5", reader.readLine());
+                for (int i = 1; i < 999; i++) {
+                    reader.readLine();
+                }
+                assertEquals("1,999,ECG,0.5", reader.readLine());
+            }
+        }
+    }
+
+    @Test
+    void output_shouldDropLines_whenClientDoesNotRead() throws Exception {
+        strategy = TcpOutputStrategy.open(0, 4096, TcpOutputStrategy.SlowClientPolicy.DROP);
+        try (Socket slow = new Socket("localhost", strategy.getPort())) {
+            slow.setReceiveBufferSize(4096);
+            Await.until("one client", () -> strategy.getClientCount() == 1);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < 200_000; i++) {
+                strategy.output(1, i, "ECG", "0.123456789");
+            }
+
+            // The generator is never held up by the client
+            assertTrue(System.nanoTime() - start < 10_000_000_000L);
+            assertTrue(strategy.getDroppedLines() > 0);
+            assertEquals(1, strategy.getClientCount());
+        }
+    }
+
+    @Test
+    void output_shouldDisconnectClient_whenPolicyIsDisconnect() throws Exception {
+        strategy = TcpOutputStrategy.open(0, 4096, TcpOutputStrategy.SlowClientPolicy.DISCONNECT);
+        try (Socket slow = new Socket("localhost", strategy.getPort())) {
+            Await.until("one client", () -> strategy.getClientCount() == 1);
+
+            for (int i = 0; i < 200_000 && strategy.getClientCount() > 0; i++) {
+                strategy.output(1, i, "ECG", "0.123456789");
+            }
+            Await.until("no clients", () -> strategy.getClientCount() == 0);
+
+            assertEquals(1, strategy.getDisconnectedClients());
+            InputStream in = slow.getInputStream();
+            byte[] chunk = new byte[65536];
+            int read;
+            do {
+                read = in.read(chunk);
+            } while (read > 0);
+            assertEquals(-1, read);
+        }
+    }
+
+    @Test
+    void open_shouldFail_whenThePortIsInUse() {
+        strategy = TcpOutputStrategy.open(0);
+
+        assertThrows(UncheckedIOException.class, () -> TcpOutputStrategy.open(strategy.getPort()));
+    }
+}
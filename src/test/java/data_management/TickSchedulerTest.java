@@ -0,0 +1,212 @@
+package data_management;
+
+import com.cardio_generator.SimulatedClock;
+import com.cardio_generator.TickScheduler;
+import com.cardio_generator.generators.BloodSaturationDataGenerator;
+import com.cardio_generator.generators.PatientDataGenerator;
+import com.cardio_generator.outputs.OutputStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickSchedulerTest {
+    private static final int PATIENTS = 1000;
+    private final OutputStrategy output = (patientId, timestamp, labelCode, value) -> { };
+    private TickScheduler scheduler;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        scheduler.stop();
+    }
+
+    @Test
+    void schedule_shouldGenerateEveryPatientOncePerPeriod() throws InterruptedException {
+        scheduler = new TickScheduler(10, 4, 64);
+        AtomicIntegerArray generated = new AtomicIntegerArray(PATIENTS + 1);
+        scheduler.schedule((patientId, outputStrategy) -> generated.incrementAndGet(patientId),
+                patientIds(), 100, TimeUnit.MILLISECONDS, output);
+
+        scheduler.start();
+        Thread.sleep(550);
+        scheduler.stop();
+
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int id = 1; id <= PATIENTS; id++) {
+            min = Math.min(min, generated.get(id));
+            max = Math.max(max, generated.get(id));
+        }
+        assertTrue(min >= 4, "a patient was generated only " + min + " times");
+        assertTrue(max - min <= 1, "patients were generated between " + min + " and " + max + " times");
+    }
+
+    @Test
+    void schedule_shouldSpreadPatientsOverThePeriod() throws InterruptedException {
+        scheduler = new TickScheduler(10, 2, 64);
+        List<Integer> perTick = new ArrayList<>();
+        int[] count = new int[1];
+        PatientDataGenerator counter = (patientId, outputStrategy) -> {
+            synchronized (count) {
+                count[0]++;
+            }
+        };
+        scheduler.schedule(counter, patientIds(), 100, TimeUnit.MILLISECONDS, output);
+        scheduler.schedule((patientId, outputStrategy) -> {
+            synchronized (count) {
+                perTick.add(count[0]);
+                count[0] = 0;
+            }
+        }, List.of(1), 10, TimeUnit.MILLISECONDS, output);
+
+        scheduler.start();
+        Thread.sleep(300);
+        scheduler.stop();
+
+        // Every tick generates a tenth of the patients, never all of them at once. The marker runs
+        // alongside the batches of its own tick, so a count can include the batches of two ticks.
+        synchronized (count) {
+            for (int i = 1; i < perTick.size(); i++) {
+                assertTrue(perTick.get(i) <= 2 * PATIENTS / 10, "a tick generated " + perTick.get(i) + " patients");
+            }
+        }
+    }
+
+    @Test
+    void tick_shouldCountOverrun_whenBatchesTakeLongerThanTheTick() throws InterruptedException {
+        scheduler = new TickScheduler(5, 1, 64);
+        scheduler.schedule((patientId, outputStrategy) -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, List.of(1), 5, TimeUnit.MILLISECONDS, output);
+
+        scheduler.start();
+        Thread.sleep(100);
+        scheduler.stop();
+
+        assertTrue(scheduler.getOverrunCount() > 0);
+    }
+
+    @Test
+    void tick_shouldKeepGeneratingTheOtherPatients_whenAGeneratorThrows() throws InterruptedException {
+        scheduler = new TickScheduler(10, 2, 4);
+        AtomicIntegerArray generated = new AtomicIntegerArray(11);
+        scheduler.schedule((patientId, outputStrategy) -> {
+            generated.incrementAndGet(patientId);
+            if (patientId == 1) {
+                throw new IllegalStateException("The monitor of patient 1 is unplugged");
+            }
+        }, patientIds().subList(0, 10), 10, TimeUnit.MILLISECONDS, output);
+
+        scheduler.start();
+        Thread.sleep(200);
+        scheduler.stop();
+
+        for (int id = 1; id <= 10; id++) {
+            assertTrue(generated.get(id) >= 5, "patient " + id + " was generated " + generated.get(id) + " times");
+        }
+    }
+
+    @Test
+    void start_shouldTimestampReadingsOnePeriodApart_whenRunningInSimulatedTime() throws InterruptedException {
+        long start = 1_700_000_000_000L;
+        SimulatedClock clock = new SimulatedClock(start);
+        scheduler = new TickScheduler(100, 4, 64, clock, Double.POSITIVE_INFINITY);
+        scheduler.setEndMillis(start + TimeUnit.HOURS.toMillis(1));
+        Map<Integer, List<Long>> timestamps = new ConcurrentHashMap<>();
+        OutputStrategy recorder = (patientId, timestamp, labelCode, value) ->
+                timestamps.computeIfAbsent(patientId, id -> new ArrayList<>()).add(timestamp);
+        scheduler.schedule(new BloodSaturationDataGenerator(100, clock), patientIds().subList(0, 100),
+                1, TimeUnit.SECONDS, recorder);
+
+        long wallStart = System.nanoTime();
+        scheduler.start();
+        scheduler.awaitTermination();
+
+        // An hour of simulated time takes far less than an hour
+        assertTrue(System.nanoTime() - wallStart < TimeUnit.SECONDS.toNanos(30));
+        assertEquals(100, timestamps.size());
+        for (List<Long> patient : timestamps.values()) {
+            assertEquals(3600, patient.size());
+            assertTrue(patient.get(0) >= start && patient.get(0) < start + 1000);
+            for (int i = 1; i < patient.size(); i++) {
+                assertEquals(1000, patient.get(i) - patient.get(i - 1));
+            }
+        }
+    }
+
+    @Test
+    void start_shouldGenerateOnVirtualThreads_andFinishEveryTickBeforeTerminating() throws InterruptedException {
+        long start = 1_700_000_000_000L;
+        SimulatedClock clock = new SimulatedClock(start);
+        scheduler = new TickScheduler(100, 1, 64, clock, Double.POSITIVE_INFINITY, true);
+        scheduler.setEndMillis(start + TimeUnit.MINUTES.toMillis(10));
+        AtomicIntegerArray generated = new AtomicIntegerArray(PATIENTS + 1);
+        AtomicInteger platformThreadCalls = new AtomicInteger();
+        scheduler.schedule((patientId, outputStrategy) -> {
+            if (!Thread.currentThread().isVirtual()) {
+                platformThreadCalls.incrementAndGet();
+            }
+            generated.incrementAndGet(patientId);
+        }, patientIds(), 1, TimeUnit.SECONDS, output);
+
+        scheduler.start();
+        scheduler.awaitTermination();
+
+        assertEquals(0, platformThreadCalls.get());
+        for (int id = 1; id <= PATIENTS; id++) {
+            assertEquals(600, generated.get(id));
+        }
+    }
+
+    @Test
+    void admit_shouldGeneratePatientsAdmittedWhileRunning_untilTheyAreDischarged() throws InterruptedException {
+        scheduler = new TickScheduler(10, 2, 64);
+        Map<Integer, Integer> generated = new ConcurrentHashMap<>();
+        BloodSaturationDataGenerator generator = new BloodSaturationDataGenerator(10, new SimulatedClock(0), 1L);
+        scheduler.schedule(generator, patientIds().subList(0, 10), 50, TimeUnit.MILLISECONDS,
+                (patientId, timestamp, labelCode, value) -> generated.merge(patientId, 1, Integer::sum));
+
+        scheduler.start();
+        assertTrue(scheduler.admit(2_000_001));
+        assertFalse(scheduler.admit(2_000_001));
+        assertTrue(scheduler.discharge(3));
+        assertFalse(scheduler.discharge(3));
+        generated.remove(3);
+        Thread.sleep(300);
+        scheduler.stop();
+
+        assertTrue(generated.getOrDefault(2_000_001, 0) >= 4, "generated " + generated.get(2_000_001) + " times");
+        assertFalse(generated.containsKey(3));
+        assertEquals(10, scheduler.getPatientIds().length);
+        assertEquals(2_000_001, scheduler.getPatientIds()[9]);
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveTick() {
+        scheduler = new TickScheduler(1);
+        assertThrows(IllegalArgumentException.class, () -> new TickScheduler(0));
+    }
+
+    private static List<Integer> patientIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id <= PATIENTS; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
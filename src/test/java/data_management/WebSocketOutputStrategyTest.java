@@ -0,0 +1,162 @@
+package data_management;
+
+import com.cardio_generator.outputs.WebSocketOutputStrategy;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebSocketOutputStrategyTest {
+    private WebSocketOutputStrategy strategy;
+    private final List<RecordingClient> clients = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        for (RecordingClient client : clients) {
+            client.closeBlocking();
+        }
+        strategy.close();
+    }
+
+    @Test
+    void output_shouldBatchSamplesIntoFewFrames_andSendThemToEveryClient() throws Exception {
+        int port = freePort();
+        strategy = new WebSocketOutputStrategy(port, 20, 64 * 1024, 256);
+        RecordingClient first = connect(port);
+        RecordingClient second = connect(port);
+
+        for (int i = 0; i < 1000; i++) {
+            strategy.output(1, i, "ECG", "0.5");
+        }
+        strategy.flush();
+
+        for (RecordingClient client : List.of(first, second)) {
+            awaitLines(client, 1000);
+            List<String> lines = client.lines();
+            assertEquals("1,0,ECG,0.5", lines.get(0));
+            assertEquals("1,999,ECG,0.5", lines.get(999));
+            assertTrue(client.frames.size() < 100, "received " + client.frames.size() + " frames");
+        }
+    }
+
+    @Test
+    void output_shouldSendFullBatch_withoutWaitingForTheLatency() throws Exception {
+        int port = freePort();
+        strategy = new WebSocketOutputStrategy(port, TimeUnit.HOURS.toMillis(1), 100, 256);
+        RecordingClient client = connect(port);
+
+        for (int i = 0; i < 20; i++) {
+            strategy.output(1, i, "ECG", "0.5");
+        }
+
+        awaitLines(client, 8);
+        assertTrue(client.lines().size() < 20);
+    }
+
+    @Test
+    void output_shouldSendTheLinesOfEveryThreadInOrder_whenSeveralThreadsTakeBatches() throws Exception {
+        int port = freePort();
+        // A flusher every millisecond and small batches, so that every thread takes batches all the time
+        strategy = new WebSocketOutputStrategy(port, 1, 100, 1 << 20);
+        RecordingClient client = connect(port);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int patientId = t + 1;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    strategy.output(patientId, i, "ECG", "0.5");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        strategy.flush();
+
+        awaitLines(client, 80_000);
+        long[] next = new long[threads.length + 1];
+        for (String line : client.lines()) {
+            String[] fields = line.split(",");
+            int patientId = Integer.parseInt(fields[0]);
+            assertEquals(next[patientId]++, Long.parseLong(fields[1]), "patient " + patientId);
+        }
+    }
+
+    private RecordingClient connect(int port) throws Exception {
+        RecordingClient client = new RecordingClient(new URI("ws://localhost:" + port));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        // The server starts asynchronously, so the first attempts can be refused
+        while (!client.connectBlocking(1, TimeUnit.SECONDS)) {
+            if (System.nanoTime() > deadline) {
+                throw new IOException("Could not connect to the server");
+            }
+            Thread.sleep(20);
+            client = new RecordingClient(new URI("ws://localhost:" + port));
+        }
+        clients.add(client);
+        // The handshake completes on the client before the server registers the connection
+        while (strategy.getClientCount() < clients.size()) {
+            if (System.nanoTime() > deadline) {
+                throw new IOException("The server did not register the connection");
+            }
+            Thread.sleep(5);
+        }
+        return client;
+    }
+
+    private static void awaitLines(RecordingClient client, int count) throws InterruptedException {
+        Await.until(count + " lines", () -> client.lines().size() >= count);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static final class RecordingClient extends WebSocketClient {
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+
+        private RecordingClient(URI uri) {
+            super(uri);
+        }
+
+        private List<String> lines() {
+            List<String> lines = new ArrayList<>();
+            for (String frame : frames) {
+                lines.addAll(List.of(frame.split("\n")));
+            }
+            return lines;
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            frames.add(message);
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+    }
+}
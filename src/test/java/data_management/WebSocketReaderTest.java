@@ -34,6 +34,14 @@ class WebSocketReaderTest {
         verify(dataStorage, times(1)).addPatientData(1, 36.6, "temperature", 1622544000);
     }
 
+    @Test
+    void onMessage_shouldStoreEverySample_whenMessageHoldsABatch() {
+        webSocketReader.onMessage("1,1622544000,temperature,36.6\n2,1622544001,ECG,0.25\n3,1622544002,ECG,0.5");
+        verify(dataStorage, times(1)).addPatientData(1, 36.6, "temperature", 1622544000);
+        verify(dataStorage, times(1)).addPatientData(2, 0.25, "ECG", 1622544001);
+        verify(dataStorage, times(1)).addPatientData(3, 0.5, "ECG", 1622544002);
+    }
+
     @Test
     void onClose_shouldPrintDisconnectedFromServer() {
         webSocketReader.onClose(1000, "Normal closure", true);
@@ -53,6 +61,16 @@ class WebSocketReaderTest {
         verify(dataStorage, times(1)).addPatientData(1, 36.6, "temperature", 1622544000);
     }
 
+    @Test
+    void receiveData_shouldStoreSaturationAsFraction_andAlertsAsNumbers() {
+        webSocketReader.recieveData("1,1622544000,Saturation,97.0%");
+        webSocketReader.recieveData("1,1622544001,Alert,triggered");
+        webSocketReader.recieveData("1,1622544002,Alert,resolved");
+        verify(dataStorage, times(1)).addPatientData(1, 0.97, "Saturation", 1622544000);
+        verify(dataStorage, times(1)).addPatientData(1, 1.0, "Alert", 1622544001);
+        verify(dataStorage, times(1)).addPatientData(1, 0.0, "Alert", 1622544002);
+    }
+
     @Test
     void receiveData_shouldHandleInvalidData() {
         webSocketReader.recieveData("invalid data");